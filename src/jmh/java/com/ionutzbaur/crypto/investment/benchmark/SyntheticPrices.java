@@ -0,0 +1,126 @@
+package com.ionutzbaur.crypto.investment.benchmark;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.util.CsvPriceWriter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic generator of synthetic price histories, a random walk per crypto.
+ * The rows of a crypto are spread evenly over {@value #SPAN_DAYS} days starting with {@link #START},
+ * so the number of days covered stays the same whatever the number of rows.
+ * The same crypto and number of rows always generate the same values.
+ */
+public final class SyntheticPrices {
+
+    public static final Instant START = Instant.parse("2022-01-01T00:00:00Z");
+    public static final int SPAN_DAYS = 365;
+    public static final Instant END = START.plus(Duration.ofDays(SPAN_DAYS));
+    public static final List<CryptoType> SYMBOLS = Stream.of("BTC", "DOGE", "ETH", "LTC", "XRP")
+            .map(CryptoType::register)
+            .toList();
+
+    private static final long SEED = 0x5eed;
+    private static final double VOLATILITY = 0.002;
+    private static final double PRICE_DECIMALS = 1e4;
+
+    private final CryptoType cryptoType;
+    private final int rows;
+
+    public SyntheticPrices(CryptoType cryptoType, int rows) {
+        this.cryptoType = cryptoType;
+        this.rows = rows;
+    }
+
+    /**
+     * @return a day within the generated history, cycling through all of them
+     */
+    public static LocalDate day(int index) {
+        return LocalDate.ofInstant(START, ZoneOffset.UTC).plusDays(Math.floorMod(index, SPAN_DAYS));
+    }
+
+    /**
+     * Generates all the rows, in timestamp order, handing them over in lists of at most the given size.
+     *
+     * @param chunkSize the max number of rows per list
+     * @param consumer receives the generated rows
+     */
+    public void forEachChunk(int chunkSize, Consumer<List<CsvCrypto>> consumer) {
+        // seeded by name, registration order must not change the values
+        final SplittableRandom random = new SplittableRandom(SEED + cryptoType.name().hashCode());
+        final double step = Duration.ofDays(SPAN_DAYS).toMillis() / (double) rows;
+        double price = 100.0 * (1 + Math.floorMod(cryptoType.name().hashCode(), 10));
+
+        List<CsvCrypto> chunk = new ArrayList<>(Math.min(chunkSize, rows));
+        for (int i = 0; i < rows; i++) {
+            price = Math.max(price * (1 + VOLATILITY * random.nextGaussian()), 1 / PRICE_DECIMALS);
+            chunk.add(new CsvCrypto(START.toEpochMilli() + (long) (i * step), cryptoType,
+                    BigDecimal.valueOf(Math.round(price * PRICE_DECIMALS) / PRICE_DECIMALS)));
+            if (chunk.size() == chunkSize) {
+                consumer.accept(chunk);
+                chunk = new ArrayList<>(Math.min(chunkSize, rows - i - 1));
+            }
+        }
+        if (!chunk.isEmpty()) {
+            consumer.accept(chunk);
+        }
+    }
+
+    /**
+     * Writes all the rows to a CSV file in the format of the price files.
+     *
+     * @param csvPath the file to create
+     * @throws IOException if writing fails
+     */
+    public void writeCsv(Path csvPath) throws IOException {
+        Files.deleteIfExists(csvPath);
+        try (CsvPriceWriter writer = CsvPriceWriter.open(csvPath)) {
+            final IOException[] failure = {null};
+            forEachChunk(8192, chunk -> {
+                try {
+                    for (CsvCrypto csvCrypto : chunk) {
+                        writer.write(csvCrypto);
+                    }
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+
+    /**
+     * Writes a {@code <SYMBOL>_values.csv} file for each of the {@link #SYMBOLS}, e.g. to size the hardware.
+     *
+     * @param args the target directory and the number of rows per crypto
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: SyntheticPrices <target directory> <rows per crypto>");
+            System.exit(1);
+        }
+        final Path directory = Files.createDirectories(Paths.get(args[0]));
+        final int rows = Integer.parseInt(args[1]);
+        for (CryptoType cryptoType : SYMBOLS) {
+            final Path csvPath = directory.resolve(cryptoType + "_values.csv");
+            new SyntheticPrices(cryptoType, rows).writeCsv(csvPath);
+            System.out.printf("%s: %d rows, %d bytes%n", csvPath, rows, Files.size(csvPath));
+        }
+    }
+}
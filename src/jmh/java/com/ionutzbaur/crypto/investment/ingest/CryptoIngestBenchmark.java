@@ -0,0 +1,94 @@
+package com.ionutzbaur.crypto.investment.ingest;
+
+import com.ionutzbaur.crypto.investment.benchmark.SyntheticPrices;
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.service.impl.CryptoServiceImpl;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import com.ionutzbaur.crypto.investment.util.CsvPriceWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * {@link CryptoServiceImpl#addCrypto} through the group-commit pipeline, writing to CSV files in a temp directory.
+ * Run with {@code -t <threads>} to measure concurrent requests sharing the commits.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CryptoIngestBenchmark {
+
+    private static final CryptoType BTC = CryptoType.register("BTC");
+
+    @Param({"1000", "100000", "10000000"})
+    private int rowsPerSymbol;
+
+    @Param({"1", "100"})
+    private int batchSize;
+
+    private Path directory;
+    private CryptoIngestPipeline ingestPipeline;
+    private CryptoServiceImpl cryptoService;
+
+    // added values are newer than the synthetic history, so they take the append path of the store
+    private final AtomicLong nextTimestamp = new AtomicLong(SyntheticPrices.END.toEpochMilli());
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("crypto-ingest-benchmark");
+        final CryptoPriceStore priceStore = new CryptoPriceStore(ZoneOffset.UTC, false);
+        for (CryptoType cryptoType : SyntheticPrices.SYMBOLS) {
+            new SyntheticPrices(cryptoType, rowsPerSymbol)
+                    .forEachChunk(100_000, chunk -> priceStore.append(cryptoType, chunk));
+        }
+        ingestPipeline = new CryptoIngestPipeline(priceStore,
+                cryptoType -> CsvPriceWriter.open(directory.resolve(cryptoType + "_values.csv")),
+                10_000, Duration.ofMillis(2));
+        cryptoService = new CryptoServiceImpl(priceStore, ingestPipeline);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException, IOException {
+        ingestPipeline.stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void addCrypto() {
+        final List<CsvCrypto> cryptoValues = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            cryptoValues.add(new CsvCrypto(nextTimestamp.incrementAndGet(), BTC, BigDecimal.valueOf(40000.25)));
+        }
+        cryptoService.addCrypto(cryptoValues);
+    }
+}
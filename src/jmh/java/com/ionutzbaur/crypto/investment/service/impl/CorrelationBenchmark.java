@@ -0,0 +1,73 @@
+package com.ionutzbaur.crypto.investment.service.impl;
+
+import com.ionutzbaur.crypto.investment.benchmark.SyntheticPrices;
+import com.ionutzbaur.crypto.investment.domain.CandleInterval;
+import com.ionutzbaur.crypto.investment.domain.CorrelationMatrix;
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.ingest.CryptoIngestPipeline;
+import com.ionutzbaur.crypto.investment.metrics.CryptoMetrics;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Correlation matrix of {@link CryptoServiceImpl} across many cryptos, each with a year of synthetic hourly values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CorrelationBenchmark {
+
+    private static final int ROWS_PER_SYMBOL = SyntheticPrices.SPAN_DAYS * 24;
+
+    @Param({"20", "200"})
+    private int symbols;
+
+    @Param({"HOUR", "DAY"})
+    private CandleInterval interval;
+
+    private CryptoIngestPipeline ingestPipeline;
+    private CryptoServiceImpl cryptoService;
+
+    @Setup
+    public void setUp() {
+        final CryptoPriceStore priceStore = new CryptoPriceStore(ZoneOffset.UTC, false);
+        for (int i = 0; i < symbols; i++) {
+            final CryptoType cryptoType = CryptoType.register(String.format("SYM%03d", i));
+            new SyntheticPrices(cryptoType, ROWS_PER_SYMBOL)
+                    .forEachChunk(100_000, chunk -> priceStore.append(cryptoType, chunk));
+        }
+        // never submitted to
+        ingestPipeline = new CryptoIngestPipeline(priceStore, 1, Duration.ZERO, DataSize.ofMegabytes(64),
+                CryptoMetrics.noop());
+        cryptoService = new CryptoServiceImpl(priceStore, ingestPipeline);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        ingestPipeline.stop();
+    }
+
+    @Benchmark
+    public CorrelationMatrix getCorrelations() {
+        return cryptoService.getCorrelations(null, interval, null, null);
+    }
+}
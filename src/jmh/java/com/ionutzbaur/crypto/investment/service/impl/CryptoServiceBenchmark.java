@@ -0,0 +1,114 @@
+package com.ionutzbaur.crypto.investment.service.impl;
+
+import com.ionutzbaur.crypto.investment.benchmark.SyntheticPrices;
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.NormalizedRange;
+import com.ionutzbaur.crypto.investment.domain.RangeRanking;
+import com.ionutzbaur.crypto.investment.domain.StatisticType;
+import com.ionutzbaur.crypto.investment.domain.WindowStatistics;
+import com.ionutzbaur.crypto.investment.ingest.CryptoIngestPipeline;
+import com.ionutzbaur.crypto.investment.metrics.CryptoMetrics;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of {@link CryptoServiceImpl} over a store filled with synthetic values for every crypto.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CryptoServiceBenchmark {
+
+    private static final CryptoType BTC = CryptoType.register("BTC");
+
+    @Param({"1000", "100000", "10000000"})
+    private int rowsPerSymbol;
+
+    private CryptoPriceStore priceStore;
+    private CryptoIngestPipeline ingestPipeline;
+    private CryptoServiceImpl cryptoService;
+
+    private int dayIndex;
+
+    /**
+     * Kept apart so that only {@link #getStatistic} runs for every statistic type.
+     */
+    @State(Scope.Benchmark)
+    public static class StatisticParams {
+
+        @Param
+        private StatisticType statisticType;
+    }
+
+    @Setup
+    public void setUp() {
+        priceStore = new CryptoPriceStore(ZoneOffset.UTC, false);
+        for (CryptoType cryptoType : SyntheticPrices.SYMBOLS) {
+            new SyntheticPrices(cryptoType, rowsPerSymbol)
+                    .forEachChunk(100_000, chunk -> priceStore.append(cryptoType, chunk));
+        }
+        // never submitted to, added values are measured by CryptoIngestBenchmark
+        ingestPipeline = new CryptoIngestPipeline(priceStore, 1, Duration.ZERO, DataSize.ofMegabytes(64),
+                CryptoMetrics.noop());
+        cryptoService = new CryptoServiceImpl(priceStore, ingestPipeline);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        ingestPipeline.stop();
+    }
+
+    @Benchmark
+    public CsvCrypto getStatistic(StatisticParams params) {
+        return cryptoService.getStatistic(BTC, params.statisticType);
+    }
+
+    @Benchmark
+    public List<NormalizedRange> getNormalizedDesc_cached() {
+        return cryptoService.getNormalizedDesc();
+    }
+
+    @Benchmark
+    public List<NormalizedRange> getNormalizedDesc() {
+        priceStore.append(BTC, List.of()); // invalidates the cached ranking
+        return cryptoService.getNormalizedDesc();
+    }
+
+    @Benchmark
+    public CryptoType getHighestNormalizedRange() {
+        return cryptoService.getHighestNormalizedRange(SyntheticPrices.day(dayIndex++));
+    }
+
+    @Benchmark
+    public RangeRanking getNormalizedRangeRanking() {
+        // the daily top 3 of the whole year
+        return cryptoService.getNormalizedRangeRanking(SyntheticPrices.day(0),
+                SyntheticPrices.day(SyntheticPrices.SPAN_DAYS - 1), 3);
+    }
+
+    @Benchmark
+    public List<WindowStatistics> getWindowStatistics() {
+        return cryptoService.getWindowStatistics(BTC, null);
+    }
+}
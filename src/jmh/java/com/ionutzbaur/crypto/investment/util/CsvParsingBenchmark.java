@@ -0,0 +1,60 @@
+package com.ionutzbaur.crypto.investment.util;
+
+import com.ionutzbaur.crypto.investment.benchmark.SyntheticPrices;
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw parsing of a synthetic price CSV file by {@link CsvCryptoUtil}, from the page cache after the first iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvParsingBenchmark {
+
+    private static final CryptoType BTC = CryptoType.register("BTC");
+
+    @Param({"1000", "100000", "10000000"})
+    private int rows;
+
+    private Path csvPath;
+
+    @Setup
+    public void setUp() throws IOException {
+        csvPath = Files.createTempFile("BTC_values", ".csv");
+        new SyntheticPrices(BTC, rows).writeCsv(csvPath);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvPath);
+    }
+
+    @Benchmark
+    public CsvPriceReader.Result readCryptoFromCsv(Blackhole blackhole) throws IOException {
+        return CsvCryptoUtil.readCryptoFromCsv(csvPath, (symbol, timestamp, price, decimals) -> {
+            blackhole.consume(timestamp);
+            blackhole.consume(price);
+        });
+    }
+}
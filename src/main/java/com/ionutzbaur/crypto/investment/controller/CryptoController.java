@@ -1,45 +1,99 @@
 package com.ionutzbaur.crypto.investment.controller;
 
+import com.ionutzbaur.crypto.investment.domain.BatchQuery;
+import com.ionutzbaur.crypto.investment.domain.BatchResult;
+import com.ionutzbaur.crypto.investment.domain.BulkFormat;
+import com.ionutzbaur.crypto.investment.domain.Candle;
+import com.ionutzbaur.crypto.investment.domain.CandleInterval;
+import com.ionutzbaur.crypto.investment.domain.CorrelationMatrix;
 import com.ionutzbaur.crypto.investment.domain.CryptoType;
 import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.IngestSummary;
+import com.ionutzbaur.crypto.investment.domain.NormalizedRange;
+import com.ionutzbaur.crypto.investment.domain.RangeRanking;
+import com.ionutzbaur.crypto.investment.domain.RollingWindow;
 import com.ionutzbaur.crypto.investment.domain.StatisticType;
+import com.ionutzbaur.crypto.investment.domain.WindowStatistics;
+import com.ionutzbaur.crypto.investment.ingest.BulkIngest;
 import com.ionutzbaur.crypto.investment.service.CryptoService;
+import com.ionutzbaur.crypto.investment.stream.StatisticsStream;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 public class CryptoController {
 
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
     private final CryptoService cryptoService;
+    private final StatisticsStream statisticsStream;
+    private final JsonResponseCache responseCache;
+    private final BulkIngest bulkIngest;
 
-    public CryptoController(CryptoService cryptoService) {
+    public CryptoController(CryptoService cryptoService, StatisticsStream statisticsStream,
+                            JsonResponseCache responseCache, BulkIngest bulkIngest) {
         this.cryptoService = cryptoService;
+        this.statisticsStream = statisticsStream;
+        this.responseCache = responseCache;
+        this.bulkIngest = bulkIngest;
     }
 
-    @Operation(description = "Get a the requested statistic for a certain crypto (oldest/newest/min/max values)")
+    @Operation(description = "Get a the requested statistic for a certain crypto (oldest/newest/min/max values, " +
+            "mean/stddev/twap or p5/median/p95 prices estimated within 0.5%) over its whole history or the days " +
+            "[from, to], both bounds being optional ISO-8601 dates like 2022-01-01. " +
+            "Responses carry an ETag changing with the values of the crypto, answering If-None-Match with 304")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = CsvCrypto.class)))
     @GetMapping("/stats/{crypto}")
-    public CsvCrypto getStatisticValues(@PathVariable CryptoType crypto,
-                                        @RequestParam(value = "type", defaultValue = "NEWEST") StatisticType statisticType) {
-        return cryptoService.getStatistic(crypto, statisticType);
+    public ResponseEntity<byte[]> getStatisticValues(@PathVariable CryptoType crypto,
+                                                     @RequestParam(value = "type", defaultValue = "NEWEST") StatisticType statisticType,
+                                                     @RequestParam(value = "from", required = false)
+                                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                     @RequestParam(value = "to", required = false)
+                                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                     WebRequest request) {
+        return responseCache.get(request, "stats/" + crypto + "/" + statisticType + "/" + from + "/" + to,
+                cryptoService.getDataVersion(crypto), () -> cryptoService.getStatistic(crypto, statisticType, from, to));
     }
 
     @Operation(description = "Get a descending sorted list of all the cryptos, " +
-            "comparing the normalized range (max-min)/min")
+            "comparing the normalized range (max-min)/min. " +
+            "Responses carry an ETag changing with the values of any crypto, answering If-None-Match with 304")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = NormalizedRange.class))))
     @GetMapping("/normalize-desc")
-    public List<CsvCrypto> getNormalizedDesc() {
-        return cryptoService.getNormalizedDesc();
+    public ResponseEntity<byte[]> getNormalizedDesc(WebRequest request) {
+        return responseCache.get(request, "normalize-desc", cryptoService.getDataVersion(),
+                cryptoService::getNormalizedDesc);
     }
 
-    @Operation(description = "Get the crypto symbol with the highest normalized range for a specific day")
+    @Operation(description = "Get the crypto symbol with the highest normalized range for a specific day. " +
+            "Responses carry an ETag changing with the values of any crypto, answering If-None-Match with 304")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = String.class)))
     @GetMapping("/normalize-highest/{day}")
-    public CryptoType getHighestNormalizedRange(@PathVariable String day) {
+    public ResponseEntity<byte[]> getHighestNormalizedRange(@PathVariable String day, WebRequest request) {
         LocalDate localDate;
         try {
             localDate = LocalDate.parse(day);
@@ -47,16 +101,139 @@ public class CryptoController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not a valid date! Format should be YYYY-MM-DD");
         }
 
-        return Optional
-                .ofNullable(cryptoService.getHighestNormalizedRange(localDate))
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No available data for the given day."));
+        return responseCache.get(request, "normalize-highest/" + localDate, cryptoService.getDataVersion(),
+                () -> Optional
+                        .ofNullable(cryptoService.getHighestNormalizedRange(localDate))
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No available data for the given day.")));
+    }
+
+    @Operation(description = "Get the cryptos with the top normalized ranges over the days [from, to], " +
+            "both bounds being ISO-8601 dates like 2022-01-01, as a whole and for each day having values. " +
+            "Responses carry an ETag changing with the values of any crypto, answering If-None-Match with 304")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = RangeRanking.class)))
+    @GetMapping("/normalize-top")
+    public ResponseEntity<byte[]> getNormalizedRangeRanking(@RequestParam("from")
+                                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam("to")
+                                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                            @RequestParam(value = "size", defaultValue = "3") int size,
+                                                            WebRequest request) {
+        return responseCache.tag(request, cryptoService.getDataVersion(),
+                () -> cryptoService.getNormalizedRangeRanking(from, to, size));
+    }
+
+    @Operation(description = "Get the values of a certain crypto within the time range [from, to), " +
+            "both bounds being optional ISO-8601 instants like 2022-01-01T00:00:00Z")
+    @GetMapping("/prices/{crypto}")
+    public List<CsvCrypto> getPrices(@PathVariable CryptoType crypto,
+                                     @RequestParam(value = "from", required = false) Instant from,
+                                     @RequestParam(value = "to", required = false) Instant to) {
+        return cryptoService.getPrices(crypto, from, to);
+    }
+
+    @Operation(description = "Get the open/high/low/close candles of a certain crypto at the given interval (1h/1d/1w) " +
+            "within the time range [from, to), both bounds being optional ISO-8601 instants like 2022-01-01T00:00:00Z")
+    @GetMapping("/candles/{crypto}")
+    public List<Candle> getCandles(@PathVariable CryptoType crypto,
+                                   @RequestParam(value = "interval", defaultValue = "1d") String interval,
+                                   @RequestParam(value = "from", required = false) Instant from,
+                                   @RequestParam(value = "to", required = false) Instant to) {
+        final CandleInterval candleInterval = CandleInterval.fromCode(interval);
+        if (candleInterval == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not a valid interval! Supported intervals are 1h, 1d and 1w");
+        }
+
+        return cryptoService.getCandles(crypto, candleInterval, from, to);
+    }
+
+    @Operation(description = "Compare cryptos (all of them if none is given) over the time range [from, to), " +
+            "both bounds being optional ISO-8601 instants like 2022-01-01T00:00:00Z: the pairwise correlations " +
+            "of their returns, aligned on a grid of the given interval (1h/1d/1w), and their total and excess returns")
+    @GetMapping("/correlations")
+    public CorrelationMatrix getCorrelations(@RequestParam(value = "crypto", required = false) List<CryptoType> cryptos,
+                                             @RequestParam(value = "interval", defaultValue = "1d") String interval,
+                                             @RequestParam(value = "from", required = false) Instant from,
+                                             @RequestParam(value = "to", required = false) Instant to) {
+        final CandleInterval candleInterval = CandleInterval.fromCode(interval);
+        if (candleInterval == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not a valid interval! Supported intervals are 1h, 1d and 1w");
+        }
+
+        return cryptoService.getCorrelations(cryptos, candleInterval, from, to);
+    }
+
+    @Operation(description = "Get the normalized range, min/max, mean and standard deviation of a certain crypto " +
+            "over the sliding window (24h/7d/30d) ending with its newest value, or over all the windows if none is given")
+    @GetMapping("/windows/{crypto}")
+    public List<WindowStatistics> getWindowStatistics(@PathVariable CryptoType crypto,
+                                                      @RequestParam(value = "window", required = false) String window) {
+        RollingWindow rollingWindow = null;
+        if (window != null) {
+            rollingWindow = RollingWindow.fromCode(window);
+            if (rollingWindow == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not a valid window! Supported windows are 24h, 7d and 30d");
+            }
+        }
+
+        return cryptoService.getWindowStatistics(crypto, rollingWindow);
+    }
+
+    @Operation(description = "Answer many queries in one round trip, all of them against the same values: " +
+            "statistics of cryptos as per /stats/{crypto} ({\"symbol\": \"BTC\", \"type\": \"MAX\", " +
+            "\"from\": \"2022-01-01\", \"to\": \"2022-01-31\"}, only the symbol being required) " +
+            "and days as per /normalize-highest/{day}. A query that cannot be answered gets an error, " +
+            "without failing the others")
+    @PostMapping("/batch")
+    public BatchResult getBatch(@RequestBody BatchQuery batchQuery) {
+        return cryptoService.getBatch(batchQuery);
+    }
+
+    @Operation(description = "Stream Server-Sent Events with the oldest/newest/min/max values of the given cryptos " +
+            "(\"statistics\" events, all cryptos if none is given) and the normalized range ranking (\"ranking\" events), " +
+            "sent right away and then whenever new values are added. Slow clients only get the latest values.")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStatistics(@RequestParam(value = "crypto", required = false) List<CryptoType> cryptos) {
+        return statisticsStream.subscribe(cryptos);
     }
 
     @Operation(description = "Scale the service by adding new cryptos and/or adding data for more timeframes to existing cryptos. " +
-            "Important note: New cryptos are not supported unless they are first added in the system.")
+            "New cryptos are registered once their values are committed.")
     @PutMapping("/crypto-values")
     public void addCrypto(@RequestBody List<CsvCrypto> cryptoValues) {
         cryptoService.addCrypto(cryptoValues);
     }
 
+    @Operation(description = "Add a large amount of values, like a backfill of the price history, " +
+            "streamed as newline-delimited JSON objects of the same format as for /crypto-values. " +
+            "The body may be gzip compressed (Content-Encoding: gzip). Malformed lines are skipped and counted, " +
+            "new cryptos are registered.")
+    @PutMapping(value = "/crypto-values/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public IngestSummary addCryptoNdjson(InputStream body,
+                                         @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding)
+            throws IOException {
+        return bulkIngest.ingest(decode(body, contentEncoding), BulkFormat.NDJSON);
+    }
+
+    @Operation(description = "Add a large amount of values, like a backfill of the price history, " +
+            "streamed as CSV lines of the same format as the price files: timestamp,symbol,price with an optional header. " +
+            "The body may be gzip compressed (Content-Encoding: gzip). Malformed lines are skipped and counted, " +
+            "new cryptos are registered.")
+    @PutMapping(value = "/crypto-values/bulk", consumes = TEXT_CSV_VALUE)
+    public IngestSummary addCryptoCsv(InputStream body,
+                                      @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding)
+            throws IOException {
+        return bulkIngest.ingest(decode(body, contentEncoding), BulkFormat.CSV);
+    }
+
+    private static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        if (contentEncoding == null || contentEncoding.isBlank() || "identity".equalsIgnoreCase(contentEncoding.trim())) {
+            return body;
+        }
+        if ("gzip".equalsIgnoreCase(contentEncoding.trim())) {
+            return new GZIPInputStream(body, 64 * 1024);
+        }
+        throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Not a supported encoding! Supported encodings are gzip and identity");
+    }
+
 }
@@ -0,0 +1,120 @@
+package com.ionutzbaur.crypto.investment.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import com.ionutzbaur.crypto.investment.metrics.CryptoMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Serves JSON responses tagged with the version of the data they are computed from.
+ * A request whose {@code If-None-Match} holds the current {@code ETag} is answered with 304 Not Modified
+ * without computing anything, otherwise the serialized bytes of the last response for the same key are reused
+ * as long as the version did not change, so unchanged data is neither recomputed nor serialized again.
+ * Versions restart with the application, so the tags also carry a random id of this instance.
+ * One response is kept per key, up to a max number of keys: as the keys hold the parameters chosen by the clients,
+ * e.g. the ranges of days, the least recently used response is evicted beyond it.
+ */
+@Component
+public class JsonResponseCache {
+
+    static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final CryptoMetrics metrics;
+
+    private final String instanceId = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final Map<String, CachedResponse> responses;
+
+    public JsonResponseCache(ObjectMapper objectMapper, CryptoMetrics metrics,
+                             @Value("${crypto.response-cache.max-entries:" + DEFAULT_MAX_ENTRIES + "}") int maxEntries) {
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.responses = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * The version must be read before computing the body, so a concurrent change can only make
+     * the cached response newer than its tag, never older.
+     *
+     * @param request the current request, checked for a matching {@code If-None-Match}
+     * @param key identifies the response among the ones cached, e.g. the endpoint and its parameters
+     * @param version the version of the data the response is computed from
+     * @param body computes the response body, called only if the cached one is missing or outdated
+     * @return the serialized body with its {@code ETag}, or null once the request is answered with 304
+     */
+    public ResponseEntity<byte[]> get(WebRequest request, String key, long version, Supplier<?> body) {
+        final String eTag = eTag(version);
+        if (request.checkNotModified(eTag)) {
+            metrics.responseNotModified();
+            return null;
+        }
+
+        CachedResponse cached = responses.get(key);
+        final boolean hit = cached != null && cached.eTag().equals(eTag);
+        metrics.responseCache(hit);
+        if (!hit) {
+            cached = new CachedResponse(eTag, serialize(body.get()));
+            responses.put(key, cached);
+        }
+
+        return response(eTag, cached.json());
+    }
+
+    /**
+     * Like {@link #get} without keeping the response, for the ones too large to be worth their memory,
+     * e.g. computed over long ranges of days: only the requests holding the current {@code ETag} are spared.
+     *
+     * @param request the current request, checked for a matching {@code If-None-Match}
+     * @param version the version of the data the response is computed from
+     * @param body computes the response body, called unless the request is answered with 304
+     * @return the serialized body with its {@code ETag}, or null once the request is answered with 304
+     */
+    public ResponseEntity<byte[]> tag(WebRequest request, long version, Supplier<?> body) {
+        final String eTag = eTag(version);
+        if (request.checkNotModified(eTag)) {
+            metrics.responseNotModified();
+            return null;
+        }
+        return response(eTag, serialize(body.get()));
+    }
+
+    private String eTag(long version) {
+        return "\"" + instanceId + "-" + version + "\"";
+    }
+
+    private static ResponseEntity<byte[]> response(String eTag, byte[] json) {
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json);
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new CryptoInvestmentException(e);
+        }
+    }
+
+    private record CachedResponse(String eTag, byte[] json) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Many queries answered at once: statistics of cryptos and highest normalized ranges of days.
+ */
+public class BatchQuery {
+
+    private List<StatisticQuery> statistics;
+
+    private List<LocalDate> days;
+
+    public BatchQuery() {
+        // needed for JSON deserialization
+    }
+
+    public BatchQuery(List<StatisticQuery> statistics, List<LocalDate> days) {
+        this.statistics = statistics;
+        this.days = days;
+    }
+
+    /**
+     * @return the statistics to compute, empty if none is given
+     */
+    public List<StatisticQuery> getStatistics() {
+        return statistics != null ? statistics : List.of();
+    }
+
+    /**
+     * @return the days to find the crypto with the highest normalized range of, empty if none is given
+     */
+    public List<LocalDate> getDays() {
+        return days != null ? days : List.of();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchQuery{statistics=" + statistics + ", days=" + days + '}';
+    }
+}
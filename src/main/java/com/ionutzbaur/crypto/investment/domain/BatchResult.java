@@ -0,0 +1,39 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers to a {@link BatchQuery}, all computed from the same values.
+ */
+public class BatchResult {
+
+    private final List<StatisticResult> statistics;
+    private final Map<LocalDate, CryptoType> highestNormalizedRanges;
+
+    public BatchResult(List<StatisticResult> statistics, Map<LocalDate, CryptoType> highestNormalizedRanges) {
+        this.statistics = statistics;
+        this.highestNormalizedRanges = highestNormalizedRanges;
+    }
+
+    /**
+     * @return the outcome of each statistic query, in the order of the queries
+     */
+    public List<StatisticResult> getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return the crypto with the highest normalized range of each queried day, in the order of the days,
+     * null for the days without values
+     */
+    public Map<LocalDate, CryptoType> getHighestNormalizedRanges() {
+        return highestNormalizedRanges;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{statistics=" + statistics + ", highestNormalizedRanges=" + highestNormalizedRanges + '}';
+    }
+}
@@ -0,0 +1,17 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+/**
+ * Body formats of a bulk ingest, one value per line.
+ */
+public enum BulkFormat {
+
+    /**
+     * Newline-delimited JSON, each line being a {@link CsvCrypto} object.
+     */
+    NDJSON,
+
+    /**
+     * The {@code timestamp,symbol,price} format of the price files, optionally starting with a header line.
+     */
+    CSV
+}
@@ -0,0 +1,83 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Objects;
+
+public class Candle {
+
+    private final long timestamp;
+    private final BigDecimal open;
+    private final BigDecimal high;
+    private final BigDecimal low;
+    private final BigDecimal close;
+    private final long count;
+
+    public Candle(long timestamp, BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close, long count) {
+        this.timestamp = timestamp;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.count = count;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public BigDecimal getOpen() {
+        return open;
+    }
+
+    public BigDecimal getHigh() {
+        return high;
+    }
+
+    public BigDecimal getLow() {
+        return low;
+    }
+
+    public BigDecimal getClose() {
+        return close;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public Instant getPrettyTimestamp() {
+        return Instant.ofEpochMilli(timestamp);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Candle other)) {
+            return false;
+        }
+        return timestamp == other.timestamp
+                && count == other.count
+                && open.compareTo(other.open) == 0
+                && high.compareTo(other.high) == 0
+                && low.compareTo(other.low) == 0
+                && close.compareTo(other.close) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamp, open.stripTrailingZeros(), high.stripTrailingZeros(),
+                low.stripTrailingZeros(), close.stripTrailingZeros(), count);
+    }
+
+    @Override
+    public String toString() {
+        return "Candle{timestamp=" + timestamp + ", open=" + open + ", high=" + high +
+                ", low=" + low + ", close=" + close + ", count=" + count + '}';
+    }
+}
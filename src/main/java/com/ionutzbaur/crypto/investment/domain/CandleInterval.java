@@ -0,0 +1,31 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.util.Arrays;
+
+public enum CandleInterval {
+
+    HOUR("1h"),
+    DAY("1d"),
+    WEEK("1w");
+
+    private final String code;
+
+    CandleInterval(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @param code the short notation of the interval, like 1h
+     * @return the matching interval or null if there is none
+     */
+    public static CandleInterval fromCode(String code) {
+        return Arrays.stream(values())
+                .filter(interval -> interval.code.equalsIgnoreCase(code))
+                .findFirst()
+                .orElse(null);
+    }
+}
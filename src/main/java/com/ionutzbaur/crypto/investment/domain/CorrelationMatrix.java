@@ -0,0 +1,94 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+public class CorrelationMatrix {
+
+    private final String interval;
+    private final Long fromTimestamp;
+    private final Long toTimestamp;
+    private final int points;
+    private final List<SymbolPerformance> performances;
+    private final BigDecimal[][] correlations;
+
+    public CorrelationMatrix(String interval, Long fromTimestamp, Long toTimestamp, int points,
+                             List<SymbolPerformance> performances, BigDecimal[][] correlations) {
+        this.interval = interval;
+        this.fromTimestamp = fromTimestamp;
+        this.toTimestamp = toTimestamp;
+        this.points = points;
+        this.performances = performances;
+        this.correlations = correlations;
+    }
+
+    public String getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return the start of the first interval of the grid, null if there are no values
+     */
+    public Long getFromTimestamp() {
+        return fromTimestamp;
+    }
+
+    /**
+     * @return the exclusive end of the last interval of the grid, null if there are no values
+     */
+    public Long getToTimestamp() {
+        return toTimestamp;
+    }
+
+    /**
+     * @return the number of intervals of the grid
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * @return the performance of each compared crypto, in the order of the rows and columns of the matrix
+     */
+    public List<SymbolPerformance> getPerformances() {
+        return performances;
+    }
+
+    /**
+     * @return the symmetric matrix of the Pearson correlations of the returns of each pair of cryptos,
+     * null where a pair has less than two common returns or one of them does not vary
+     */
+    public BigDecimal[][] getCorrelations() {
+        return correlations;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CorrelationMatrix other)) {
+            return false;
+        }
+        return interval.equals(other.interval)
+                && Objects.equals(fromTimestamp, other.fromTimestamp)
+                && Objects.equals(toTimestamp, other.toTimestamp)
+                && points == other.points
+                && performances.equals(other.performances)
+                && Arrays.deepEquals(correlations, other.correlations);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(interval, fromTimestamp, toTimestamp, points, performances, Arrays.deepHashCode(correlations));
+    }
+
+    @Override
+    public String toString() {
+        return "CorrelationMatrix{interval=" + interval + ", fromTimestamp=" + fromTimestamp +
+                ", toTimestamp=" + toTimestamp + ", points=" + points + ", performances=" + performances +
+                ", correlations=" + Arrays.deepToString(correlations) + '}';
+    }
+}
@@ -0,0 +1,66 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.util.Objects;
+
+public class CryptoStatistics {
+
+    private final CryptoType symbol;
+    private final CsvCrypto oldest;
+    private final CsvCrypto newest;
+    private final CsvCrypto min;
+    private final CsvCrypto max;
+
+    public CryptoStatistics(CryptoType symbol, CsvCrypto oldest, CsvCrypto newest, CsvCrypto min, CsvCrypto max) {
+        this.symbol = symbol;
+        this.oldest = oldest;
+        this.newest = newest;
+        this.min = min;
+        this.max = max;
+    }
+
+    public CryptoType getSymbol() {
+        return symbol;
+    }
+
+    public CsvCrypto getOldest() {
+        return oldest;
+    }
+
+    public CsvCrypto getNewest() {
+        return newest;
+    }
+
+    public CsvCrypto getMin() {
+        return min;
+    }
+
+    public CsvCrypto getMax() {
+        return max;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CryptoStatistics other)) {
+            return false;
+        }
+        return symbol == other.symbol
+                && Objects.equals(oldest, other.oldest)
+                && Objects.equals(newest, other.newest)
+                && Objects.equals(min, other.min)
+                && Objects.equals(max, other.max);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(symbol, oldest, newest, min, max);
+    }
+
+    @Override
+    public String toString() {
+        return "CryptoStatistics{symbol=" + symbol + ", oldest=" + oldest + ", newest=" + newest +
+                ", min=" + min + ", max=" + max + '}';
+    }
+}
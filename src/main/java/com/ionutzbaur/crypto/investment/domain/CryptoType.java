@@ -1,12 +1,199 @@
 package com.ionutzbaur.crypto.investment.domain;
 
-public enum CryptoType {
-
-    BTC,
-    DOGE,
-    ETH,
-    LTC,
-    XRP,
-    // TODO: add here extra new crypto type before trying to add it through CryptoService, like below
-    NEW_CRYPTO
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Crypto symbol, registered at runtime instead of being hard-coded.
+ * Symbols are interned: there is a single instance per name, so they can be compared by identity,
+ * and each one gets a dense {@link #index()} in registration order, to key per-crypto structures by array index.
+ * Names are upper case letters, digits and underscores, since they are also part of the price file names.
+ * Symbols read from requests are only looked up, see {@link #parse}: an unknown one stays unregistered,
+ * without index, until its values are committed, so failed requests never take up one of the {@link #MAX_SYMBOLS}.
+ */
+public final class CryptoType implements Comparable<CryptoType> {
+
+    public static final int MAX_SYMBOLS = 4096;
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Z0-9_]{1,32}");
+
+    private static final int UNREGISTERED = -1;
+
+    private static final Map<String, CryptoType> BY_NAME = new ConcurrentHashMap<>();
+    private static volatile CryptoType[] byIndex = new CryptoType[0];
+
+    private final String name;
+    private final int index;
+
+    private CryptoType(String name, int index) {
+        this.name = name;
+        this.index = index;
+    }
+
+    /**
+     * Looks up a symbol, registering it if new.
+     *
+     * @param name the symbol name, case-insensitive
+     * @return the single instance of the symbol
+     * @throws CryptoInvestmentException if the name is not a valid symbol or too many symbols are registered
+     */
+    public static CryptoType register(String name) {
+        final CryptoType cryptoType = find(name);
+        if (cryptoType != null) {
+            return cryptoType;
+        }
+
+        final String canonicalName = canonicalName(name);
+        synchronized (BY_NAME) {
+            final CryptoType registered = BY_NAME.get(canonicalName);
+            if (registered != null) {
+                return registered;
+            }
+            if (byIndex.length == MAX_SYMBOLS) {
+                throw new CryptoInvestmentException(String.format("Cannot register more than %d cryptos", MAX_SYMBOLS));
+            }
+
+            final CryptoType newCryptoType = new CryptoType(canonicalName, byIndex.length);
+            final CryptoType[] newByIndex = Arrays.copyOf(byIndex, byIndex.length + 1);
+            newByIndex[newCryptoType.index] = newCryptoType;
+            byIndex = newByIndex; // published before the name, so an index is never looked up before it exists
+            BY_NAME.put(canonicalName, newCryptoType);
+            return newCryptoType;
+        }
+    }
+
+    /**
+     * Registers a symbol returned by {@link #parse}.
+     *
+     * @param cryptoType a registered or unregistered symbol
+     * @return the single instance of the symbol
+     * @throws CryptoInvestmentException if too many symbols are registered
+     */
+    public static CryptoType register(CryptoType cryptoType) {
+        return cryptoType.isRegistered() ? cryptoType : register(cryptoType.name);
+    }
+
+    /**
+     * Looks up a symbol without registering it, also used to deserialize request bodies.
+     *
+     * @param name the symbol name, case-insensitive
+     * @return the registered symbol, or an unregistered one if unknown
+     * @throws CryptoInvestmentException if the name is not a valid symbol
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static CryptoType parse(String name) {
+        final CryptoType cryptoType = find(name);
+        return cryptoType != null ? cryptoType : new CryptoType(canonicalName(name), UNREGISTERED);
+    }
+
+    private static String canonicalName(String name) {
+        final String canonicalName = name == null ? null : name.toUpperCase(Locale.ROOT);
+        if (canonicalName == null || !NAME_PATTERN.matcher(canonicalName).matches()) {
+            throw new CryptoInvestmentException(String.format("Not a valid crypto symbol: %s", name));
+        }
+        return canonicalName;
+    }
+
+    /**
+     * @param name the symbol name, case-insensitive
+     * @return the registered symbol or null if unknown
+     */
+    public static CryptoType find(String name) {
+        if (name == null) {
+            return null;
+        }
+        final CryptoType cryptoType = BY_NAME.get(name);
+        return cryptoType != null ? cryptoType : BY_NAME.get(name.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Looks up a registered symbol, also used to convert request path variables.
+     *
+     * @param name the symbol name, case-insensitive
+     * @return the registered symbol
+     * @throws IllegalArgumentException if the symbol is unknown
+     */
+    public static CryptoType valueOf(String name) {
+        final CryptoType cryptoType = find(name);
+        if (cryptoType == null) {
+            throw new IllegalArgumentException(String.format("Unknown crypto: %s", name));
+        }
+        return cryptoType;
+    }
+
+    /**
+     * @param index a dense index
+     * @return the symbol registered with the given index
+     */
+    public static CryptoType ofIndex(int index) {
+        return byIndex[index];
+    }
+
+    /**
+     * @return all the registered symbols, in index order
+     */
+    public static List<CryptoType> values() {
+        return List.of(byIndex);
+    }
+
+    /**
+     * @return the number of registered symbols, every index is lower than that
+     */
+    public static int count() {
+        return byIndex.length;
+    }
+
+    @JsonValue
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the dense index of the symbol
+     * @throws IllegalStateException if the symbol is not registered
+     */
+    public int index() {
+        if (index == UNREGISTERED) {
+            throw new IllegalStateException(String.format("Crypto not registered: %s", name));
+        }
+        return index;
+    }
+
+    /**
+     * @return whether the symbol is registered, otherwise it was only parsed and has no index
+     */
+    public boolean isRegistered() {
+        return index != UNREGISTERED;
+    }
+
+    @Override
+    public int compareTo(CryptoType other) {
+        return name.compareTo(other.name);
+    }
+
+    /**
+     * Registered symbols are single instances, an unregistered one is equal to the symbols of the same name.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof CryptoType other && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
 }
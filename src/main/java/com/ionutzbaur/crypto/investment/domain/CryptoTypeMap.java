@@ -0,0 +1,80 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Map keyed by {@link CryptoType}, backed by an array indexed by {@link CryptoType#index()}.
+ * Iteration follows the index order. Not thread-safe.
+ *
+ * @param <V> the type of the values
+ */
+public final class CryptoTypeMap<V> {
+
+    private Object[] values = new Object[0];
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public V get(CryptoType cryptoType) {
+        final int index = cryptoType.index();
+        return index < values.length ? (V) values[index] : null;
+    }
+
+    public boolean containsKey(CryptoType cryptoType) {
+        return get(cryptoType) != null;
+    }
+
+    /**
+     * @param cryptoType the key
+     * @param value the value, not null
+     * @return the previous value or null
+     */
+    public V put(CryptoType cryptoType, V value) {
+        final int index = cryptoType.index();
+        if (index >= values.length) {
+            values = Arrays.copyOf(values, Math.max(index + 1, CryptoType.count()));
+        }
+        final V previous = get(cryptoType);
+        values[index] = value;
+        if (previous == null) {
+            size++;
+        }
+        return previous;
+    }
+
+    public V computeIfAbsent(CryptoType cryptoType, Function<CryptoType, V> mappingFunction) {
+        V value = get(cryptoType);
+        if (value == null) {
+            value = mappingFunction.apply(cryptoType);
+            put(cryptoType, value);
+        }
+        return value;
+    }
+
+    public V remove(CryptoType cryptoType) {
+        final V previous = get(cryptoType);
+        if (previous != null) {
+            values[cryptoType.index()] = null;
+            size--;
+        }
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<CryptoType, V> action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                action.accept(CryptoType.ofIndex(i), (V) values[i]);
+            }
+        }
+    }
+}
@@ -1,22 +1,27 @@
 package com.ionutzbaur.crypto.investment.domain;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.opencsv.bean.CsvBindByName;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Objects;
 
 public class CsvCrypto {
 
-    @CsvBindByName
     private Long timestamp;
-
-    @CsvBindByName
     private CryptoType symbol;
-
-    @CsvBindByName
     private BigDecimal price;
 
+    public CsvCrypto() {
+        // needed for JSON deserialization
+    }
+
+    public CsvCrypto(Long timestamp, CryptoType symbol, BigDecimal price) {
+        this.timestamp = timestamp;
+        this.symbol = symbol;
+        this.price = price;
+    }
+
     public Long getTimestamp() {
         return timestamp;
     }
@@ -33,4 +38,27 @@ public class CsvCrypto {
     public Instant getPrettyTimestamp() {
         return Instant.ofEpochMilli(timestamp);
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CsvCrypto other)) {
+            return false;
+        }
+        return Objects.equals(timestamp, other.timestamp)
+                && Objects.equals(symbol, other.symbol)
+                && (price == null ? other.price == null : other.price != null && price.compareTo(other.price) == 0);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamp, symbol, price == null ? null : price.stripTrailingZeros());
+    }
+
+    @Override
+    public String toString() {
+        return "CsvCrypto{timestamp=" + timestamp + ", symbol=" + symbol + ", price=" + price + '}';
+    }
 }
@@ -0,0 +1,51 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The cryptos with the highest normalized ranges within a single day.
+ */
+public class DayRanking {
+
+    private final LocalDate day;
+    private final List<NormalizedRange> ranking;
+
+    public DayRanking(LocalDate day, List<NormalizedRange> ranking) {
+        this.day = day;
+        this.ranking = ranking;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    /**
+     * @return the cryptos with values in the day, sorted descending by their normalized range
+     */
+    public List<NormalizedRange> getRanking() {
+        return ranking;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DayRanking other)) {
+            return false;
+        }
+        return day.equals(other.day) && ranking.equals(other.ranking);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(day, ranking);
+    }
+
+    @Override
+    public String toString() {
+        return "DayRanking{day=" + day + ", ranking=" + ranking + '}';
+    }
+}
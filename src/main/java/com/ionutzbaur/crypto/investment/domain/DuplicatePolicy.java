@@ -0,0 +1,22 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+/**
+ * How values sharing the timestamp of another value of the same crypto are handled.
+ */
+public enum DuplicatePolicy {
+
+    /**
+     * Every value is kept, values with equal timestamps staying in the order they were added.
+     */
+    KEEP,
+
+    /**
+     * The value added last replaces the ones with the same timestamp.
+     */
+    LAST_WRITE_WINS,
+
+    /**
+     * The value added first is kept, later ones with the same timestamp are rejected.
+     */
+    REJECT
+}
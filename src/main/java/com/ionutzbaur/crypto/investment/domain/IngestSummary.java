@@ -0,0 +1,59 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.util.Map;
+
+/**
+ * Outcome of a bulk ingest.
+ */
+public class IngestSummary {
+
+    private final long rows;
+    private final long malformedRows;
+    private final long bytes;
+    private final Map<CryptoType, Long> rowsByCrypto;
+    private final long durationMillis;
+
+    public IngestSummary(long rows, long malformedRows, long bytes, Map<CryptoType, Long> rowsByCrypto,
+                         long durationMillis) {
+        this.rows = rows;
+        this.malformedRows = malformedRows;
+        this.bytes = bytes;
+        this.rowsByCrypto = rowsByCrypto;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return the number of values added
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of skipped lines that could not be decoded
+     */
+    public long getMalformedRows() {
+        return malformedRows;
+    }
+
+    /**
+     * @return the size of the body, uncompressed
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public Map<CryptoType, Long> getRowsByCrypto() {
+        return rowsByCrypto;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestSummary{rows=" + rows + ", malformedRows=" + malformedRows + ", bytes=" + bytes +
+                ", rowsByCrypto=" + rowsByCrypto + ", durationMillis=" + durationMillis + '}';
+    }
+}
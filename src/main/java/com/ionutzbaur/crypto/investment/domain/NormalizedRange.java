@@ -0,0 +1,61 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class NormalizedRange {
+
+    private final CryptoType symbol;
+    private final BigDecimal normalizedRange;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+
+    public NormalizedRange(CryptoType symbol, BigDecimal normalizedRange, BigDecimal minPrice, BigDecimal maxPrice) {
+        this.symbol = symbol;
+        this.normalizedRange = normalizedRange;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    public CryptoType getSymbol() {
+        return symbol;
+    }
+
+    public BigDecimal getNormalizedRange() {
+        return normalizedRange;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NormalizedRange other)) {
+            return false;
+        }
+        return symbol == other.symbol
+                && normalizedRange.compareTo(other.normalizedRange) == 0
+                && minPrice.compareTo(other.minPrice) == 0
+                && maxPrice.compareTo(other.maxPrice) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(symbol, normalizedRange.stripTrailingZeros(),
+                minPrice.stripTrailingZeros(), maxPrice.stripTrailingZeros());
+    }
+
+    @Override
+    public String toString() {
+        return "NormalizedRange{symbol=" + symbol + ", normalizedRange=" + normalizedRange +
+                ", minPrice=" + minPrice + ", maxPrice=" + maxPrice + '}';
+    }
+}
@@ -0,0 +1,72 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The cryptos with the highest normalized ranges over a range of days, as a whole and for each of its days.
+ */
+public class RangeRanking {
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final List<NormalizedRange> ranking;
+    private final List<DayRanking> days;
+
+    public RangeRanking(LocalDate from, LocalDate to, List<NormalizedRange> ranking, List<DayRanking> days) {
+        this.from = from;
+        this.to = to;
+        this.ranking = ranking;
+        this.days = days;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the last day of the range, included
+     */
+    public LocalDate getTo() {
+        return to;
+    }
+
+    /**
+     * @return the cryptos with values in the range, sorted descending by their normalized range over all its days
+     */
+    public List<NormalizedRange> getRanking() {
+        return ranking;
+    }
+
+    /**
+     * @return the ranking of each day of the range having values, sorted by day
+     */
+    public List<DayRanking> getDays() {
+        return days;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RangeRanking other)) {
+            return false;
+        }
+        return from.equals(other.from)
+                && to.equals(other.to)
+                && ranking.equals(other.ranking)
+                && days.equals(other.days);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(from, to, ranking, days);
+    }
+
+    @Override
+    public String toString() {
+        return "RangeRanking{from=" + from + ", to=" + to + ", ranking=" + ranking + ", days=" + days + '}';
+    }
+}
@@ -0,0 +1,38 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+public enum RollingWindow {
+
+    DAY("24h", Duration.ofHours(24)),
+    WEEK("7d", Duration.ofDays(7)),
+    MONTH("30d", Duration.ofDays(30));
+
+    private final String code;
+    private final Duration duration;
+
+    RollingWindow(String code, Duration duration) {
+        this.code = code;
+        this.duration = duration;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * @param code the short notation of the window, like 24h
+     * @return the matching window or null if there is none
+     */
+    public static RollingWindow fromCode(String code) {
+        return Arrays.stream(values())
+                .filter(window -> window.code.equalsIgnoreCase(code))
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -0,0 +1,78 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * A statistic of a crypto requested as part of a {@link BatchQuery}, as per {@code /stats/{crypto}}.
+ */
+public class StatisticQuery {
+
+    private String symbol;
+
+    private StatisticType type;
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    public StatisticQuery() {
+        // needed for JSON deserialization
+    }
+
+    public StatisticQuery(String symbol, StatisticType type, LocalDate from, LocalDate to) {
+        this.symbol = symbol;
+        this.type = type;
+        this.from = from;
+        this.to = to;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the statistic to compute, {@link StatisticType#NEWEST} if none is given
+     */
+    public StatisticType getType() {
+        return type != null ? type : StatisticType.NEWEST;
+    }
+
+    /**
+     * @return the first day, or null for the oldest one
+     */
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the last day, included, or null for the newest one
+     */
+    public LocalDate getTo() {
+        return to;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StatisticQuery other)) {
+            return false;
+        }
+        return Objects.equals(symbol, other.symbol)
+                && getType() == other.getType()
+                && Objects.equals(from, other.from)
+                && Objects.equals(to, other.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(symbol, getType(), from, to);
+    }
+
+    @Override
+    public String toString() {
+        return "StatisticQuery{symbol=" + symbol + ", type=" + getType() + ", from=" + from + ", to=" + to + '}';
+    }
+}
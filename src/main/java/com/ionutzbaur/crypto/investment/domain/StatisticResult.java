@@ -0,0 +1,60 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.util.Objects;
+
+/**
+ * Outcome of a {@link StatisticQuery}: either the value matching the statistic or the reason it cannot be computed.
+ */
+public class StatisticResult {
+
+    private final StatisticQuery query;
+    private final CsvCrypto value;
+    private final String error;
+
+    public StatisticResult(StatisticQuery query, CsvCrypto value, String error) {
+        this.query = query;
+        this.value = value;
+        this.error = error;
+    }
+
+    public StatisticQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * @return the info to match the requested statistic, null if it cannot be computed
+     */
+    public CsvCrypto getValue() {
+        return value;
+    }
+
+    /**
+     * @return why the statistic cannot be computed, null if it was
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StatisticResult other)) {
+            return false;
+        }
+        return query.equals(other.query)
+                && Objects.equals(value, other.value)
+                && Objects.equals(error, other.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(query, value, error);
+    }
+
+    @Override
+    public String toString() {
+        return "StatisticResult{query=" + query + ", value=" + value + ", error=" + error + '}';
+    }
+}
@@ -1,9 +1,28 @@
 package com.ionutzbaur.crypto.investment.domain;
 
+/**
+ * Statistic of the prices of a crypto. The oldest, newest, min and max values are values of the crypto,
+ * the other statistics are derived from its prices and carry the timestamp of the newest value they cover.
+ */
 public enum StatisticType {
 
     OLDEST,
     NEWEST,
     MIN,
-    MAX
+    MAX,
+    MEAN,
+    /**
+     * Population standard deviation.
+     */
+    STDDEV,
+    /**
+     * Time-weighted average price, each price weighing the time until the next value.
+     */
+    TWAP,
+    /**
+     * 5th percentile by nearest rank, estimated within 0.5%, as are the other percentiles.
+     */
+    P5,
+    MEDIAN,
+    P95
 }
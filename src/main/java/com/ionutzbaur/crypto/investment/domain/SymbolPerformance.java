@@ -0,0 +1,90 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class SymbolPerformance {
+
+    private final CryptoType symbol;
+    private final BigDecimal firstPrice;
+    private final BigDecimal lastPrice;
+    private final BigDecimal totalReturn;
+    private final BigDecimal excessReturn;
+    private final int returnCount;
+
+    public SymbolPerformance(CryptoType symbol, BigDecimal firstPrice, BigDecimal lastPrice,
+                             BigDecimal totalReturn, BigDecimal excessReturn, int returnCount) {
+        this.symbol = symbol;
+        this.firstPrice = firstPrice;
+        this.lastPrice = lastPrice;
+        this.totalReturn = totalReturn;
+        this.excessReturn = excessReturn;
+        this.returnCount = returnCount;
+    }
+
+    public CryptoType getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the first price within the time range, null if the crypto has none
+     */
+    public BigDecimal getFirstPrice() {
+        return firstPrice;
+    }
+
+    /**
+     * @return the last price within the time range, null if the crypto has none
+     */
+    public BigDecimal getLastPrice() {
+        return lastPrice;
+    }
+
+    /**
+     * @return the relative change from the first to the last price
+     */
+    public BigDecimal getTotalReturn() {
+        return totalReturn;
+    }
+
+    /**
+     * @return the total return minus the average total return of all the compared cryptos
+     */
+    public BigDecimal getExcessReturn() {
+        return excessReturn;
+    }
+
+    /**
+     * @return the number of grid points the crypto has a return for
+     */
+    public int getReturnCount() {
+        return returnCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SymbolPerformance other)) {
+            return false;
+        }
+        return symbol == other.symbol
+                && Objects.equals(firstPrice, other.firstPrice)
+                && Objects.equals(lastPrice, other.lastPrice)
+                && Objects.equals(totalReturn, other.totalReturn)
+                && Objects.equals(excessReturn, other.excessReturn)
+                && returnCount == other.returnCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(symbol, firstPrice, lastPrice, totalReturn, excessReturn, returnCount);
+    }
+
+    @Override
+    public String toString() {
+        return "SymbolPerformance{symbol=" + symbol + ", firstPrice=" + firstPrice + ", lastPrice=" + lastPrice +
+                ", totalReturn=" + totalReturn + ", excessReturn=" + excessReturn + ", returnCount=" + returnCount + '}';
+    }
+}
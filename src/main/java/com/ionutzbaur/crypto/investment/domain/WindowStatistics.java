@@ -0,0 +1,108 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class WindowStatistics {
+
+    private final CryptoType symbol;
+    private final String window;
+    private final long fromTimestamp;
+    private final long toTimestamp;
+    private final long count;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final BigDecimal normalizedRange;
+    private final BigDecimal mean;
+    private final BigDecimal standardDeviation;
+
+    public WindowStatistics(CryptoType symbol, String window, long fromTimestamp, long toTimestamp, long count,
+                            BigDecimal minPrice, BigDecimal maxPrice, BigDecimal normalizedRange,
+                            BigDecimal mean, BigDecimal standardDeviation) {
+        this.symbol = symbol;
+        this.window = window;
+        this.fromTimestamp = fromTimestamp;
+        this.toTimestamp = toTimestamp;
+        this.count = count;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.normalizedRange = normalizedRange;
+        this.mean = mean;
+        this.standardDeviation = standardDeviation;
+    }
+
+    public CryptoType getSymbol() {
+        return symbol;
+    }
+
+    public String getWindow() {
+        return window;
+    }
+
+    public long getFromTimestamp() {
+        return fromTimestamp;
+    }
+
+    public long getToTimestamp() {
+        return toTimestamp;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public BigDecimal getNormalizedRange() {
+        return normalizedRange;
+    }
+
+    public BigDecimal getMean() {
+        return mean;
+    }
+
+    public BigDecimal getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof WindowStatistics other)) {
+            return false;
+        }
+        return symbol == other.symbol
+                && window.equals(other.window)
+                && fromTimestamp == other.fromTimestamp
+                && toTimestamp == other.toTimestamp
+                && count == other.count
+                && minPrice.compareTo(other.minPrice) == 0
+                && maxPrice.compareTo(other.maxPrice) == 0
+                && normalizedRange.compareTo(other.normalizedRange) == 0
+                && mean.compareTo(other.mean) == 0
+                && standardDeviation.compareTo(other.standardDeviation) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(symbol, window, fromTimestamp, toTimestamp, count,
+                minPrice.stripTrailingZeros(), maxPrice.stripTrailingZeros(), normalizedRange.stripTrailingZeros(),
+                mean.stripTrailingZeros(), standardDeviation.stripTrailingZeros());
+    }
+
+    @Override
+    public String toString() {
+        return "WindowStatistics{symbol=" + symbol + ", window=" + window + ", fromTimestamp=" + fromTimestamp +
+                ", toTimestamp=" + toTimestamp + ", count=" + count + ", minPrice=" + minPrice +
+                ", maxPrice=" + maxPrice + ", normalizedRange=" + normalizedRange + ", mean=" + mean +
+                ", standardDeviation=" + standardDeviation + '}';
+    }
+}
@@ -0,0 +1,12 @@
+package com.ionutzbaur.crypto.investment.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class DuplicateTimestampException extends CryptoInvestmentException {
+
+    public DuplicateTimestampException(String message) {
+        super(message);
+    }
+}
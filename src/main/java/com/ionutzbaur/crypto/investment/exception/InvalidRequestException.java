@@ -0,0 +1,12 @@
+package com.ionutzbaur.crypto.investment.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidRequestException extends CryptoInvestmentException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
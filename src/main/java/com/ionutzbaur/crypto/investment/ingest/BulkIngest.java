@@ -0,0 +1,219 @@
+package com.ionutzbaur.crypto.investment.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.ionutzbaur.crypto.investment.domain.BulkFormat;
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.IngestSummary;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import com.ionutzbaur.crypto.investment.util.CsvPriceReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Streams large bodies of values into the {@link CryptoIngestPipeline}, for backfills too big to be sent
+ * as a single JSON array.
+ * The body is decoded line by line and submitted in chunks, waiting for the oldest chunk to be committed
+ * once the max number of chunks is in flight. Reading stops meanwhile, so the memory used is bounded
+ * whatever the size of the body and a client sending faster than the values are written is slowed down
+ * by the flow control of its connection.
+ * Lines that cannot be decoded are skipped and counted. Cryptos seen for the first time are registered once
+ * their values are committed.
+ * The values committed before a failure stay added.
+ */
+@Component
+public class BulkIngest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkIngest.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CryptoIngestPipeline ingestPipeline;
+    private final ObjectReader cryptoReader;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    public BulkIngest(CryptoIngestPipeline ingestPipeline, ObjectMapper objectMapper,
+                      @Value("${crypto.ingest.bulk.chunk-size:10000}") int chunkSize,
+                      @Value("${crypto.ingest.bulk.max-chunks-in-flight:2}") int maxChunksInFlight) {
+        this.ingestPipeline = ingestPipeline;
+        this.cryptoReader = objectMapper.readerFor(CsvCrypto.class);
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    /**
+     * Adds all the values of the given body, returning once they are written to the CSV files and visible to queries.
+     *
+     * @param inputStream the body, uncompressed, not closed by this method
+     * @param format the format of the body
+     * @return counters of what was added
+     * @throws CryptoInvestmentException if reading the body or writing the values fails
+     */
+    public IngestSummary ingest(InputStream inputStream, BulkFormat format) {
+        final long start = System.nanoTime();
+        final CountingInputStream countingStream = new CountingInputStream(inputStream);
+        final Chunks chunks = new Chunks();
+        final long malformedRows;
+        try {
+            malformedRows = switch (format) {
+                case NDJSON -> readNdjson(countingStream, chunks);
+                case CSV -> readCsv(countingStream, chunks);
+            };
+        } catch (IOException e) {
+            throw new CryptoInvestmentException(e);
+        }
+        chunks.finish();
+
+        final IngestSummary summary = new IngestSummary(chunks.rows, malformedRows, countingStream.count,
+                chunks.rowsByCrypto, (System.nanoTime() - start) / 1_000_000);
+        LOGGER.info("Bulk ingest completed: {}", summary);
+        return summary;
+    }
+
+    private long readNdjson(InputStream inputStream, Chunks chunks) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8),
+                BUFFER_SIZE);
+        long malformedRows = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            final CsvCrypto csvCrypto = decode(line);
+            if (csvCrypto == null) {
+                malformedRows++;
+            } else {
+                chunks.add(csvCrypto);
+            }
+        }
+        return malformedRows;
+    }
+
+    private CsvCrypto decode(String line) {
+        try {
+            final CsvCrypto csvCrypto = cryptoReader.readValue(line);
+            if (csvCrypto == null || csvCrypto.getTimestamp() == null || csvCrypto.getSymbol() == null
+                    || csvCrypto.getPrice() == null) {
+                return null;
+            }
+            return csvCrypto;
+        } catch (JsonProcessingException e) {
+            return null; // including invalid symbols
+        }
+    }
+
+    private static long readCsv(InputStream inputStream, Chunks chunks) throws IOException {
+        final CsvPriceReader reader = new CsvPriceReader(BulkIngest::parseSymbol);
+        return reader.read(inputStream, (symbol, timestamp, price, decimals) ->
+                        chunks.add(new CsvCrypto(timestamp, symbol, BigDecimal.valueOf(price, decimals))))
+                .malformedRows();
+    }
+
+    private static CryptoType parseSymbol(String name) {
+        try {
+            return CryptoType.parse(name);
+        } catch (CryptoInvestmentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Submits the decoded values in chunks, keeping at most the max number of chunks in flight.
+     */
+    private final class Chunks {
+
+        private final Deque<InFlightChunk> inFlight = new ArrayDeque<>();
+        private List<CsvCrypto> chunk = new ArrayList<>(chunkSize);
+
+        private long rows;
+        private final Map<CryptoType, Long> rowsByCrypto = new TreeMap<>();
+
+        void add(CsvCrypto csvCrypto) {
+            chunk.add(csvCrypto);
+            if (chunk.size() == chunkSize) {
+                submit();
+            }
+        }
+
+        /**
+         * Submits the last partial chunk, then waits for all the chunks in flight.
+         */
+        void finish() {
+            submit();
+            while (!inFlight.isEmpty()) {
+                awaitOldest();
+            }
+        }
+
+        private void submit() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            if (inFlight.size() == maxChunksInFlight) {
+                awaitOldest();
+            }
+            // the submitted list is owned by the pipeline until committed
+            inFlight.addLast(new InFlightChunk(chunk, ingestPipeline.submit(chunk)));
+            chunk = new ArrayList<>(chunkSize);
+        }
+
+        private void awaitOldest() {
+            final InFlightChunk oldest = inFlight.removeFirst();
+            CryptoIngestPipeline.await(oldest.completion());
+            rows += oldest.cryptoValues().size();
+            for (CsvCrypto csvCrypto : oldest.cryptoValues()) {
+                rowsByCrypto.merge(csvCrypto.getSymbol(), 1L, Long::sum);
+            }
+        }
+    }
+
+    private record InFlightChunk(List<CsvCrypto> cryptoValues, CompletableFuture<Void> completion) {
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package com.ionutzbaur.crypto.investment.ingest;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CryptoTypeMap;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.DuplicatePolicy;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import com.ionutzbaur.crypto.investment.exception.DuplicateTimestampException;
+import com.ionutzbaur.crypto.investment.exception.InvalidRequestException;
+import com.ionutzbaur.crypto.investment.metrics.CryptoMetrics;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import com.ionutzbaur.crypto.investment.util.CsvCryptoUtil;
+import com.ionutzbaur.crypto.investment.util.PriceAppender;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write path for new crypto values.
+ * Submitted batches are queued and committed by a single thread: the batches waiting in the queue are coalesced
+ * per {@link CryptoType}, written with one long-lived writer per crypto, flushed once and only then made visible
+ * in the {@link CryptoPriceStore}. A group is committed as soon as it reaches the max batch size or the max latency
+ * elapses after its first batch, so concurrent requests never interleave lines and share the cost of a flush.
+ * Values are written to crash-safe append logs, each flush being forced to the storage device. Once the log of
+ * a crypto exceeds the compaction threshold, it is sealed and folded into the CSV file of the crypto on a background
+ * thread while the next commits go to a new log, so compactions never delay the ingest.
+ * When the store rejects duplicate timestamps, a batch holding a value whose timestamp is already taken fails
+ * with a {@link DuplicateTimestampException} before anything of it is written, as does a batch holding a price
+ * out of range once scaled to the decimals of the history, with an {@link InvalidRequestException}.
+ * The cryptos of a group are committed independently: a batch holding values of several cryptos fails if any of
+ * them cannot be written, the values of the other cryptos being committed nonetheless.
+ * Cryptos without values yet are registered by the commit writing their first values, see {@link CryptoType#parse}.
+ */
+@Component
+public class CryptoIngestPipeline implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CryptoIngestPipeline.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    /**
+     * Opens the writer of a crypto's CSV file.
+     */
+    @FunctionalInterface
+    interface WriterFactory {
+
+        PriceAppender open(CryptoType cryptoType) throws IOException;
+    }
+
+    private final CryptoPriceStore priceStore;
+    private final WriterFactory writerFactory;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+    private final long compactionThreshold;
+    private final CryptoMetrics metrics;
+
+    private final BlockingQueue<PendingBatch> queue = new LinkedBlockingQueue<>();
+    private final CryptoTypeMap<PriceAppender> writers = new CryptoTypeMap<>();
+    private final Thread committer;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(Thread.ofPlatform()
+            .name("crypto-compaction")
+            .daemon()
+            .factory());
+
+    private volatile boolean running = true;
+
+    @Autowired
+    public CryptoIngestPipeline(CryptoPriceStore priceStore,
+                                @Value("${crypto.ingest.max-batch-size:10000}") int maxBatchSize,
+                                @Value("${crypto.ingest.max-latency:2ms}") Duration maxLatency,
+                                @Value("${crypto.ingest.compaction-threshold:64MB}") DataSize compactionThreshold,
+                                CryptoMetrics metrics) {
+        this(priceStore, cryptoType -> CsvCryptoUtil.openLogWriter(priceStore.getDataDirectory(), cryptoType),
+                maxBatchSize, maxLatency, compactionThreshold.toBytes(), metrics);
+    }
+
+    /**
+     * Writes with the given factory, without compaction.
+     */
+    CryptoIngestPipeline(CryptoPriceStore priceStore, WriterFactory writerFactory, int maxBatchSize, Duration maxLatency) {
+        this(priceStore, writerFactory, maxBatchSize, maxLatency, CryptoMetrics.noop());
+    }
+
+    CryptoIngestPipeline(CryptoPriceStore priceStore, WriterFactory writerFactory, int maxBatchSize, Duration maxLatency,
+                         CryptoMetrics metrics) {
+        this(priceStore, writerFactory, maxBatchSize, maxLatency, Long.MAX_VALUE, metrics);
+    }
+
+    private CryptoIngestPipeline(CryptoPriceStore priceStore, WriterFactory writerFactory, int maxBatchSize,
+                                 Duration maxLatency, long compactionThreshold, CryptoMetrics metrics) {
+        this.priceStore = priceStore;
+        this.writerFactory = writerFactory;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = maxLatency.toNanos();
+        this.compactionThreshold = compactionThreshold;
+        this.metrics = metrics;
+        this.committer = new Thread(this::run, "crypto-ingest");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Queues the given values for the next group commit.
+     *
+     * @param cryptoValues the values to add, of any cryptos
+     * @return completed once the values are written to the CSV files and visible to queries,
+     * or exceptionally with a {@link DuplicateTimestampException} if the store rejects a duplicate timestamp,
+     * an {@link InvalidRequestException} if a price is out of range, or a {@link CryptoInvestmentException} if the
+     * values of a crypto could not be written, those of its other cryptos being committed
+     * @throws InvalidRequestException if a value misses its timestamp, symbol or price
+     */
+    public CompletableFuture<Void> submit(List<CsvCrypto> cryptoValues) {
+        for (CsvCrypto csvCrypto : cryptoValues) {
+            if (csvCrypto.getTimestamp() == null || csvCrypto.getSymbol() == null || csvCrypto.getPrice() == null) {
+                throw new InvalidRequestException("Timestamp, symbol and price are mandatory for every value");
+            }
+        }
+        if (cryptoValues.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!running) {
+            throw new CryptoInvestmentException("Ingest pipeline is stopped");
+        }
+
+        final PendingBatch pendingBatch = new PendingBatch(cryptoValues, new CompletableFuture<>());
+        queue.add(pendingBatch);
+        return pendingBatch.completion();
+    }
+
+    /**
+     * Waits for submitted values to be committed.
+     *
+     * @param completion as returned by {@link #submit(List)}
+     * @throws CryptoInvestmentException if the values could not be written
+     */
+    public static void await(CompletableFuture<Void> completion) {
+        try {
+            completion.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof CryptoInvestmentException cryptoInvestmentException) {
+                throw cryptoInvestmentException;
+            }
+            throw new CryptoInvestmentException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the number of batches waiting for the next group commit
+     */
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        Gauge.builder("crypto.ingest.queue.depth", this, CryptoIngestPipeline::queueDepth)
+                .description("Number of batches waiting for the next group commit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Commits everything submitted so far, releases the writers and waits for the running compactions.
+     * Logs not compacted yet are recovered on the next startup.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        committer.join();
+        compactor.shutdown();
+        if (!compactor.awaitTermination(1, TimeUnit.MINUTES)) {
+            LOGGER.warn("Compactions still running at shutdown");
+        }
+    }
+
+    private void run() {
+        final List<PendingBatch> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                final PendingBatch first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                collectGroup(first, group);
+                commit(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                LOGGER.error("Unexpected failure while committing crypto values", e);
+                group.forEach(pendingBatch -> pendingBatch.completion().completeExceptionally(e));
+            } finally {
+                group.clear();
+            }
+        }
+        closeWriters();
+
+        final List<PendingBatch> rejected = new ArrayList<>();
+        queue.drainTo(rejected);
+        rejected.forEach(pendingBatch -> pendingBatch.completion()
+                .completeExceptionally(new CryptoInvestmentException("Ingest pipeline is stopped")));
+    }
+
+    private void collectGroup(PendingBatch first, List<PendingBatch> group) throws InterruptedException {
+        group.add(first);
+        int rows = first.cryptoValues().size();
+        final long deadline = System.nanoTime() + maxLatencyNanos;
+        while (rows < maxBatchSize) {
+            PendingBatch next = queue.poll();
+            if (next == null) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+            }
+            group.add(next);
+            rows += next.cryptoValues().size();
+        }
+    }
+
+    private void commit(List<PendingBatch> group) {
+        final long start = System.nanoTime();
+        final List<PendingBatch> accepted = registerSymbols(priceStore.getDuplicatePolicy() == DuplicatePolicy.REJECT
+                ? rejectDuplicates(group)
+                : group);
+        final CryptoTypeMap<List<CsvCrypto>> valuesByType = new CryptoTypeMap<>();
+        long rows = 0;
+        for (PendingBatch pendingBatch : accepted) {
+            for (CsvCrypto csvCrypto : pendingBatch.cryptoValues()) {
+                valuesByType.computeIfAbsent(csvCrypto.getSymbol(), cryptoType -> new ArrayList<>()).add(csvCrypto);
+            }
+            rows += pendingBatch.cryptoValues().size();
+        }
+
+        final CryptoTypeMap<Exception> failures = new CryptoTypeMap<>();
+        valuesByType.forEach((cryptoType, csvCryptoList) -> {
+            try {
+                // once flushed, the values come back on the next startup, so they must be added as well
+                priceStore.checkAppendable(cryptoType, csvCryptoList);
+            } catch (CryptoInvestmentException e) {
+                failures.put(cryptoType, new InvalidRequestException(e.getMessage()));
+                return;
+            }
+
+            final PriceAppender writer;
+            try {
+                writer = write(cryptoType, csvCryptoList);
+            } catch (IOException | CryptoInvestmentException e) {
+                LOGGER.error("Cannot write values for {}", cryptoType, e);
+                metrics.writeFailed(cryptoType);
+                failures.put(cryptoType, e);
+                closeWriter(cryptoType); // reopened by the next commit, values not flushed are discarded
+                return;
+            }
+
+            try {
+                priceStore.append(cryptoType, csvCryptoList);
+            } catch (CryptoInvestmentException e) {
+                // not expected once checked, the values written are added on the next startup
+                LOGGER.error("Cannot add the values written for {}", cryptoType, e);
+                failures.put(cryptoType, e);
+            }
+            if (writer.getBytesWritten() >= compactionThreshold) {
+                sealAndCompact(cryptoType);
+            }
+        });
+
+        // recorded before the batches complete, so the commits awaited are measured
+        metrics.commitCompleted(System.nanoTime() - start, rows);
+        for (PendingBatch pendingBatch : accepted) {
+            final CryptoType failedType = pendingBatch.cryptoValues().stream()
+                    .map(CsvCrypto::getSymbol)
+                    .filter(failures::containsKey)
+                    .findFirst()
+                    .orElse(null);
+            if (failedType == null) {
+                pendingBatch.completion().complete(null);
+            } else {
+                final Exception failure = failures.get(failedType);
+                pendingBatch.completion().completeExceptionally(
+                        failure instanceof CryptoInvestmentException ? failure : new CryptoInvestmentException(failure));
+            }
+        }
+    }
+
+    /**
+     * Fails the batches holding a value whose timestamp is already taken by the price history, by an earlier batch
+     * of the group or by another value of the same batch.
+     *
+     * @return the other batches of the group, in order
+     */
+    private List<PendingBatch> rejectDuplicates(List<PendingBatch> group) {
+        // hash maps rather than CryptoTypeMaps, as the cryptos of the batches are not all registered yet
+        final Map<CryptoType, Set<Long>> acceptedTimestamps = new HashMap<>();
+        final List<PendingBatch> accepted = new ArrayList<>(group.size());
+        for (PendingBatch pendingBatch : group) {
+            final Map<CryptoType, Set<Long>> batchTimestamps = new HashMap<>();
+            CsvCrypto duplicate = null;
+            for (CsvCrypto csvCrypto : pendingBatch.cryptoValues()) {
+                final CryptoType cryptoType = csvCrypto.getSymbol();
+                final long timestamp = csvCrypto.getTimestamp();
+                final Set<Long> groupTimestamps = acceptedTimestamps.get(cryptoType);
+                if (!batchTimestamps.computeIfAbsent(cryptoType, key -> new HashSet<>()).add(timestamp)
+                        || (groupTimestamps != null && groupTimestamps.contains(timestamp))
+                        || (cryptoType.isRegistered() && priceStore.containsTimestamp(cryptoType, timestamp))) {
+                    duplicate = csvCrypto;
+                    break;
+                }
+            }
+
+            if (duplicate == null) {
+                batchTimestamps.forEach((cryptoType, timestamps) ->
+                        acceptedTimestamps.computeIfAbsent(cryptoType, key -> new HashSet<>()).addAll(timestamps));
+                accepted.add(pendingBatch);
+            } else {
+                pendingBatch.completion().completeExceptionally(new DuplicateTimestampException(
+                        "A value of " + duplicate.getSymbol() + " already exists at timestamp " + duplicate.getTimestamp()));
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Registers the cryptos of the given batches not registered yet, failing the batches for which that fails.
+     *
+     * @return the batches, their values holding registered cryptos only, in order
+     */
+    private static List<PendingBatch> registerSymbols(List<PendingBatch> batches) {
+        final List<PendingBatch> registered = new ArrayList<>(batches.size());
+        for (PendingBatch pendingBatch : batches) {
+            if (pendingBatch.cryptoValues().stream().allMatch(csvCrypto -> csvCrypto.getSymbol().isRegistered())) {
+                registered.add(pendingBatch);
+                continue;
+            }
+            try {
+                final List<CsvCrypto> cryptoValues = new ArrayList<>(pendingBatch.cryptoValues().size());
+                for (CsvCrypto csvCrypto : pendingBatch.cryptoValues()) {
+                    final CryptoType cryptoType = CryptoType.register(csvCrypto.getSymbol());
+                    cryptoValues.add(cryptoType == csvCrypto.getSymbol()
+                            ? csvCrypto
+                            : new CsvCrypto(csvCrypto.getTimestamp(), cryptoType, csvCrypto.getPrice()));
+                }
+                registered.add(new PendingBatch(cryptoValues, pendingBatch.completion()));
+            } catch (CryptoInvestmentException e) {
+                pendingBatch.completion().completeExceptionally(e);
+            }
+        }
+        return registered;
+    }
+
+    private PriceAppender write(CryptoType cryptoType, List<CsvCrypto> csvCryptoList) throws IOException {
+        PriceAppender writer = writers.get(cryptoType);
+        if (writer == null) {
+            writer = writerFactory.open(cryptoType);
+            writers.put(cryptoType, writer);
+        }
+        final long bytesBefore = writer.getBytesWritten();
+        for (CsvCrypto csvCrypto : csvCryptoList) {
+            writer.write(csvCrypto);
+        }
+        writer.flush();
+        metrics.csvWritten(cryptoType, csvCryptoList.size(), writer.getBytesWritten() - bytesBefore);
+        return writer;
+    }
+
+    /**
+     * Closes the log of the given crypto, the next commit starting a new one, and folds the closed logs
+     * into the CSV file in the background. The logs are listed before, so the new one is never compacted.
+     */
+    private void sealAndCompact(CryptoType cryptoType) {
+        closeWriter(cryptoType);
+        final List<Path> logPaths;
+        try {
+            logPaths = CsvCryptoUtil.getLogPaths(priceStore.getDataDirectory(), cryptoType);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot list the logs of {}, compacting them later", cryptoType, e);
+            return;
+        }
+        compactor.execute(() -> {
+            try {
+                priceStore.compact(cryptoType, logPaths);
+            } catch (IOException | RuntimeException e) {
+                // the logs are kept and compacted again with the next ones
+                LOGGER.error("Cannot compact the logs of {}", cryptoType, e);
+                metrics.compactionFailed(cryptoType);
+            }
+        });
+    }
+
+    private void closeWriters() {
+        final List<CryptoType> cryptoTypes = new ArrayList<>();
+        writers.forEach((cryptoType, writer) -> cryptoTypes.add(cryptoType));
+        cryptoTypes.forEach(this::closeWriter);
+    }
+
+    private void closeWriter(CryptoType cryptoType) {
+        final PriceAppender writer = writers.remove(cryptoType);
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOGGER.warn("Cannot close the writer of {}", cryptoType, e);
+            }
+        }
+    }
+
+    private record PendingBatch(List<CsvCrypto> cryptoValues, CompletableFuture<Void> completion) {
+    }
+}
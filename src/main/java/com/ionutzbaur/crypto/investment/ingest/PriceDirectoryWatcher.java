@@ -0,0 +1,109 @@
+package com.ionutzbaur.crypto.investment.ingest;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import com.ionutzbaur.crypto.investment.util.CsvCryptoUtil;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * Follows the price directory for CSV files created or appended to by other processes, such as a periodic export
+ * of an exchange, and loads only their new lines into the {@link CryptoPriceStore}, without restarting or reloading
+ * the whole history. A CSV file of an unknown symbol registers a new crypto.
+ * Changes the service makes itself, by compacting the append logs into the CSV files, are already in memory
+ * and are skipped.
+ */
+@Component
+public class PriceDirectoryWatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PriceDirectoryWatcher.class);
+
+    private final CryptoPriceStore priceStore;
+    private final WatchService watchService;
+
+    public PriceDirectoryWatcher(CryptoPriceStore priceStore,
+                                 @Value("${crypto.watch.enabled:true}") boolean enabled) throws IOException {
+        this.priceStore = priceStore;
+        final Path directory = priceStore.getDataDirectory();
+        if (!enabled || !Files.isDirectory(directory)) {
+            if (enabled) {
+                LOGGER.warn("Not watching the missing price directory {}", directory);
+            }
+            this.watchService = null;
+            return;
+        }
+
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        final Thread watcher = new Thread(this::run, "crypto-price-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        LOGGER.info("Watching {} for new price values", directory);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                final WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // events were lost, every file may have changed
+                        CsvCryptoUtil.discoverCryptos(priceStore.getDataDirectory()).forEach(this::ingest);
+                    } else {
+                        ingest((Path) event.context());
+                    }
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.debug("Price directory watcher stopped");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LOGGER.error("Cannot list the price directory, no longer watching it", e);
+        }
+    }
+
+    private void ingest(Path fileName) {
+        final String symbol = CsvCryptoUtil.getCsvSymbol(fileName);
+        if (symbol == null) {
+            return; // append logs, segments and temporary files of the service itself
+        }
+        try {
+            ingest(CryptoType.register(symbol));
+        } catch (CryptoInvestmentException e) {
+            LOGGER.warn("Ignoring price file {}: {}", fileName, e.getMessage());
+        }
+    }
+
+    private void ingest(CryptoType cryptoType) {
+        try {
+            final long values = priceStore.ingestCsvTail(cryptoType);
+            if (values > 0) {
+                LOGGER.info("Loaded {} new values of {}", values, cryptoType);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cannot read the new values of {}", cryptoType, e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.ionutzbaur.crypto.investment.metrics;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.store.PriceCompaction;
+import com.ionutzbaur.crypto.investment.util.CsvPriceReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application meters, named {@code crypto.*} and tagged by {@value #CRYPTO_TAG} where they concern a single crypto.
+ * Latencies of the endpoints are recorded by Spring Boot as {@code http.server.requests}.
+ * Per-crypto meters are looked up on every call, which is meant for calls per file or per commit, not per value.
+ */
+@Component
+public class CryptoMetrics {
+
+    public static final String CRYPTO_TAG = "crypto";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter rankingCacheHits;
+    private final Counter rankingCacheMisses;
+    private final Counter segmentCacheHits;
+    private final Counter segmentCacheMisses;
+    private final Counter responseCacheNotModified;
+    private final Counter responseCacheHits;
+    private final Counter responseCacheMisses;
+    private final Timer ingestCommit;
+    private final DistributionSummary ingestCommitRows;
+
+    public CryptoMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.rankingCacheHits = cacheCounter("normalized-range-ranking", "hit");
+        this.rankingCacheMisses = cacheCounter("normalized-range-ranking", "miss");
+        this.segmentCacheHits = cacheCounter("price-segment", "hit");
+        this.segmentCacheMisses = cacheCounter("price-segment", "miss");
+        this.responseCacheNotModified = cacheCounter("json-response", "not-modified");
+        this.responseCacheHits = cacheCounter("json-response", "hit");
+        this.responseCacheMisses = cacheCounter("json-response", "miss");
+        this.ingestCommit = Timer.builder("crypto.ingest.commit")
+                .description("Time to write, flush and publish a group of added values")
+                .register(meterRegistry);
+        this.ingestCommitRows = DistributionSummary.builder("crypto.ingest.commit.rows")
+                .description("Number of values per group commit")
+                .baseUnit("rows")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return metrics recorded nowhere, for components created outside the application context
+     */
+    public static CryptoMetrics noop() {
+        return new CryptoMetrics(new CompositeMeterRegistry());
+    }
+
+    public void csvRead(CryptoType cryptoType, CsvPriceReader.Result result) {
+        counter("crypto.csv.rows.read", cryptoType).increment(result.rows());
+        counter("crypto.csv.bytes.read", cryptoType).increment(result.bytes());
+        counter("crypto.csv.rows.malformed", cryptoType).increment(result.malformedRows());
+    }
+
+    public void csvWritten(CryptoType cryptoType, long rows, long bytes) {
+        counter("crypto.csv.rows.written", cryptoType).increment(rows);
+        counter("crypto.csv.bytes.written", cryptoType).increment(bytes);
+    }
+
+    public void segmentRead(CryptoType cryptoType, long rows, long bytes) {
+        counter("crypto.segment.rows.read", cryptoType).increment(rows);
+        counter("crypto.segment.bytes.read", cryptoType).increment(bytes);
+    }
+
+    public void segmentCache(boolean hit) {
+        (hit ? segmentCacheHits : segmentCacheMisses).increment();
+    }
+
+    public void rankingCache(boolean hit) {
+        (hit ? rankingCacheHits : rankingCacheMisses).increment();
+    }
+
+    public void responseNotModified() {
+        responseCacheNotModified.increment();
+    }
+
+    public void responseCache(boolean hit) {
+        (hit ? responseCacheHits : responseCacheMisses).increment();
+    }
+
+    public void loadCompleted(CryptoType cryptoType, long nanos) {
+        Timer.builder("crypto.load")
+                .description("Time to load the price history of a crypto at startup")
+                .tag(CRYPTO_TAG, cryptoType.name())
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void loadFailed(CryptoType cryptoType) {
+        counter("crypto.load.failures", cryptoType).increment();
+    }
+
+    public void writeFailed(CryptoType cryptoType) {
+        counter("crypto.ingest.failures", cryptoType).increment();
+    }
+
+    public void commitCompleted(long nanos, long rows) {
+        ingestCommit.record(nanos, TimeUnit.NANOSECONDS);
+        ingestCommitRows.record(rows);
+    }
+
+    public void compactionCompleted(CryptoType cryptoType, long nanos, PriceCompaction.Result result) {
+        Timer.builder("crypto.compaction")
+                .description("Time to fold the append logs of a crypto into its CSV file")
+                .tag(CRYPTO_TAG, cryptoType.name())
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        counter("crypto.compaction.rows.logged", cryptoType).increment(result.logRecords());
+        counter("crypto.compaction.rows.duplicate", cryptoType).increment(result.duplicates());
+        counter("crypto.compaction.bytes.discarded", cryptoType).increment(result.discardedLogBytes());
+    }
+
+    public void compactionFailed(CryptoType cryptoType) {
+        counter("crypto.compaction.failures", cryptoType).increment();
+    }
+
+    private Counter counter(String name, CryptoType cryptoType) {
+        return meterRegistry.counter(name, CRYPTO_TAG, cryptoType.name());
+    }
+
+    private Counter cacheCounter(String cache, String result) {
+        return Counter.builder("crypto.cache.requests")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
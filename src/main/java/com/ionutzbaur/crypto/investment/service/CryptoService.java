@@ -1,10 +1,20 @@
 package com.ionutzbaur.crypto.investment.service;
 
+import com.ionutzbaur.crypto.investment.domain.BatchQuery;
+import com.ionutzbaur.crypto.investment.domain.BatchResult;
+import com.ionutzbaur.crypto.investment.domain.Candle;
+import com.ionutzbaur.crypto.investment.domain.CandleInterval;
+import com.ionutzbaur.crypto.investment.domain.CorrelationMatrix;
 import com.ionutzbaur.crypto.investment.domain.CryptoType;
 import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.NormalizedRange;
+import com.ionutzbaur.crypto.investment.domain.RangeRanking;
+import com.ionutzbaur.crypto.investment.domain.RollingWindow;
 import com.ionutzbaur.crypto.investment.domain.StatisticType;
+import com.ionutzbaur.crypto.investment.domain.WindowStatistics;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -12,18 +22,18 @@ import java.util.List;
 public interface CryptoService {
 
     /**
-     * Reads the crypto info from all the CSV files.
+     * Reads the crypto info of all the cryptos, as loaded from the CSV files.
      *
      * @return a list that represents the deserialized info from CSVs
      */
     List<CsvCrypto> getAllCryptos();
 
     /**
-     * Calculates the normalized range of all cryptos by formula (max-min)/min
+     * Calculates the normalized range of each crypto by formula (max-min)/min
      *
      * @return a descending sorted list comparing the calculated normalized range
      */
-    List<CsvCrypto> getNormalizedDesc();
+    List<NormalizedRange> getNormalizedDesc();
 
     /**
      * Computes statistics
@@ -34,6 +44,17 @@ public interface CryptoService {
      */
     CsvCrypto getStatistic(CryptoType cryptoType, StatisticType statisticType);
 
+    /**
+     * Computes statistics over a range of days.
+     *
+     * @param cryptoType the crypto to read
+     * @param statisticType the statistic to compute
+     * @param from the first day, or null for the oldest one
+     * @param to the last day, included, or null for the newest one
+     * @return the info to match the requested statistic
+     */
+    CsvCrypto getStatistic(CryptoType cryptoType, StatisticType statisticType, LocalDate from, LocalDate to);
+
     /**
      * Computes the highest normalized range for a specific day.
      *
@@ -42,10 +63,87 @@ public interface CryptoService {
      */
     CryptoType getHighestNormalizedRange(LocalDate day);
 
+    /**
+     * Ranks the cryptos by their normalized range (max-min)/min within each day of a range of days,
+     * and over the whole range.
+     *
+     * @param from the first day
+     * @param to the last day, included
+     * @param size the max number of cryptos of each ranking
+     * @return the rankings of the range and of each of its days having values, sorted descending
+     */
+    RangeRanking getNormalizedRangeRanking(LocalDate from, LocalDate to, int size);
+
+    /**
+     * Reads the crypto info of a certain crypto within a time range.
+     *
+     * @param cryptoType the crypto to read
+     * @param from inclusive start of the range, or null for the oldest value
+     * @param to exclusive end of the range, or null for the newest value
+     * @return the values in the range, sorted by timestamp
+     */
+    List<CsvCrypto> getPrices(CryptoType cryptoType, Instant from, Instant to);
+
+    /**
+     * Downsamples the crypto info of a certain crypto into open/high/low/close candles.
+     * Days and weeks (starting on Monday) are the ones of the configured time zone, made of whole hours,
+     * which is why zones whose offset is not a whole number of hours are not supported.
+     *
+     * @param cryptoType the crypto to read
+     * @param interval the time covered by each candle
+     * @param from inclusive start of the range, or null for the oldest value
+     * @param to exclusive end of the range, or null for the newest value
+     * @return the candles with at least one value, sorted by timestamp
+     */
+    List<Candle> getCandles(CryptoType cryptoType, CandleInterval interval, Instant from, Instant to);
+
+    /**
+     * Correlates the returns of cryptos and compares their performance over a time range,
+     * their prices being aligned on a grid of hours, days or weeks of the configured time zone.
+     *
+     * @param cryptoTypes the cryptos to compare, or null or empty for all of them
+     * @param interval the time covered by each point of the grid
+     * @param from inclusive start of the range, or null for the oldest value
+     * @param to exclusive end of the range, or null for the newest value
+     * @return the correlation matrix and the performance of each crypto, sorted by symbol
+     */
+    CorrelationMatrix getCorrelations(List<CryptoType> cryptoTypes, CandleInterval interval, Instant from, Instant to);
+
+    /**
+     * Computes the normalized range, min/max, mean and standard deviation of a certain crypto over sliding windows
+     * ending with its newest value.
+     *
+     * @param cryptoType the crypto to read
+     * @param window the window to compute, or null for all of them
+     * @return the statistics of each window, none if the crypto has no values
+     */
+    List<WindowStatistics> getWindowStatistics(CryptoType cryptoType, RollingWindow window);
+
+    /**
+     * Answers many statistic and day queries at once, all of them against the same values.
+     * A query that cannot be answered gets an error, without failing the others.
+     *
+     * @param batchQuery the statistics as per {@link #getStatistic(CryptoType, StatisticType, LocalDate, LocalDate)}
+     *                   and the days as per {@link #getHighestNormalizedRange(LocalDate)}
+     * @return the answers, in the order of the queries
+     */
+    BatchResult getBatch(BatchQuery batchQuery);
+
+    /**
+     * @param cryptoType the crypto to look up
+     * @return a number increasing every time values of the given crypto are added, 0 while it has none
+     */
+    long getDataVersion(CryptoType cryptoType);
+
+    /**
+     * @return a number increasing every time values of any crypto are added
+     */
+    long getDataVersion();
+
     /**
      * Adds crypto info. If a csv file for the new crypto does not exist, it will be created,
      * otherwise the info will be appended to the end of the corresponding csv file content.
-     * In order to add a new crypto, make sure it is supported by adding it first to {@link CryptoType} enum.
+     * Cryptos seen for the first time are registered as new {@link CryptoType}s, without any restart.
      *
      * @param cryptoValues list of cryptos to be added
      */
@@ -0,0 +1,115 @@
+package com.ionutzbaur.crypto.investment.service.impl;
+
+import com.ionutzbaur.crypto.investment.domain.BatchQuery;
+import com.ionutzbaur.crypto.investment.domain.BatchResult;
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.StatisticQuery;
+import com.ionutzbaur.crypto.investment.domain.StatisticResult;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import com.ionutzbaur.crypto.investment.exception.InvalidRequestException;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import com.ionutzbaur.crypto.investment.store.PriceDistribution;
+import com.ionutzbaur.crypto.investment.store.PriceStatistics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Answers the queries of a {@link BatchQuery} against a single consistent state of the store, see
+ * {@link CryptoPriceStore#readConsistent}. The statistic queries are grouped by crypto and range of days, each group
+ * looking up the running statistics or merging the price distribution of its range once for all its statistics;
+ * the groups and the days are evaluated in parallel on the common fork-join pool.
+ * A query that cannot be answered gets an error, without failing the others.
+ */
+class BatchEvaluation {
+
+    private final CryptoPriceStore priceStore;
+    private final int maxQueries;
+
+    BatchEvaluation(CryptoPriceStore priceStore, int maxQueries) {
+        this.priceStore = priceStore;
+        this.maxQueries = maxQueries;
+    }
+
+    /**
+     * @param batchQuery the queries to answer
+     * @return the answers, in the order of the queries
+     * @throws InvalidRequestException if there are more than the max number of queries
+     */
+    BatchResult evaluate(BatchQuery batchQuery) {
+        final List<StatisticQuery> queries = batchQuery.getStatistics();
+        final List<LocalDate> days = batchQuery.getDays().stream().distinct().toList();
+        if (queries.size() + days.size() > maxQueries) {
+            throw new InvalidRequestException("The batch holds " + (queries.size() + days.size())
+                    + " queries, more than the " + maxQueries + " supported! Split it in smaller batches");
+        }
+
+        final Map<RangeKey, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            final StatisticQuery query = queries.get(i);
+            final String symbol = query.getSymbol() == null ? null : query.getSymbol().toUpperCase(Locale.ROOT);
+            groups.computeIfAbsent(new RangeKey(symbol, query.getFrom(), query.getTo()),
+                    key -> new ArrayList<>()).add(i);
+        }
+
+        return priceStore.readConsistent(() -> {
+            final StatisticResult[] results = new StatisticResult[queries.size()];
+            groups.entrySet().parallelStream()
+                    .forEach(group -> evaluate(group.getKey(), group.getValue(), queries, results));
+
+            final List<CryptoType> symbols = priceStore.symbols();
+            final CryptoType[] highest = new CryptoType[days.size()];
+            IntStream.range(0, days.size()).parallel().forEach(i -> highest[i] =
+                    CryptoServiceImpl.highestNormalizedRange(priceStore.dayRanges(days.get(i)), symbols));
+
+            final Map<LocalDate, CryptoType> highestNormalizedRanges = new LinkedHashMap<>();
+            for (int i = 0; i < days.size(); i++) {
+                highestNormalizedRanges.put(days.get(i), highest[i]);
+            }
+            return new BatchResult(Arrays.asList(results), highestNormalizedRanges);
+        });
+    }
+
+    private void evaluate(RangeKey key, List<Integer> indexes, List<StatisticQuery> queries, StatisticResult[] results) {
+        final CryptoType cryptoType = CryptoType.find(key.symbol());
+        PriceStatistics statistics = null;
+        PriceDistribution distribution = null;
+        boolean distributionMerged = false;
+        for (int index : indexes) {
+            final StatisticQuery query = queries.get(index);
+            try {
+                if (cryptoType == null) {
+                    throw new CryptoInvestmentException(String.format("Unknown crypto: %s", key.symbol()));
+                }
+                CryptoServiceImpl.checkDays(key.from(), key.to());
+
+                final CsvCrypto value;
+                if (CryptoServiceImpl.isDistributionStatistic(query.getType(), key.from(), key.to())) {
+                    if (!distributionMerged) {
+                        distribution = priceStore.distribution(cryptoType, key.from(), key.to());
+                        distributionMerged = true;
+                    }
+                    value = CryptoServiceImpl.statistic(cryptoType, query.getType(), distribution);
+                } else {
+                    if (statistics == null) {
+                        statistics = priceStore.statistics(cryptoType);
+                    }
+                    value = CryptoServiceImpl.statistic(cryptoType, query.getType(), statistics);
+                }
+                results[index] = new StatisticResult(query, value, null);
+            } catch (CryptoInvestmentException e) {
+                results[index] = new StatisticResult(query, null, e.getMessage());
+            }
+        }
+    }
+
+    private record RangeKey(String symbol, LocalDate from, LocalDate to) {
+    }
+}
@@ -0,0 +1,305 @@
+package com.ionutzbaur.crypto.investment.service.impl;
+
+import com.ionutzbaur.crypto.investment.domain.CandleInterval;
+import com.ionutzbaur.crypto.investment.domain.CorrelationMatrix;
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.SymbolPerformance;
+import com.ionutzbaur.crypto.investment.exception.InvalidRequestException;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import com.ionutzbaur.crypto.investment.store.HourlyRollups;
+import com.ionutzbaur.crypto.investment.store.PriceColumns;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**
+ * Compares cryptos on a common time grid: the pairwise Pearson correlations of their returns and their performance.
+ * The grid has one point per interval, holding the close price of the last hourly rollup of the crypto within it,
+ * carried forward over intervals without values. The return of a point is the log return from the previous one,
+ * so a crypto has returns from its second point to its last, and a pair is correlated over the points both cryptos
+ * have returns for. Grids are built per crypto and pairs are correlated on the common fork-join pool,
+ * working on primitive arrays only: with prefix sums of the returns and of their squares kept per crypto,
+ * correlating a pair takes a single pass over the common points.
+ */
+class CorrelationAnalysis {
+
+    private static final int PAIRS_PER_TASK = 64;
+    private static final int SCALE = 4;
+    private static final double VARIANCE_TOLERANCE = 1e-12;
+
+    private final CryptoPriceStore priceStore;
+    private final TimeBuckets timeBuckets;
+    private final int maxPoints;
+
+    CorrelationAnalysis(CryptoPriceStore priceStore, TimeBuckets timeBuckets, int maxPoints) {
+        this.priceStore = priceStore;
+        this.timeBuckets = timeBuckets;
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * @param symbols the cryptos to compare, in the order of the rows and columns of the matrix
+     * @param interval the time covered by each point of the grid
+     * @param from inclusive start of the range, or null for the oldest value; an hour it falls in is included
+     * @param to exclusive end of the range, or null for the newest value
+     * @return the correlations and performances
+     * @throws InvalidRequestException if the grid would have more than the max number of points
+     */
+    CorrelationMatrix compute(List<CryptoType> symbols, CandleInterval interval, Instant from, Instant to) {
+        final int count = symbols.size();
+        final HourlyRollups.View[] rollups = new HourlyRollups.View[count];
+        final int[] starts = new int[count];
+        final int[] ends = new int[count];
+        final int[] decimals = new int[count];
+        long firstKey = Long.MAX_VALUE;
+        long lastKey = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            final PriceColumns columns = priceStore.columns(symbols.get(i));
+            rollups[i] = columns.getHourlyRollups();
+            decimals[i] = columns.getDecimals();
+            starts[i] = from == null ? 0 : rollups[i].lowerBound(HourlyRollups.hourStart(from.toEpochMilli()));
+            ends[i] = to == null ? rollups[i].size() : rollups[i].lowerBound(to.toEpochMilli());
+            if (starts[i] < ends[i]) {
+                firstKey = Math.min(firstKey, timeBuckets.key(interval, rollups[i].startAt(starts[i])));
+                lastKey = Math.max(lastKey, timeBuckets.key(interval, rollups[i].startAt(ends[i] - 1)));
+            }
+        }
+
+        final long points = firstKey <= lastKey ? lastKey - firstKey + 1 : 0;
+        if (points > maxPoints) {
+            throw new InvalidRequestException("The time range holds " + points + " intervals, more than the "
+                    + maxPoints + " supported! Choose a longer interval or a shorter time range");
+        }
+
+        final double[][] returns = new double[count][];
+        final double[][] sums = new double[count][];
+        final double[][] squares = new double[count][];
+        final int[] returnStarts = new int[count];
+        final int[] returnEnds = new int[count];
+        final long gridStart = firstKey;
+        IntStream.range(0, count).parallel().forEach(i -> {
+            returns[i] = logReturns(rollups[i], starts[i], ends[i], interval, gridStart, (int) points,
+                    returnStarts, returnEnds, i);
+            sums[i] = new double[(int) points + 1];
+            squares[i] = new double[(int) points + 1];
+            prefixSums(returns[i], returnStarts[i], returnEnds[i], sums[i], squares[i]);
+        });
+
+        final double[] correlations = new double[count * count];
+        ForkJoinPool.commonPool().invoke(new PairTask(returns, sums, squares, returnStarts, returnEnds, correlations,
+                0, (long) count * (count + 1) / 2));
+
+        return new CorrelationMatrix(interval.getCode(),
+                points > 0 ? timeBuckets.start(interval, firstKey) : null,
+                points > 0 ? timeBuckets.start(interval, lastKey + 1) : null,
+                (int) points,
+                performances(symbols, rollups, starts, ends, decimals, returnStarts, returnEnds),
+                toMatrix(correlations, count));
+    }
+
+    /**
+     * Lays the close prices of the given rollups on the grid and turns them into log returns, in place.
+     * The range of the returns is stored at the given index of the start and end arrays.
+     */
+    private double[] logReturns(HourlyRollups.View rollups, int start, int end, CandleInterval interval,
+                                long gridStart, int points, int[] returnStarts, int[] returnEnds, int index) {
+        final double[] grid = new double[points];
+        int first = -1;
+        int last = -1;
+        for (int i = start; i < end; i++) {
+            final long close = rollups.closeAt(i);
+            if (close <= 0) {
+                continue; // no return to or from a null price
+            }
+            final int point = (int) (timeBuckets.key(interval, rollups.startAt(i)) - gridStart);
+            if (first < 0) {
+                first = point;
+            }
+            for (int carried = last + 1; last >= 0 && carried < point; carried++) {
+                grid[carried] = grid[last];
+            }
+            grid[point] = Math.log(close);
+            last = point;
+        }
+
+        for (int point = last; point > first; point--) {
+            grid[point] -= grid[point - 1];
+        }
+        returnStarts[index] = first + 1;
+        returnEnds[index] = last + 1;
+        return grid;
+    }
+
+    /**
+     * Centers the returns of [from, to) on their mean, which leaves their correlations unchanged but keeps the sums
+     * small, then stores the sums of the returns and of their squares over [from, i) at index i of the given arrays.
+     */
+    private static void prefixSums(double[] returns, int from, int to, double[] sums, double[] squares) {
+        double mean = 0;
+        for (int i = from; i < to; i++) {
+            mean += returns[i];
+        }
+        mean /= Math.max(1, to - from);
+
+        for (int i = from; i < to; i++) {
+            returns[i] -= mean;
+            sums[i + 1] = sums[i] + returns[i];
+            squares[i + 1] = squares[i] + returns[i] * returns[i];
+        }
+        for (int i = Math.max(from, to) + 1; i < sums.length; i++) {
+            sums[i] = sums[i - 1];
+            squares[i] = squares[i - 1];
+        }
+    }
+
+    private static List<SymbolPerformance> performances(List<CryptoType> symbols, HourlyRollups.View[] rollups,
+                                                        int[] starts, int[] ends, int[] decimals,
+                                                        int[] returnStarts, int[] returnEnds) {
+        final BigDecimal[] totalReturns = new BigDecimal[symbols.size()];
+        BigDecimal sum = BigDecimal.ZERO;
+        int returnCount = 0;
+        for (int i = 0; i < symbols.size(); i++) {
+            if (starts[i] < ends[i] && rollups[i].openAt(starts[i]) > 0) {
+                final BigDecimal firstPrice = BigDecimal.valueOf(rollups[i].openAt(starts[i]));
+                final BigDecimal lastPrice = BigDecimal.valueOf(rollups[i].closeAt(ends[i] - 1));
+                totalReturns[i] = lastPrice.subtract(firstPrice).divide(firstPrice, SCALE, RoundingMode.HALF_UP);
+                sum = sum.add(totalReturns[i]);
+                returnCount++;
+            }
+        }
+        final BigDecimal average = returnCount > 0
+                ? sum.divide(BigDecimal.valueOf(returnCount), SCALE, RoundingMode.HALF_UP)
+                : null;
+
+        final List<SymbolPerformance> performances = new ArrayList<>(symbols.size());
+        for (int i = 0; i < symbols.size(); i++) {
+            final boolean hasValues = starts[i] < ends[i];
+            performances.add(new SymbolPerformance(symbols.get(i),
+                    hasValues ? FixedPoint.toBigDecimal(rollups[i].openAt(starts[i]), decimals[i]) : null,
+                    hasValues ? FixedPoint.toBigDecimal(rollups[i].closeAt(ends[i] - 1), decimals[i]) : null,
+                    totalReturns[i],
+                    totalReturns[i] != null ? totalReturns[i].subtract(average) : null,
+                    Math.max(0, returnEnds[i] - returnStarts[i])));
+        }
+        return performances;
+    }
+
+    private static BigDecimal[][] toMatrix(double[] correlations, int count) {
+        final BigDecimal[][] matrix = new BigDecimal[count][count];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < count; j++) {
+                final double correlation = correlations[i * count + j];
+                matrix[i][j] = Double.isNaN(correlation)
+                        ? null
+                        : BigDecimal.valueOf(correlation).setScale(SCALE, RoundingMode.HALF_UP);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * @param sumsX the prefix sums of x, see {@link #prefixSums}
+     * @param squaresX the prefix sums of the squares of x
+     * @return the Pearson correlation of the given series over [from, to), NaN if it is undefined
+     */
+    static double correlation(double[] x, double[] sumsX, double[] squaresX,
+                              double[] y, double[] sumsY, double[] squaresY, int from, int to) {
+        final int count = to - from;
+        if (count < 2) {
+            return Double.NaN;
+        }
+        // independent partial sums, floating-point additions are never reordered by the compiler
+        double sumXY0 = 0;
+        double sumXY1 = 0;
+        double sumXY2 = 0;
+        double sumXY3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            sumXY0 += x[i] * y[i];
+            sumXY1 += x[i + 1] * y[i + 1];
+            sumXY2 += x[i + 2] * y[i + 2];
+            sumXY3 += x[i + 3] * y[i + 3];
+        }
+        for (; i < to; i++) {
+            sumXY0 += x[i] * y[i];
+        }
+        final double sumXY = (sumXY0 + sumXY1) + (sumXY2 + sumXY3);
+
+        final double sumX = sumsX[to] - sumsX[from];
+        final double sumY = sumsY[to] - sumsY[from];
+        final double sumXX = squaresX[to] - squaresX[from];
+        final double sumYY = squaresY[to] - squaresY[from];
+        final double covariance = sumXY - sumX * sumY / count;
+        final double varianceX = sumXX - sumX * sumX / count;
+        final double varianceY = sumYY - sumY * sumY / count;
+        // what is left of a constant series is rounding noise
+        if (varianceX <= VARIANCE_TOLERANCE * sumXX || varianceY <= VARIANCE_TOLERANCE * sumYY) {
+            return Double.NaN;
+        }
+        return Math.max(-1, Math.min(1, covariance / Math.sqrt(varianceX * varianceY)));
+    }
+
+    /**
+     * Correlates a range of the pairs (i, j) with i &lt;= j, numbered row by row, splitting it in halves
+     * until it is small enough.
+     */
+    private static final class PairTask extends RecursiveAction {
+
+        private final double[][] returns;
+        private final double[][] sums;
+        private final double[][] squares;
+        private final int[] returnStarts;
+        private final int[] returnEnds;
+        private final double[] correlations;
+        private final long fromPair;
+        private final long toPair;
+
+        private PairTask(double[][] returns, double[][] sums, double[][] squares, int[] returnStarts, int[] returnEnds,
+                         double[] correlations, long fromPair, long toPair) {
+            this.returns = returns;
+            this.sums = sums;
+            this.squares = squares;
+            this.returnStarts = returnStarts;
+            this.returnEnds = returnEnds;
+            this.correlations = correlations;
+            this.fromPair = fromPair;
+            this.toPair = toPair;
+        }
+
+        @Override
+        protected void compute() {
+            if (toPair - fromPair > PAIRS_PER_TASK) {
+                final long middle = (fromPair + toPair) >>> 1;
+                invokeAll(new PairTask(returns, sums, squares, returnStarts, returnEnds, correlations, fromPair, middle),
+                        new PairTask(returns, sums, squares, returnStarts, returnEnds, correlations, middle, toPair));
+                return;
+            }
+
+            final int count = returns.length;
+            int i = 0;
+            long pair = fromPair;
+            while (pair >= count - i) {
+                pair -= count - i;
+                i++;
+            }
+            int j = i + (int) pair;
+            for (long remaining = toPair - fromPair; remaining > 0; remaining--) {
+                final double correlation = correlation(returns[i], sums[i], squares[i], returns[j], sums[j], squares[j],
+                        Math.max(returnStarts[i], returnStarts[j]), Math.min(returnEnds[i], returnEnds[j]));
+                correlations[i * count + j] = correlation;
+                correlations[j * count + i] = correlation;
+                if (++j == count) {
+                    i++;
+                    j = i;
+                }
+            }
+        }
+    }
+}
@@ -1,70 +1,112 @@
 package com.ionutzbaur.crypto.investment.service.impl;
 
+import com.ionutzbaur.crypto.investment.domain.BatchQuery;
+import com.ionutzbaur.crypto.investment.domain.BatchResult;
+import com.ionutzbaur.crypto.investment.domain.Candle;
+import com.ionutzbaur.crypto.investment.domain.CandleInterval;
+import com.ionutzbaur.crypto.investment.domain.CorrelationMatrix;
 import com.ionutzbaur.crypto.investment.domain.CryptoType;
 import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.NormalizedRange;
+import com.ionutzbaur.crypto.investment.domain.RangeRanking;
+import com.ionutzbaur.crypto.investment.domain.RollingWindow;
 import com.ionutzbaur.crypto.investment.domain.StatisticType;
+import com.ionutzbaur.crypto.investment.domain.WindowStatistics;
 import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import com.ionutzbaur.crypto.investment.exception.InvalidRequestException;
+import com.ionutzbaur.crypto.investment.ingest.CryptoIngestPipeline;
+import com.ionutzbaur.crypto.investment.metrics.CryptoMetrics;
 import com.ionutzbaur.crypto.investment.service.CryptoService;
-import com.ionutzbaur.crypto.investment.util.CsvCryptoUtil;
-import com.opencsv.bean.CsvToBean;
-import org.apache.commons.lang3.tuple.Pair;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import com.ionutzbaur.crypto.investment.store.DayRanges;
+import com.ionutzbaur.crypto.investment.store.HourlyRollups;
+import com.ionutzbaur.crypto.investment.store.PriceColumns;
+import com.ionutzbaur.crypto.investment.store.PriceDistribution;
+import com.ionutzbaur.crypto.investment.store.PriceStatistics;
+import com.ionutzbaur.crypto.investment.store.RollingAggregate;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.time.ZoneId;
-import java.util.*;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 @Component
 public class CryptoServiceImpl implements CryptoService {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(CryptoServiceImpl.class);
+    private static final int DEFAULT_CORRELATION_MAX_POINTS = 10_000;
+    private static final int DEFAULT_BATCH_MAX_QUERIES = 100_000;
+    private static final int DEFAULT_RANKING_MAX_DAYS = 3660;
+
+    private static final Set<StatisticType> RUNNING_STATISTICS = EnumSet.of(
+            StatisticType.OLDEST, StatisticType.NEWEST, StatisticType.MIN, StatisticType.MAX);
+
+    private final CryptoPriceStore priceStore;
+    private final CryptoIngestPipeline ingestPipeline;
+    private final NormalizedRangeRanking normalizedRangeRanking;
+    private final TimeBuckets timeBuckets;
+    private final CorrelationAnalysis correlationAnalysis;
+    private final BatchEvaluation batchEvaluation;
+    private final NormalizedRangeLeaderboard leaderboard;
+
+    public CryptoServiceImpl(CryptoPriceStore priceStore, CryptoIngestPipeline ingestPipeline) {
+        this(priceStore, ingestPipeline, CryptoMetrics.noop(), DEFAULT_CORRELATION_MAX_POINTS, DEFAULT_BATCH_MAX_QUERIES,
+                DEFAULT_RANKING_MAX_DAYS);
+    }
+
+    @Autowired
+    public CryptoServiceImpl(CryptoPriceStore priceStore, CryptoIngestPipeline ingestPipeline, CryptoMetrics metrics,
+                             @Value("${crypto.correlation.max-points:" + DEFAULT_CORRELATION_MAX_POINTS + "}") int correlationMaxPoints,
+                             @Value("${crypto.batch.max-queries:" + DEFAULT_BATCH_MAX_QUERIES + "}") int batchMaxQueries,
+                             @Value("${crypto.ranking.max-days:" + DEFAULT_RANKING_MAX_DAYS + "}") int rankingMaxDays) {
+        this.priceStore = priceStore;
+        this.ingestPipeline = ingestPipeline;
+        this.normalizedRangeRanking = new NormalizedRangeRanking(priceStore, metrics);
+        this.timeBuckets = new TimeBuckets(priceStore.calendar());
+        this.correlationAnalysis = new CorrelationAnalysis(priceStore, timeBuckets, correlationMaxPoints);
+        this.batchEvaluation = new BatchEvaluation(priceStore, batchMaxQueries);
+        this.leaderboard = new NormalizedRangeLeaderboard(priceStore, rankingMaxDays);
+    }
 
     /**
-     * Reads the crypto info from all the CSV files.
+     * Reads the crypto info of all the cryptos from the in-memory store.
      *
      * @return a list that represents the deserialized info from CSVs
      */
     @Override
     public List<CsvCrypto> getAllCryptos() {
-        List<CsvCrypto> allCryptos = new LinkedList<>();
-        Arrays.stream(CryptoType.values())
-                .forEach(cryptoType -> {
-                    try {
-                        final CsvToBean<CsvCrypto> crypto = CsvCryptoUtil.readCryptoFromCsv(cryptoType);
-                        allCryptos.addAll(crypto.parse());
-                    } catch (Exception e) {
-                        LOGGER.error("Cannot retrieve info for {}", cryptoType, e);
-                    }
-                });
+        final List<CsvCrypto> allCryptos = new ArrayList<>();
+        for (CryptoType cryptoType : priceStore.symbols()) {
+            final PriceColumns columns = priceStore.columns(cryptoType);
+            for (int i = 0; i < columns.size(); i++) {
+                allCryptos.add(columns.rowAt(i));
+            }
+        }
 
         return allCryptos;
     }
 
     /**
-     * Calculates the normalized range of all cryptos by formula (max-min)/min
+     * Calculates the normalized range of all cryptos by formula (max-min)/min.
+     * The ranking is computed in one pass over the symbols and cached until new values are added.
      *
      * @return a descending sorted list comparing the calculated normalized range
      */
     @Override
-    public List<CsvCrypto> getNormalizedDesc() {
-        final Supplier<Stream<CsvCrypto>> streamSupplier = getAllCryptos()::stream;
-        final Comparator<CsvCrypto> comparator = Comparator.comparing(CsvCrypto::getPrice)
-                .thenComparing((o1, o2) -> o1.getPrice().compareTo(computeNormalizedRange(streamSupplier)));
-
-        return streamSupplier.get()
-                .sorted(comparator.reversed())
-                .toList();
+    public List<NormalizedRange> getNormalizedDesc() {
+        return normalizedRangeRanking.get();
     }
 
     /**
-     * Computes statistics
+     * Computes statistics. The values are served from the running aggregates of the in-memory store
+     * in constant time, regardless of the history length.
      *
      * @param cryptoType
      * @param statisticType
@@ -72,107 +114,287 @@ public class CryptoServiceImpl implements CryptoService {
      */
     @Override
     public CsvCrypto getStatistic(CryptoType cryptoType, StatisticType statisticType) {
-        try {
-            final CsvToBean<CsvCrypto> crypto = CsvCryptoUtil.readCryptoFromCsv(cryptoType);
-            final Supplier<Stream<CsvCrypto>> streamSupplier = crypto::stream;
-
-            Optional<CsvCrypto> optionalCSVCrypto = switch (statisticType) {
-                case OLDEST -> computeOldestTimestampOptional(streamSupplier);
-                case NEWEST -> computeNewestTimestampOptional(streamSupplier);
-                case MIN -> computeMinPriceOptional(streamSupplier);
-                case MAX -> computeMaxPriceOptional(streamSupplier);
-                default -> throw new CryptoInvestmentException("Statistic not yet implemented");
-            };
-
-            return optionalCSVCrypto
-                    .orElseThrow(() -> new CryptoInvestmentException(String.format("Cannot compute %s values for %s", statisticType, cryptoType)));
-        } catch (Exception e) {
-            throw new CryptoInvestmentException(e);
+        return getStatistic(cryptoType, statisticType, null, null);
+    }
+
+    /**
+     * Computes statistics over a range of days, as seen in the configured time zone. The oldest/newest/min/max values
+     * of the whole history are served from the running aggregates of the in-memory store, the other statistics and
+     * the ranges are merged from the per-day price distributions of the store, in time proportional to the number
+     * of days; percentiles are estimated by the distributions' sketches.
+     *
+     * @param cryptoType the crypto to read
+     * @param statisticType the statistic to compute
+     * @param from the first day, or null for the oldest one
+     * @param to the last day, included, or null for the newest one
+     * @return the info to match the requested statistic
+     */
+    @Override
+    public CsvCrypto getStatistic(CryptoType cryptoType, StatisticType statisticType, LocalDate from, LocalDate to) {
+        checkDays(from, to);
+        if (isDistributionStatistic(statisticType, from, to)) {
+            return statistic(cryptoType, statisticType, priceStore.distribution(cryptoType, from, to));
+        }
+        return statistic(cryptoType, statisticType, priceStore.statistics(cryptoType));
+    }
+
+    static void checkDays(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new InvalidRequestException("The first day of the range is after the last one");
+        }
+    }
+
+    /**
+     * @return whether the statistic is computed from the price distribution, the other ones being served
+     * from the running statistics
+     */
+    static boolean isDistributionStatistic(StatisticType statisticType, LocalDate from, LocalDate to) {
+        return from != null || to != null || !RUNNING_STATISTICS.contains(statisticType);
+    }
+
+    static CsvCrypto statistic(CryptoType cryptoType, StatisticType statisticType, PriceStatistics statistics) {
+        if (statistics.isEmpty()) {
+            throw new CryptoInvestmentException(String.format("Cannot compute %s values for %s", statisticType, cryptoType));
         }
+        return switch (statisticType) {
+            case OLDEST -> statistics.getOldest();
+            case NEWEST -> statistics.getNewest();
+            case MIN -> statistics.getMin();
+            case MAX -> statistics.getMax();
+            default -> throw new IllegalArgumentException(statisticType.name());
+        };
+    }
+
+    static CsvCrypto statistic(CryptoType cryptoType, StatisticType statisticType, PriceDistribution distribution) {
+        if (distribution == null) {
+            throw new CryptoInvestmentException(String.format("Cannot compute %s values for %s", statisticType, cryptoType));
+        }
+        return switch (statisticType) {
+            case OLDEST -> distribution.getFirst();
+            case NEWEST -> distribution.getLast();
+            case MIN -> distribution.getMin();
+            case MAX -> distribution.getMax();
+            case MEAN -> derived(distribution, distribution.getMean());
+            case STDDEV -> derived(distribution, distribution.getStandardDeviation());
+            case TWAP -> derived(distribution, distribution.getTimeWeightedAverage());
+            case P5 -> derived(distribution, distribution.getQuantile(0.05));
+            case MEDIAN -> derived(distribution, distribution.getQuantile(0.5));
+            case P95 -> derived(distribution, distribution.getQuantile(0.95));
+        };
+    }
+
+    private static CsvCrypto derived(PriceDistribution distribution, double value) {
+        return new CsvCrypto(distribution.getLast().getTimestamp(), distribution.getSymbol(), approximate(value));
     }
 
     /**
-     * Computes the highest normalized range for a specific day.
+     * Computes the highest normalized range for a specific day, as seen in the configured time zone.
+     * The day is looked up in the day index of the store instead of scanning the whole history,
+     * once all the histories are loaded.
      *
      * @param day the day for witch the highest normalized range is computed
      * @return the symbol of the crypto
      */
     @Override
     public CryptoType getHighestNormalizedRange(LocalDate day) {
-        final List<Pair<CryptoType, BigDecimal>> normalizedRangePairs = new ArrayList<>();
-
-        getAllCryptos().stream() //filter by given day
-                .filter(csvCrypto -> day.isEqual(LocalDate.ofInstant(csvCrypto.getPrettyTimestamp(), ZoneId.systemDefault())))
-                .collect(Collectors.groupingBy(CsvCrypto::getSymbol))
-                .forEach((key, value) -> {
-                    final BigDecimal normalizedRange = computeNormalizedRange(value::stream);
-                    final Pair<CryptoType, BigDecimal> normalizedRangePair = Pair.of(key, normalizedRange);
+        return highestNormalizedRange(priceStore.dayRanges(day), priceStore.symbols());
+    }
 
-                    normalizedRangePairs.add(normalizedRangePair);
-                });
+    /**
+     * @param dayRanges the price ranges of the day, or null if it has no values
+     * @param symbols the cryptos to compare
+     * @return the crypto with the highest normalized range of the day, or null if none has values
+     */
+    static CryptoType highestNormalizedRange(DayRanges dayRanges, List<CryptoType> symbols) {
+        if (dayRanges == null) {
+            return null;
+        }
+        final List<NormalizedRange> top = NormalizedRangeLeaderboard.top(dayRanges, symbols, 1);
+        return top.isEmpty() ? null : top.get(0).getSymbol();
+    }
 
-        return normalizedRangePairs.stream()
-                .max(Comparator.comparing(Pair::getRight))
-                .map(Pair::getLeft)
-                .orElse(null);
+    /**
+     * Ranks the cryptos by their normalized range within each day of a range of days, as seen in the configured
+     * time zone, and over the whole range. The days are looked up in the day index of the store in a single pass,
+     * keeping the best cryptos of each one in a bounded heap, and all of them are read from the same values.
+     *
+     * @param from the first day
+     * @param to the last day, included
+     * @param size the max number of cryptos of each ranking
+     * @return the rankings of the range and of each of its days having values
+     */
+    @Override
+    public RangeRanking getNormalizedRangeRanking(LocalDate from, LocalDate to, int size) {
+        return leaderboard.compute(from, to, size);
     }
 
     /**
-     * Adds crypto info. If a csv file for the new crypto does not exist, it will be created,
-     * otherwise the info will be appended at the end of the corresponding csv file content.
-     * In order to add a new crypto, make sure it is supported by adding it first to {@link CryptoType} enum.
+     * Reads the crypto info of a certain crypto within a time range.
+     * The range bounds are binary searched in the sorted in-memory history.
      *
-     * @param cryptoValues list of cryptos to be added
+     * @param cryptoType the crypto to read
+     * @param from inclusive start of the range, or null for the oldest value
+     * @param to exclusive end of the range, or null for the newest value
+     * @return the values in the range, sorted by timestamp
      */
     @Override
-    public void addCrypto(List<CsvCrypto> cryptoValues) {
-        cryptoValues.stream()
-                .collect(Collectors.groupingBy(CsvCrypto::getSymbol))
-                .forEach((cryptoType, csvCryptoList) -> CsvCryptoUtil.writeCryptoToCsv(csvCryptoList, cryptoType));
+    public List<CsvCrypto> getPrices(CryptoType cryptoType, Instant from, Instant to) {
+        final PriceColumns columns = priceStore.columns(cryptoType);
+        final int start = from == null ? 0 : columns.lowerBound(from.toEpochMilli());
+        final int end = to == null ? columns.size() : columns.lowerBound(to.toEpochMilli());
+
+        final List<CsvCrypto> prices = new ArrayList<>(Math.max(0, end - start));
+        for (int i = start; i < end; i++) {
+            prices.add(columns.rowAt(i));
+        }
+        return prices;
     }
 
-    private BigDecimal computeNormalizedRange(Supplier<Stream<CsvCrypto>> streamSupplier) {
-        final double maxPrice = computeMaxPriceOptional(streamSupplier)
-                .orElseThrow(() -> new CryptoInvestmentException("Cannot compute max price!"))
-                .getPrice()
-                .doubleValue();
+    /**
+     * Downsamples the crypto info of a certain crypto into open/high/low/close candles.
+     * Candles are built from the hourly rollups maintained by the store, never from the raw values.
+     * A range bound inside an hour includes that whole hour.
+     *
+     * @param cryptoType the crypto to read
+     * @param interval the time covered by each candle
+     * @param from inclusive start of the range, or null for the oldest value
+     * @param to exclusive end of the range, or null for the newest value
+     * @return the candles with at least one value, sorted by timestamp
+     */
+    @Override
+    public List<Candle> getCandles(CryptoType cryptoType, CandleInterval interval, Instant from, Instant to) {
+        final PriceColumns columns = priceStore.columns(cryptoType);
+        final HourlyRollups.View rollups = columns.getHourlyRollups();
+        final int decimals = columns.getDecimals();
+        final int start = from == null ? 0 : rollups.lowerBound(HourlyRollups.hourStart(from.toEpochMilli()));
+        final int end = to == null ? rollups.size() : rollups.lowerBound(to.toEpochMilli());
 
-        final double minPrice = computeMinPriceOptional(streamSupplier)
-                .orElseThrow(() -> new CryptoInvestmentException("Cannot compute min price!"))
-                .getPrice()
-                .doubleValue();
+        final List<Candle> candles = new ArrayList<>();
+        int i = start;
+        while (i < end) {
+            final long candleKey = timeBuckets.key(interval, rollups.startAt(i));
+            final long open = rollups.openAt(i);
+            long high = rollups.highAt(i);
+            long low = rollups.lowAt(i);
+            long close = rollups.closeAt(i);
+            long count = rollups.countAt(i);
+            i++;
+            while (i < end && timeBuckets.key(interval, rollups.startAt(i)) == candleKey) {
+                high = Math.max(high, rollups.highAt(i));
+                low = Math.min(low, rollups.lowAt(i));
+                close = rollups.closeAt(i);
+                count += rollups.countAt(i);
+                i++;
+            }
 
-        return BigDecimal
-                .valueOf((maxPrice - minPrice) / minPrice)
-                .setScale(2, RoundingMode.HALF_UP);
+            candles.add(new Candle(timeBuckets.start(interval, candleKey),
+                    FixedPoint.toBigDecimal(open, decimals), FixedPoint.toBigDecimal(high, decimals),
+                    FixedPoint.toBigDecimal(low, decimals), FixedPoint.toBigDecimal(close, decimals),
+                    count));
+        }
+        return candles;
     }
 
-    private Optional<CsvCrypto> computeMinPriceOptional(Supplier<Stream<CsvCrypto>> streamSupplier) {
-        return streamSupplier.get()
-                .min(comparePrice());
+    /**
+     * Correlates the returns of cryptos and compares their performance on a common time grid.
+     * The grid is built from the hourly rollups maintained by the store, never from the raw values,
+     * and the pairs are correlated in parallel.
+     *
+     * @param cryptoTypes the cryptos to compare, or null or empty for all of them
+     * @param interval the time covered by each point of the grid
+     * @param from inclusive start of the range, or null for the oldest value
+     * @param to exclusive end of the range, or null for the newest value
+     * @return the correlation matrix and the performance of each crypto, sorted by symbol
+     */
+    @Override
+    public CorrelationMatrix getCorrelations(List<CryptoType> cryptoTypes, CandleInterval interval,
+                                            Instant from, Instant to) {
+        final List<CryptoType> symbols = cryptoTypes == null || cryptoTypes.isEmpty()
+                ? priceStore.symbols()
+                : cryptoTypes.stream().distinct().sorted().toList();
+        return correlationAnalysis.compute(symbols, interval, from, to);
     }
 
-    private Optional<CsvCrypto> computeMaxPriceOptional(Supplier<Stream<CsvCrypto>> streamSupplier) {
-        return streamSupplier.get()
-                .max(comparePrice());
+    /**
+     * Computes the normalized range, min/max, mean and standard deviation of a certain crypto over sliding windows
+     * ending with its newest value. The windows are maintained by the store as values are added,
+     * so reading them is constant-time regardless of the number of values they cover.
+     *
+     * @param cryptoType the crypto to read
+     * @param window the window to compute, or null for all of them
+     * @return the statistics of each window, none if the crypto has no values
+     */
+    @Override
+    public List<WindowStatistics> getWindowStatistics(CryptoType cryptoType, RollingWindow window) {
+        final PriceColumns columns = priceStore.columns(cryptoType);
+        if (columns.isEmpty()) {
+            return List.of();
+        }
+
+        final List<RollingWindow> windows = window == null ? List.of(RollingWindow.values()) : List.of(window);
+        final List<WindowStatistics> windowStatistics = new ArrayList<>(windows.size());
+        for (RollingWindow rollingWindow : windows) {
+            final RollingAggregate.View aggregate = columns.getRollingAggregate(rollingWindow);
+            final int decimals = columns.getDecimals();
+            windowStatistics.add(new WindowStatistics(cryptoType, rollingWindow.getCode(),
+                    aggregate.getFromTimestamp(), aggregate.getToTimestamp(), aggregate.getCount(),
+                    FixedPoint.toBigDecimal(aggregate.getMinPrice(), decimals),
+                    FixedPoint.toBigDecimal(aggregate.getMaxPrice(), decimals),
+                    NormalizedRangeRanking.normalize(aggregate.getMinPrice(), aggregate.getMaxPrice()),
+                    approximate(aggregate.getMean()), approximate(aggregate.getStandardDeviation())));
+        }
+        return windowStatistics;
     }
 
-    private Optional<CsvCrypto> computeOldestTimestampOptional(Supplier<Stream<CsvCrypto>> streamSupplier) {
-        return streamSupplier.get()
-                .min(compareTimestamp());
+    private static BigDecimal approximate(double value) {
+        return BigDecimal.valueOf(value).setScale(FixedPoint.MAX_DECIMALS, RoundingMode.HALF_UP).stripTrailingZeros();
     }
 
-    private Optional<CsvCrypto> computeNewestTimestampOptional(Supplier<Stream<CsvCrypto>> streamSupplier) {
-        return streamSupplier.get()
-                .max(compareTimestamp());
+    /**
+     * Answers many statistic and day queries at once, all of them against the same values of the store.
+     * Statistics of the same crypto and days share a single lookup of its running statistics or price distribution,
+     * and the queries are evaluated in parallel.
+     *
+     * @param batchQuery the queries to answer
+     * @return the answers, in the order of the queries
+     */
+    @Override
+    public BatchResult getBatch(BatchQuery batchQuery) {
+        return batchEvaluation.evaluate(batchQuery);
+    }
+
+    /**
+     * Does not wait for the history of the crypto to be loaded, so the statistics restored from the snapshot
+     * are served right after startup.
+     *
+     * @param cryptoType the crypto to look up
+     * @return the version of the latest published view of the crypto in the store
+     */
+    @Override
+    public long getDataVersion(CryptoType cryptoType) {
+        return priceStore.version(cryptoType);
     }
 
-    private static Comparator<CsvCrypto> comparePrice() {
-        return Comparator.comparing(CsvCrypto::getPrice);
+    /**
+     * @return the version of the whole store
+     */
+    @Override
+    public long getDataVersion() {
+        return priceStore.version();
     }
 
-    private static Comparator<CsvCrypto> compareTimestamp() {
-        return Comparator.comparing(CsvCrypto::getTimestamp);
+    /**
+     * Adds crypto info. If a csv file for the new crypto does not exist, it will be created,
+     * otherwise the info will be appended at the end of the corresponding csv file content.
+     * Cryptos seen for the first time are registered as new {@link CryptoType}s, without any restart.
+     * The values are group-committed together with the ones of concurrent requests, the call returns
+     * once they are written and visible to queries.
+     *
+     * @param cryptoValues list of cryptos to be added
+     */
+    @Override
+    public void addCrypto(List<CsvCrypto> cryptoValues) {
+        CryptoIngestPipeline.await(ingestPipeline.submit(cryptoValues));
     }
 
 }
@@ -0,0 +1,158 @@
+package com.ionutzbaur.crypto.investment.service.impl;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.DayRanking;
+import com.ionutzbaur.crypto.investment.domain.NormalizedRange;
+import com.ionutzbaur.crypto.investment.domain.RangeRanking;
+import com.ionutzbaur.crypto.investment.exception.InvalidRequestException;
+import com.ionutzbaur.crypto.investment.service.impl.NormalizedRangeRanking.RankedSymbol;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import com.ionutzbaur.crypto.investment.store.DayRanges;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ranks the cryptos by their normalized range (max-min)/min within each day of a range of days and over the whole
+ * range, keeping the top K of each. A single pass over the days looks them up in the day index of the store: the
+ * ranges of each day go through a bounded heap of its K best cryptos and widen the ranges of the cryptos over the
+ * whole range, so a day costs O(cryptos log K) regardless of the number of values.
+ * Cryptos are compared by their exact normalized range, ties keeping the symbols order.
+ */
+class NormalizedRangeLeaderboard {
+
+    private static final Comparator<RankedSymbol> BEST_FIRST = Comparator
+            .comparingDouble(RankedSymbol::normalizedRange).reversed()
+            .thenComparing(RankedSymbol::symbol);
+
+    private final CryptoPriceStore priceStore;
+    private final int maxDays;
+
+    NormalizedRangeLeaderboard(CryptoPriceStore priceStore, int maxDays) {
+        this.priceStore = priceStore;
+        this.maxDays = maxDays;
+    }
+
+    /**
+     * @param from the first day
+     * @param to the last day, included
+     * @param size the max number of cryptos of each ranking
+     * @return the rankings, all of them computed from the same values
+     * @throws InvalidRequestException if the range is empty or longer than the max number of days, or the size is not positive
+     */
+    RangeRanking compute(LocalDate from, LocalDate to, int size) {
+        if (from.isAfter(to)) {
+            throw new InvalidRequestException("The first day of the range is after the last one");
+        }
+        final long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days > maxDays) {
+            throw new InvalidRequestException("The range holds " + days + " days, more than the "
+                    + maxDays + " supported! Choose a shorter range");
+        }
+        if (size < 1) {
+            throw new InvalidRequestException("The size of the rankings must be at least 1");
+        }
+
+        return priceStore.readConsistent(() -> rank(from, to, size));
+    }
+
+    private RangeRanking rank(LocalDate from, LocalDate to, int size) {
+        final List<CryptoType> symbols = priceStore.symbols();
+        final int count = CryptoType.count();
+        final long[] minPrices = new long[count];
+        final long[] maxPrices = new long[count];
+        final int[] decimals = new int[count];
+        Arrays.fill(decimals, -1);
+
+        final List<DayRanking> dayRankings = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            final DayRanges dayRanges = priceStore.dayRanges(day);
+            if (dayRanges == null) {
+                continue;
+            }
+            dayRankings.add(new DayRanking(day, top(dayRanges, symbols, size)));
+
+            for (CryptoType cryptoType : symbols) {
+                final int dayDecimals = dayRanges.getDecimals(cryptoType);
+                if (dayDecimals < 0) {
+                    continue;
+                }
+                final int index = cryptoType.index();
+                if (decimals[index] < 0) {
+                    minPrices[index] = dayRanges.getMinPrice(cryptoType);
+                    maxPrices[index] = dayRanges.getMaxPrice(cryptoType);
+                    decimals[index] = dayDecimals;
+                } else {
+                    final int mergedDecimals = Math.max(decimals[index], dayDecimals);
+                    minPrices[index] = Math.min(FixedPoint.rescale(minPrices[index], decimals[index], mergedDecimals),
+                            FixedPoint.rescale(dayRanges.getMinPrice(cryptoType), dayDecimals, mergedDecimals));
+                    maxPrices[index] = Math.max(FixedPoint.rescale(maxPrices[index], decimals[index], mergedDecimals),
+                            FixedPoint.rescale(dayRanges.getMaxPrice(cryptoType), dayDecimals, mergedDecimals));
+                    decimals[index] = mergedDecimals;
+                }
+            }
+        }
+
+        final TopRanking ranking = new TopRanking(size);
+        for (CryptoType cryptoType : symbols) {
+            final int index = cryptoType.index();
+            if (decimals[index] >= 0) {
+                ranking.offer(new RankedSymbol(cryptoType, minPrices[index], maxPrices[index], decimals[index]));
+            }
+        }
+        return new RangeRanking(from, to, ranking.toList(), dayRankings);
+    }
+
+    /**
+     * @param dayRanges the price ranges of a day
+     * @param symbols the cryptos to compare
+     * @param size the max number of cryptos to rank
+     * @return the cryptos with the highest normalized ranges within the day, best first
+     */
+    static List<NormalizedRange> top(DayRanges dayRanges, List<CryptoType> symbols, int size) {
+        final TopRanking ranking = new TopRanking(size);
+        for (CryptoType cryptoType : symbols) {
+            if (dayRanges.contains(cryptoType)) {
+                ranking.offer(new RankedSymbol(cryptoType, dayRanges.getMinPrice(cryptoType),
+                        dayRanges.getMaxPrice(cryptoType), dayRanges.getDecimals(cryptoType)));
+            }
+        }
+        return ranking.toList();
+    }
+
+    /**
+     * The best cryptos offered so far, in a heap whose root is the worst of them.
+     */
+    private static final class TopRanking {
+
+        private final int size;
+        private final PriorityQueue<RankedSymbol> heap;
+
+        TopRanking(int size) {
+            this.size = size;
+            this.heap = new PriorityQueue<>(BEST_FIRST.reversed());
+        }
+
+        void offer(RankedSymbol rankedSymbol) {
+            if (heap.size() < size) {
+                heap.add(rankedSymbol);
+            } else if (BEST_FIRST.compare(rankedSymbol, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(rankedSymbol);
+            }
+        }
+
+        List<NormalizedRange> toList() {
+            return heap.stream()
+                    .sorted(BEST_FIRST)
+                    .map(RankedSymbol::toNormalizedRange)
+                    .toList();
+        }
+    }
+}
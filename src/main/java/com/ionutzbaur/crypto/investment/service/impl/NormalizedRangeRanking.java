@@ -0,0 +1,94 @@
+package com.ionutzbaur.crypto.investment.service.impl;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.NormalizedRange;
+import com.ionutzbaur.crypto.investment.metrics.CryptoMetrics;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import com.ionutzbaur.crypto.investment.store.PriceStatistics;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ranks the cryptos descending by their normalized range (max-min)/min over the whole history.
+ * The ranking is derived from the running statistics of the store in a single pass over the symbols
+ * and cached until the store version changes.
+ */
+class NormalizedRangeRanking {
+
+    private final CryptoPriceStore priceStore;
+    private final CryptoMetrics metrics;
+
+    private volatile CachedRanking cachedRanking;
+
+    NormalizedRangeRanking(CryptoPriceStore priceStore, CryptoMetrics metrics) {
+        this.priceStore = priceStore;
+        this.metrics = metrics;
+    }
+
+    List<NormalizedRange> get() {
+        final long version = priceStore.version();
+        final CachedRanking cached = cachedRanking;
+        final boolean hit = cached != null && cached.version == version;
+        metrics.rankingCache(hit);
+        if (hit) {
+            return cached.ranking;
+        }
+
+        // the version is read before computing, so a concurrent append can only make the cache stale, never wrong
+        final List<NormalizedRange> ranking = compute();
+        cachedRanking = new CachedRanking(version, ranking);
+        return ranking;
+    }
+
+    private List<NormalizedRange> compute() {
+        final List<RankedSymbol> rankedSymbols = new ArrayList<>();
+        for (CryptoType cryptoType : priceStore.symbols()) {
+            final PriceStatistics statistics = priceStore.statistics(cryptoType);
+            if (!statistics.isEmpty()) {
+                rankedSymbols.add(new RankedSymbol(cryptoType,
+                        statistics.getMinPrice(), statistics.getMaxPrice(), statistics.getDecimals()));
+            }
+        }
+        rankedSymbols.sort(Comparator.comparingDouble(RankedSymbol::normalizedRange).reversed());
+
+        return rankedSymbols.stream()
+                .map(RankedSymbol::toNormalizedRange)
+                .toList();
+    }
+
+    /**
+     * @param minPrice the min price, fixed-point
+     * @param maxPrice the max price, with the same decimals as the min price
+     * @return (max-min)/min rounded to 2 decimals, the ratio not depending on the number of decimals
+     */
+    static BigDecimal normalize(long minPrice, long maxPrice) {
+        return BigDecimal.valueOf(maxPrice - minPrice)
+                .divide(BigDecimal.valueOf(minPrice), 2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Min/max prices of a crypto, scaled by 10^decimals.
+     */
+    record RankedSymbol(CryptoType symbol, long minPrice, long maxPrice, int decimals) {
+
+        /**
+         * @return the exact normalized range, to compare cryptos by
+         */
+        double normalizedRange() {
+            return (maxPrice - minPrice) / (double) minPrice;
+        }
+
+        NormalizedRange toNormalizedRange() {
+            return new NormalizedRange(symbol, normalize(minPrice, maxPrice),
+                    FixedPoint.toBigDecimal(minPrice, decimals), FixedPoint.toBigDecimal(maxPrice, decimals));
+        }
+    }
+
+    private record CachedRanking(long version, List<NormalizedRange> ranking) {
+    }
+}
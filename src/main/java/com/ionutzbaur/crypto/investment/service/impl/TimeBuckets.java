@@ -0,0 +1,49 @@
+package com.ionutzbaur.crypto.investment.service.impl;
+
+import com.ionutzbaur.crypto.investment.domain.CandleInterval;
+import com.ionutzbaur.crypto.investment.store.DayCalendar;
+import com.ionutzbaur.crypto.investment.store.HourlyRollups;
+
+import java.time.LocalDate;
+
+/**
+ * Numbers the hours, days and weeks (starting on Monday) of the configured time zone,
+ * consecutive intervals having consecutive keys. The offsets of the zone are whole hours, see
+ * {@link DayCalendar#isHourAligned}, so an hour falls in a single day.
+ */
+final class TimeBuckets {
+
+    /**
+     * 1970-01-01 was a Thursday, shifting the epoch day by 3 makes weeks start on Monday.
+     */
+    private static final int EPOCH_DAY_TO_MONDAY = 3;
+
+    private final DayCalendar calendar;
+
+    TimeBuckets(DayCalendar calendar) {
+        this.calendar = calendar;
+    }
+
+    /**
+     * @return a number identifying the interval the given hour falls in: the epoch hour, the epoch day or the epoch week
+     */
+    long key(CandleInterval interval, long hourStart) {
+        return switch (interval) {
+            case HOUR -> Math.floorDiv(hourStart, HourlyRollups.HOUR_MILLIS);
+            case DAY -> calendar.epochDay(hourStart);
+            case WEEK -> Math.floorDiv(calendar.epochDay(hourStart) + EPOCH_DAY_TO_MONDAY, 7);
+        };
+    }
+
+    /**
+     * @return the epoch millis the interval with the given key starts at
+     */
+    long start(CandleInterval interval, long key) {
+        return switch (interval) {
+            case HOUR -> key * HourlyRollups.HOUR_MILLIS;
+            case DAY -> LocalDate.ofEpochDay(key).atStartOfDay(calendar.getZoneId()).toInstant().toEpochMilli();
+            case WEEK -> LocalDate.ofEpochDay(key * 7 - EPOCH_DAY_TO_MONDAY)
+                    .atStartOfDay(calendar.getZoneId()).toInstant().toEpochMilli();
+        };
+    }
+}
@@ -0,0 +1,778 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.DuplicatePolicy;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import com.ionutzbaur.crypto.investment.metrics.CryptoMetrics;
+import com.ionutzbaur.crypto.investment.util.CsvCryptoUtil;
+import com.ionutzbaur.crypto.investment.util.CsvPriceReader;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-memory store holding the price history of every {@link CryptoType}.
+ * The cryptos are discovered from the CSV files in the price directory ({@code crypto.data-dir}), or registered when
+ * values are first added. The CSV files are parsed only once at startup, afterwards all the queries are answered
+ * from memory; lines appended to them by other processes are read incrementally, see {@link #ingestCsvTail}.
+ * The series are kept in an array indexed by {@link CryptoType#index()}, replaced whenever a crypto is added,
+ * so lookups are lock-free.
+ * Values sharing the timestamp of another value of the same crypto are handled as per {@code crypto.duplicate-policy}.
+ * The price histories are loaded in the background, so the service is ready right after startup: a query waits for
+ * the history of the cryptos it reads, except for the statistics of the cryptos restored from the
+ * {@link StoreSnapshot} taken at the last shutdown, which are available at once. So are their day ranges, a day
+ * being looked up once the cryptos loaded without restored ranges are, see {@link #dayRanges}.
+ */
+@Component
+public class CryptoPriceStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CryptoPriceStore.class);
+
+    private static final int LOAD_CHUNK_SIZE = 8192;
+    private static final int DEFAULT_LOAD_PARALLELISM = 4;
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
+    private volatile PriceSeries[] seriesByIndex = new PriceSeries[0];
+    private volatile List<CryptoType> symbols = List.of();
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Appends hold the read lock, shared among them, so a consistent read falling back to the write lock excludes
+     * them all; the counters tell optimistic consistent reads whether an append overlapped them.
+     */
+    private final ReadWriteLock appendLock = new ReentrantReadWriteLock();
+    private final AtomicLong appendsStarted = new AtomicLong();
+    private final AtomicLong appendsFinished = new AtomicLong();
+
+    private final List<Consumer<CryptoType>> updateListeners = new CopyOnWriteArrayList<>();
+
+    private final DayIndex dayIndex;
+
+    private final DistributionIndex distributionIndex;
+
+    private final Path dataDirectory;
+
+    /**
+     * The number of bytes of each CSV file already loaded, always at the start of a line.
+     */
+    private final Map<CryptoType, Long> csvOffsets = new ConcurrentHashMap<>();
+
+    /**
+     * Serializes the reads of appended lines with the compactions rewriting the CSV files.
+     */
+    private final Object csvLock = new Object();
+
+    private final boolean segmentsEnabled;
+
+    private final int loadParallelism;
+
+    private final DuplicatePolicy duplicatePolicy;
+
+    private final CryptoMetrics metrics;
+
+    private final boolean snapshotEnabled;
+
+    private final Duration snapshotInterval;
+
+    /**
+     * The cryptos whose price history is still being loaded, completed once it is.
+     */
+    private final Map<CryptoType, CompletableFuture<Void>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * The statistics of the cryptos being loaded, as restored from the snapshot.
+     */
+    private final Map<CryptoType, PriceStatistics> restoredStatistics = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService snapshotScheduler;
+
+    private long snapshotVersion = -1;
+
+    public CryptoPriceStore(ZoneId zoneId, boolean segmentsEnabled) {
+        this(zoneId, segmentsEnabled, DuplicatePolicy.LAST_WRITE_WINS);
+    }
+
+    public CryptoPriceStore(ZoneId zoneId, boolean segmentsEnabled, DuplicatePolicy duplicatePolicy) {
+        this(zoneId, CsvCryptoUtil.DEFAULT_DATA_DIRECTORY, segmentsEnabled, DEFAULT_LOAD_PARALLELISM, duplicatePolicy,
+                false, Duration.ZERO, CryptoMetrics.noop());
+    }
+
+    @Autowired
+    public CryptoPriceStore(@Value("${crypto.zone-id:UTC}") ZoneId zoneId,
+                            @Value("${crypto.data-dir:src/main/resources/prices}") Path dataDirectory,
+                            @Value("${crypto.segments.enabled:true}") boolean segmentsEnabled,
+                            @Value("${crypto.load.parallelism:" + DEFAULT_LOAD_PARALLELISM + "}") int loadParallelism,
+                            @Value("${crypto.duplicate-policy:last-write-wins}") DuplicatePolicy duplicatePolicy,
+                            @Value("${crypto.snapshot.enabled:true}") boolean snapshotEnabled,
+                            @Value("${crypto.snapshot.interval:10m}") Duration snapshotInterval,
+                            CryptoMetrics metrics) {
+        if (loadParallelism < 1) {
+            throw new CryptoInvestmentException("crypto.load.parallelism must be at least 1");
+        }
+        if (!DayCalendar.isHourAligned(zoneId)) {
+            // the day and week candles are built from the hourly rollups, which are UTC hours
+            throw new CryptoInvestmentException("crypto.zone-id must be a whole number of hours ahead of or behind UTC, "
+                    + zoneId + " is not");
+        }
+        this.dayIndex = new DayIndex(new DayCalendar(zoneId));
+        this.distributionIndex = new DistributionIndex(dayIndex);
+        this.dataDirectory = dataDirectory;
+        this.segmentsEnabled = segmentsEnabled;
+        this.loadParallelism = loadParallelism;
+        this.duplicatePolicy = duplicatePolicy;
+        this.snapshotEnabled = snapshotEnabled;
+        this.snapshotInterval = snapshotInterval;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Loads the content of all the CSV files found in the price directory into memory.
+     * When enabled, an up-to-date binary segment of a CSV file is mapped and copied instead of parsing the text,
+     * otherwise the CSV file is parsed and converted to a segment for the next startup.
+     * Append logs left by the previous run are first recovered into their CSV file, see {@link PriceCompaction}.
+     * Each file is streamed in fixed-size chunks, so no intermediate representation of a whole file is built.
+     * The cryptos are loaded concurrently, each on its own virtual thread, with at most {@code crypto.load.parallelism}
+     * files read at the same time. The method returns as soon as the cryptos are discovered and the aggregates of
+     * the snapshot matching their unchanged CSV file are restored, the histories being loaded in the background.
+     */
+    @PostConstruct
+    public void load() {
+        final List<CryptoType> cryptoTypes;
+        try {
+            cryptoTypes = CsvCryptoUtil.discoverCryptos(dataDirectory);
+        } catch (IOException e) {
+            throw new CryptoInvestmentException(e);
+        }
+
+        final Map<CryptoType, StoreSnapshot.Entry> snapshot = snapshotEnabled ? readSnapshot() : Map.of();
+        int restored = 0;
+        for (CryptoType cryptoType : cryptoTypes) {
+            loading.put(cryptoType, new CompletableFuture<>());
+            series(cryptoType);
+            if (restore(cryptoType, snapshot.get(cryptoType))) {
+                restored++;
+            }
+        }
+        if (snapshotEnabled) {
+            LOGGER.info("Restored the aggregates of {} out of {} cryptos from the snapshot", restored, cryptoTypes.size());
+        }
+        version.incrementAndGet();
+
+        Thread.ofPlatform().name("crypto-load").daemon().start(() -> loadAll(cryptoTypes));
+        if (snapshotEnabled && snapshotInterval.isPositive()) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                    .name("crypto-snapshot")
+                    .daemon()
+                    .factory());
+            snapshotScheduler.scheduleWithFixedDelay(this::writeSnapshotQuietly, snapshotInterval.toMillis(),
+                    snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Map<CryptoType, StoreSnapshot.Entry> readSnapshot() {
+        final Path snapshotPath = dataDirectory.resolve(StoreSnapshot.FILE_NAME);
+        try {
+            return StoreSnapshot.read(snapshotPath, dayIndex.getZoneId(), duplicatePolicy);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Ignoring the snapshot {}", snapshotPath, e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * Publishes the aggregates of the given snapshot entry, if the CSV file they were taken from was left untouched.
+     *
+     * @return whether the aggregates were restored
+     */
+    private boolean restore(CryptoType cryptoType, StoreSnapshot.Entry entry) {
+        if (entry == null) {
+            return false;
+        }
+        try {
+            // values added before the last shutdown or crash, not compacted yet
+            if (!CsvCryptoUtil.getLogPaths(dataDirectory, cryptoType).isEmpty()
+                    || !entry.isUpToDate(CsvCryptoUtil.getCsvPath(dataDirectory, cryptoType))) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        restoredStatistics.put(cryptoType, entry.statistics());
+        dayIndex.restore(cryptoType, entry.days());
+        return true;
+    }
+
+    private void loadAll(List<CryptoType> cryptoTypes) {
+        final long start = System.nanoTime();
+        final Semaphore permits = new Semaphore(loadParallelism);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (CryptoType cryptoType : cryptoTypes) {
+                executor.execute(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        final long loadStart = System.nanoTime();
+                        load(cryptoType);
+                        metrics.loadCompleted(cryptoType, System.nanoTime() - loadStart);
+                    } catch (Exception e) {
+                        LOGGER.error("Cannot retrieve info for {}", cryptoType, e);
+                        metrics.loadFailed(cryptoType);
+                    } finally {
+                        permits.release();
+                        restoredStatistics.remove(cryptoType);
+                        version.incrementAndGet();
+                        loading.remove(cryptoType).complete(null);
+                    }
+                });
+            }
+        }
+        LOGGER.info("Loaded the price history of {} cryptos in {} ms", cryptoTypes.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Waits for the price history of all the cryptos found at startup to be loaded.
+     */
+    public void awaitLoaded() {
+        if (loading.isEmpty()) {
+            return;
+        }
+        CompletableFuture.allOf(loading.values().toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void awaitLoaded(CryptoType cryptoType) {
+        final CompletableFuture<Void> loaded = loading.get(cryptoType);
+        if (loaded != null) {
+            loaded.join();
+        }
+    }
+
+    /**
+     * Saves the aggregates of every crypto whose values all come from its CSV file, see {@link StoreSnapshot}.
+     * Cryptos with values in append logs are left out, their CSV file changing once the logs are compacted.
+     * Nothing is written while the price histories are being loaded, or if no value was added since the last snapshot.
+     *
+     * @throws IOException if writing the snapshot fails
+     */
+    void writeSnapshot() throws IOException {
+        if (!loading.isEmpty()) {
+            LOGGER.debug("Skipping the snapshot while loading");
+            return;
+        }
+        // no CSV file changes meanwhile, so the aggregates and the file sizes match
+        synchronized (csvLock) {
+            final long currentVersion = version.get();
+            if (currentVersion == snapshotVersion) {
+                return;
+            }
+
+            final Map<CryptoType, List<DayIndex.DayRange>> days = dayIndex.rangesByCrypto();
+            final List<StoreSnapshot.Entry> entries = new ArrayList<>();
+            for (CryptoType cryptoType : symbols) {
+                final Path csvPath = CsvCryptoUtil.getCsvPath(dataDirectory, cryptoType);
+                if (!Files.exists(csvPath) || !CsvCryptoUtil.getLogPaths(dataDirectory, cryptoType).isEmpty()
+                        || Files.size(csvPath) != csvOffsets.getOrDefault(cryptoType, -1L)) {
+                    continue;
+                }
+                entries.add(new StoreSnapshot.Entry(cryptoType, Files.size(csvPath),
+                        Files.getLastModifiedTime(csvPath).toMillis(), statistics(cryptoType),
+                        days.getOrDefault(cryptoType, List.of())));
+            }
+            StoreSnapshot.write(dataDirectory.resolve(StoreSnapshot.FILE_NAME), dayIndex.getZoneId(), duplicatePolicy,
+                    entries);
+            snapshotVersion = currentVersion;
+            LOGGER.debug("Saved the aggregates of {} cryptos", entries.size());
+        }
+    }
+
+    private void writeSnapshotQuietly() {
+        try {
+            writeSnapshot();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Cannot write the snapshot", e);
+        }
+    }
+
+    /**
+     * Stops the periodic snapshots and takes a last one, for the next startup.
+     */
+    @PreDestroy
+    public void close() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        if (snapshotEnabled) {
+            writeSnapshotQuietly();
+        }
+    }
+
+    private void load(CryptoType cryptoType) throws IOException {
+        final PriceSeries series = series(cryptoType);
+        final Path csvPath = CsvCryptoUtil.getCsvPath(dataDirectory, cryptoType);
+
+        final List<Path> logPaths = CsvCryptoUtil.getLogPaths(dataDirectory, cryptoType);
+        if (!logPaths.isEmpty()) {
+            // values added before the last shutdown or crash, not compacted yet
+            loadColumns(series, compact(cryptoType, csvPath, logPaths));
+            return;
+        }
+
+        // taken before reading, so lines appended meanwhile may be read again later but are never skipped
+        csvOffsets.put(cryptoType, Files.exists(csvPath) ? CsvCryptoUtil.getCompleteLinesLength(csvPath) : 0);
+
+        if (segmentsEnabled) {
+            final PriceSegment segment = PriceSegment.openIfUpToDate(csvPath, duplicatePolicy);
+            metrics.segmentCache(segment != null);
+            if (segment != null) {
+                loadSegment(series, segment);
+                metrics.segmentRead(cryptoType, segment.size(), segment.byteSize());
+                return;
+            }
+        }
+
+        loadCsv(series, csvPath);
+
+        if (segmentsEnabled) {
+            try {
+                PriceSegment.write(series.columns(), duplicatePolicy, csvPath);
+            } catch (IOException e) {
+                LOGGER.warn("Cannot write the price segment for {}", cryptoType, e);
+            }
+        }
+    }
+
+    private void loadSegment(PriceSeries series, PriceSegment segment) {
+        final long[] timestamps = new long[LOAD_CHUNK_SIZE];
+        final long[] prices = new long[LOAD_CHUNK_SIZE];
+        for (int from = 0; from < segment.size(); from += LOAD_CHUNK_SIZE) {
+            final int count = Math.min(LOAD_CHUNK_SIZE, segment.size() - from);
+            segment.copyTo(from, timestamps, prices, count);
+            append(series, timestamps, prices, segment.getDecimals(), count);
+        }
+    }
+
+    private void loadColumns(PriceSeries series, PriceColumns columns) {
+        final long[] timestamps = new long[LOAD_CHUNK_SIZE];
+        final long[] prices = new long[LOAD_CHUNK_SIZE];
+        for (int from = 0; from < columns.size(); from += LOAD_CHUNK_SIZE) {
+            final int count = Math.min(LOAD_CHUNK_SIZE, columns.size() - from);
+            for (int i = 0; i < count; i++) {
+                timestamps[i] = columns.timestampAt(from + i);
+                prices[i] = columns.priceAt(from + i);
+            }
+            append(series, timestamps, prices, columns.getDecimals(), count);
+        }
+    }
+
+    private void loadCsv(PriceSeries series, Path csvPath) throws IOException {
+        final CryptoType cryptoType = series.getSymbol();
+        final PriceChunk chunk = new PriceChunk(LOAD_CHUNK_SIZE);
+        final long[] otherSymbols = {0};
+
+        final CsvPriceReader.Result result = CsvCryptoUtil.readCryptoFromCsv(csvPath, (symbol, timestamp, price, decimals) -> {
+            if (symbol != cryptoType) {
+                otherSymbols[0]++;
+                return;
+            }
+            chunk.add(timestamp, price, decimals);
+            if (chunk.isFull()) {
+                append(series, chunk.timestamps, chunk.prices, chunk.decimals, chunk.count);
+                chunk.clear();
+            }
+        });
+        if (chunk.count > 0) {
+            append(series, chunk.timestamps, chunk.prices, chunk.decimals, chunk.count);
+        }
+        metrics.csvRead(cryptoType, result);
+
+        if (result.malformedRows() > 0 || otherSymbols[0] > 0) {
+            LOGGER.warn("Skipped {} malformed lines and {} lines of other cryptos while loading {}",
+                    result.malformedRows(), otherSymbols[0], cryptoType);
+        }
+    }
+
+    /**
+     * Folds sealed append logs of a crypto into its CSV file, see {@link PriceCompaction}.
+     * The values are already in memory, only the files change; logs already folded by a previous compaction
+     * are skipped.
+     *
+     * @param cryptoType the crypto to compact
+     * @param logPaths the append logs to fold, none of them being written to anymore
+     * @throws IOException if reading or writing a file fails, then the CSV file and the logs are left untouched
+     */
+    public void compact(CryptoType cryptoType, List<Path> logPaths) throws IOException {
+        awaitLoaded(cryptoType);
+        synchronized (csvLock) {
+            // lines appended by other processes are loaded before the file is rewritten
+            ingestCsvTail(cryptoType);
+            compact(cryptoType, CsvCryptoUtil.getCsvPath(dataDirectory, cryptoType), logPaths);
+        }
+    }
+
+    private PriceColumns compact(CryptoType cryptoType, Path csvPath, List<Path> logPaths) throws IOException {
+        synchronized (csvLock) {
+            final long start = System.nanoTime();
+            final PriceCompaction.Result result = PriceCompaction.compact(cryptoType, csvPath, logPaths,
+                    duplicatePolicy, segmentsEnabled);
+            csvOffsets.put(cryptoType, Files.size(csvPath));
+            metrics.compactionCompleted(cryptoType, System.nanoTime() - start, result);
+            LOGGER.info("Compacted {} logged values of {} into {}, dropping {} duplicates",
+                    result.logRecords(), cryptoType, csvPath, result.duplicates());
+            return result.columns();
+        }
+    }
+
+    /**
+     * Loads the lines appended to the CSV file of a crypto since it was last read, typically by another process
+     * exporting prices to the price directory, and makes them visible to all the subsequent queries.
+     * Only the new lines are parsed, in the default column order, a last line not terminated yet being left
+     * for the next call. A file shorter than what was already read was replaced, so it is read again from the start:
+     * its values are merged with the ones in memory as per the duplicate policy.
+     *
+     * @param cryptoType the crypto whose file changed
+     * @return the number of values loaded
+     * @throws IOException if reading the file fails
+     */
+    public long ingestCsvTail(CryptoType cryptoType) throws IOException {
+        awaitLoaded(cryptoType);
+        synchronized (csvLock) {
+            final Path csvPath = CsvCryptoUtil.getCsvPath(dataDirectory, cryptoType);
+            if (!Files.exists(csvPath)) {
+                return 0;
+            }
+            long offset = csvOffsets.getOrDefault(cryptoType, 0L);
+            if (Files.size(csvPath) < offset) {
+                LOGGER.warn("{} was truncated or replaced, reading it again from the start", csvPath);
+                offset = 0;
+            }
+
+            final PriceChunk chunk = new PriceChunk(LOAD_CHUNK_SIZE);
+            final long[] rows = {0};
+            final long newOffset = CsvCryptoUtil.readCsvTail(csvPath, offset, (symbol, timestamp, price, decimals) -> {
+                if (symbol != cryptoType) {
+                    return;
+                }
+                chunk.add(timestamp, price, decimals);
+                rows[0]++;
+                if (chunk.isFull()) {
+                    append(series(cryptoType), chunk.timestamps, chunk.prices, chunk.decimals, chunk.count);
+                    chunk.clear();
+                }
+            });
+            if (chunk.count > 0) {
+                append(series(cryptoType), chunk.timestamps, chunk.prices, chunk.decimals, chunk.count);
+            }
+            csvOffsets.put(cryptoType, newOffset);
+
+            if (rows[0] > 0) {
+                updated(cryptoType);
+            }
+            return rows[0];
+        }
+    }
+
+    /**
+     * @return the directory holding the price files
+     */
+    public Path getDataDirectory() {
+        return dataDirectory;
+    }
+
+    /**
+     * @param cryptoType the crypto to look up
+     * @return the latest view of the price history for the given crypto
+     */
+    public PriceColumns columns(CryptoType cryptoType) {
+        awaitLoaded(cryptoType);
+        final PriceSeries series = findSeries(cryptoType);
+        return series != null ? series.columns() : new PriceSeries(cryptoType, duplicatePolicy).columns();
+    }
+
+    /**
+     * Checks that the given values can be added to the price history of the given crypto, without adding them:
+     * their prices scaled to the decimals of the history, or the history rescaled to the decimals of the prices.
+     *
+     * @param cryptoType the crypto of the values
+     * @param cryptoValues the values to add
+     * @throws CryptoInvestmentException if a price is out of range once scaled
+     */
+    public void checkAppendable(CryptoType cryptoType, List<CsvCrypto> cryptoValues) {
+        final PriceStatistics statistics = columns(cryptoType).getStatistics();
+        int decimals = statistics.isEmpty() ? 0 : statistics.getDecimals();
+        for (CsvCrypto csvCrypto : cryptoValues) {
+            decimals = Math.max(decimals, FixedPoint.decimalsOf(csvCrypto.getPrice()));
+        }
+        for (CsvCrypto csvCrypto : cryptoValues) {
+            FixedPoint.toScaled(csvCrypto.getPrice(), decimals);
+        }
+        // every price of the history lies between its min and max ones
+        if (!statistics.isEmpty()) {
+            FixedPoint.rescale(statistics.getMinPrice(), statistics.getDecimals(), decimals);
+            FixedPoint.rescale(statistics.getMaxPrice(), statistics.getDecimals(), decimals);
+        }
+    }
+
+    /**
+     * @param cryptoType the crypto to look up
+     * @param timestamp epoch millis
+     * @return whether the price history of the given crypto holds a value with the given timestamp
+     */
+    public boolean containsTimestamp(CryptoType cryptoType, long timestamp) {
+        final PriceColumns columns = columns(cryptoType);
+        final int index = columns.lowerBound(timestamp);
+        return index < columns.size() && columns.timestampAt(index) == timestamp;
+    }
+
+    /**
+     * @return how values sharing the timestamp of another value of the same crypto are handled
+     */
+    public DuplicatePolicy getDuplicatePolicy() {
+        return duplicatePolicy;
+    }
+
+    /**
+     * @return the cryptos having a price history in the store, sorted by name
+     */
+    public List<CryptoType> symbols() {
+        return symbols;
+    }
+
+    /**
+     * @param cryptoType the crypto to look up
+     * @return the running aggregate over the whole price history of the given crypto, the one restored from
+     * the snapshot while the history is being loaded
+     */
+    public PriceStatistics statistics(CryptoType cryptoType) {
+        final PriceStatistics restored = restoredStatistics.get(cryptoType);
+        return restored != null ? restored : columns(cryptoType).getStatistics();
+    }
+
+    /**
+     * @param cryptoType the crypto to look up
+     * @param from the first day, in the configured time zone, or null for the oldest one
+     * @param to the last day, included, or null for the newest one
+     * @return the distribution of the prices of the given crypto within the given days, or null if there are none
+     */
+    public PriceDistribution distribution(CryptoType cryptoType, LocalDate from, LocalDate to) {
+        awaitLoaded(cryptoType);
+        return distributionIndex.get(cryptoType, from, to);
+    }
+
+    /**
+     * Makes the given values visible to all the subsequent queries.
+     *
+     * @param cryptoType the crypto the values belong to
+     * @param cryptoValues the values to be added
+     */
+    public void append(CryptoType cryptoType, List<CsvCrypto> cryptoValues) {
+        awaitLoaded(cryptoType);
+        append(series(cryptoType), cryptoValues);
+        updated(cryptoType);
+    }
+
+    private void updated(CryptoType cryptoType) {
+        version.incrementAndGet();
+        for (Consumer<CryptoType> updateListener : updateListeners) {
+            updateListener.accept(cryptoType);
+        }
+    }
+
+    /**
+     * Registers a listener called with the crypto whose values were added, once they are visible to queries.
+     * Listeners are called on the adding thread, so they must return quickly. Values loaded at startup are not notified.
+     *
+     * @param updateListener the listener to call
+     */
+    public void addUpdateListener(Consumer<CryptoType> updateListener) {
+        updateListeners.add(updateListener);
+    }
+
+    /**
+     * Waits for the price histories of the cryptos being loaded without ranges restored from the snapshot,
+     * whose days would otherwise only be partly indexed. The restored ranges are served meanwhile, the loading of
+     * their crypto indexing the same values again.
+     *
+     * @param day the day to look up, in the configured time zone
+     * @return the price ranges of all the cryptos with values in the given day, or null if there are none
+     */
+    public DayRanges dayRanges(LocalDate day) {
+        loading.forEach((cryptoType, loaded) -> {
+            if (!restoredStatistics.containsKey(cryptoType)) {
+                loaded.join();
+            }
+        });
+        return dayIndex.get(day);
+    }
+
+    /**
+     * @return the days of the configured time zone, as per the day index
+     */
+    public DayCalendar calendar() {
+        return dayIndex.getCalendar();
+    }
+
+    /**
+     * @return a number that changes every time new values become visible, usable to invalidate derived caches
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Unlike the other lookups, does not wait for the history of the crypto to be loaded, so it can tag the statistics
+     * restored from the snapshot: it changes with every chunk of the history being loaded, as with every append.
+     *
+     * @param cryptoType the crypto to look up
+     * @return the version of the latest published view of the price history of the given crypto, 0 while it has none
+     */
+    public long version(CryptoType cryptoType) {
+        final PriceSeries series = findSeries(cryptoType);
+        return series != null ? series.columns().getVersion() : 0;
+    }
+
+    /**
+     * Runs a read-only query against a consistent state of the store, once the price histories are loaded:
+     * no values are added while it runs, so all its lookups see the same values, their statistics and
+     * their indexes. The query runs optimistically alongside the appends and is run again if one overlapped it,
+     * the last attempt holding the appends off; it may thus run more than once.
+     *
+     * @param query the query to run, reading the store only
+     * @return the result of the query
+     */
+    public <T> T readConsistent(Supplier<T> query) {
+        awaitLoaded();
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            // read before the started ones, so that equal counts mean no append was running at that point
+            final long finished = appendsFinished.get();
+            if (appendsStarted.get() == finished) {
+                final T result = query.get();
+                if (appendsStarted.get() == finished) {
+                    return result;
+                }
+            }
+            Thread.yield();
+        }
+
+        appendLock.writeLock().lock();
+        try {
+            return query.get();
+        } finally {
+            appendLock.writeLock().unlock();
+        }
+    }
+
+    private PriceSeries findSeries(CryptoType cryptoType) {
+        final PriceSeries[] series = seriesByIndex;
+        return cryptoType.index() < series.length ? series[cryptoType.index()] : null;
+    }
+
+    private PriceSeries series(CryptoType cryptoType) {
+        final PriceSeries series = findSeries(cryptoType);
+        return series != null ? series : createSeries(cryptoType);
+    }
+
+    private synchronized PriceSeries createSeries(CryptoType cryptoType) {
+        PriceSeries series = findSeries(cryptoType);
+        if (series == null) {
+            series = new PriceSeries(cryptoType, duplicatePolicy);
+            final PriceSeries[] newSeriesByIndex = Arrays.copyOf(seriesByIndex,
+                    Math.max(seriesByIndex.length, CryptoType.count()));
+            newSeriesByIndex[cryptoType.index()] = series;
+            seriesByIndex = newSeriesByIndex;
+
+            final List<CryptoType> newSymbols = new ArrayList<>(symbols);
+            newSymbols.add(cryptoType);
+            Collections.sort(newSymbols);
+            symbols = List.copyOf(newSymbols);
+        }
+        return series;
+    }
+
+    private void append(PriceSeries series, List<CsvCrypto> cryptoValues) {
+        int decimals = 0;
+        for (CsvCrypto csvCrypto : cryptoValues) {
+            decimals = Math.max(decimals, FixedPoint.decimalsOf(csvCrypto.getPrice()));
+        }
+
+        final long[] timestamps = new long[cryptoValues.size()];
+        final long[] prices = new long[cryptoValues.size()];
+        for (int i = 0; i < cryptoValues.size(); i++) {
+            timestamps[i] = cryptoValues.get(i).getTimestamp();
+            prices[i] = FixedPoint.toScaled(cryptoValues.get(i).getPrice(), decimals);
+        }
+        append(series, timestamps, prices, decimals, cryptoValues.size());
+    }
+
+    private void append(PriceSeries series, long[] timestamps, long[] prices, int decimals, int count) {
+        appendLock.readLock().lock();
+        appendsStarted.incrementAndGet();
+        try {
+            appendIndexed(series, timestamps, prices, decimals, count);
+        } finally {
+            appendsFinished.incrementAndGet();
+            appendLock.readLock().unlock();
+        }
+    }
+
+    private void appendIndexed(PriceSeries series, long[] timestamps, long[] prices, int decimals, int count) {
+        // the day index is updated within the lock as well, so it follows the order in which the series changed
+        synchronized (series) {
+            final PriceColumns columnsBefore = series.columns();
+            final int sizeBefore = columnsBefore.size();
+            final PriceColumns columns = series.appendAll(timestamps, prices, decimals, count);
+            if (columns.size() == sizeBefore + count) {
+                dayIndex.add(series.getSymbol(), timestamps, prices, decimals, count);
+            } else {
+                // values were replaced or dropped, so the ranges of their days may shrink
+                dayIndex.reindex(series.getSymbol(), columns, timestamps, count);
+            }
+
+            if (columns.size() == sizeBefore + count
+                    && (sizeBefore == 0 || min(timestamps, count) >= columnsBefore.timestampAt(sizeBefore - 1))) {
+                distributionIndex.add(columns, sizeBefore);
+            } else {
+                // values were inserted before others of their days
+                distributionIndex.reindex(columns, timestamps, count);
+            }
+        }
+    }
+
+    private static long min(long[] values, int count) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,85 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneOffsetTransitionRule;
+import java.time.zone.ZoneRules;
+
+/**
+ * Calendar days of the configured time zone, numbered as epoch days.
+ * Holds no data, so unlike the {@link DayIndex} it can be used while the price histories are being loaded.
+ * Days and weeks are made of whole {@link HourlyRollups} hours only if the offsets of the zone are whole hours,
+ * see {@link #isHourAligned}.
+ */
+public final class DayCalendar {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final ZoneId zoneId;
+    private final long fixedOffsetMillis;
+    private final boolean fixedOffset;
+
+    public DayCalendar(ZoneId zoneId) {
+        this.zoneId = zoneId;
+        this.fixedOffset = zoneId.getRules().isFixedOffset();
+        this.fixedOffsetMillis = fixedOffset ? zoneId.getRules().getOffset(Instant.EPOCH).getTotalSeconds() * 1000L : 0;
+    }
+
+    public ZoneId getZoneId() {
+        return zoneId;
+    }
+
+    /**
+     * Only the offsets used since 1970 are checked, the local mean times used before not being whole hours.
+     *
+     * @return whether the offsets of the given zone are whole hours, so its days and weeks start at a UTC hour
+     * (not the case of Asia/Kolkata for instance, being 5:30 ahead of UTC)
+     */
+    public static boolean isHourAligned(ZoneId zoneId) {
+        final ZoneRules rules = zoneId.getRules();
+        if (!isWholeHours(rules.getOffset(Instant.EPOCH))) {
+            return false;
+        }
+        for (ZoneOffsetTransition transition : rules.getTransitions()) {
+            if (transition.getInstant().isAfter(Instant.EPOCH) && !isWholeHours(transition.getOffsetAfter())) {
+                return false;
+            }
+        }
+        for (ZoneOffsetTransitionRule rule : rules.getTransitionRules()) {
+            if (!isWholeHours(rule.getOffsetBefore()) || !isWholeHours(rule.getOffsetAfter())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWholeHours(ZoneOffset offset) {
+        return offset.getTotalSeconds() % 3600 == 0;
+    }
+
+    /**
+     * @param timestamp epoch millis
+     * @return the epoch day the given timestamp falls in, in the configured time zone
+     */
+    public long epochDay(long timestamp) {
+        if (fixedOffset) {
+            return Math.floorDiv(timestamp + fixedOffsetMillis, MILLIS_PER_DAY);
+        }
+        final ZoneOffset offset = zoneId.getRules().getOffset(Instant.ofEpochMilli(timestamp));
+        return Math.floorDiv(timestamp + offset.getTotalSeconds() * 1000L, MILLIS_PER_DAY);
+    }
+
+    /**
+     * @param epochDay a day in the configured time zone
+     * @return the epoch millis the given day starts at
+     */
+    public long dayStart(long epochDay) {
+        if (fixedOffset) {
+            return epochDay * MILLIS_PER_DAY - fixedOffsetMillis;
+        }
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(zoneId).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,148 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the per-crypto min/max prices by calendar day, as seen in the configured time zone, see {@link DayCalendar}.
+ * Looking up a day is a single hash probe, the index being maintained on every append.
+ */
+public class DayIndex {
+
+    /**
+     * Min/max prices of a single crypto within a day, scaled by 10^decimals.
+     */
+    record DayRange(long epochDay, int decimals, long minPrice, long maxPrice) {
+    }
+
+    private final DayCalendar calendar;
+
+    private final ConcurrentMap<Long, DayRanges> rangesByEpochDay = new ConcurrentHashMap<>();
+
+    public DayIndex(DayCalendar calendar) {
+        this.calendar = calendar;
+    }
+
+    public DayCalendar getCalendar() {
+        return calendar;
+    }
+
+    public ZoneId getZoneId() {
+        return calendar.getZoneId();
+    }
+
+    /**
+     * @param timestamp epoch millis
+     * @return the epoch day the given timestamp falls in, in the configured time zone
+     */
+    public long epochDay(long timestamp) {
+        return calendar.epochDay(timestamp);
+    }
+
+    /**
+     * @param epochDay a day in the configured time zone
+     * @return the epoch millis the given day starts at
+     */
+    long dayStart(long epochDay) {
+        return calendar.dayStart(epochDay);
+    }
+
+    /**
+     * @param day the day to look up
+     * @return the ranges of all the cryptos with values in the given day, or null if there are none
+     */
+    public DayRanges get(LocalDate day) {
+        return rangesByEpochDay.get(day.toEpochDay());
+    }
+
+    /**
+     * Indexes the first {@code count} entries of the given columns, whose prices are scaled by 10^decimals.
+     */
+    void add(CryptoType cryptoType, long[] timestamps, long[] prices, int decimals, int count) {
+        int i = 0;
+        while (i < count) {
+            // consecutive entries usually fall in the same day, so they are merged into the index at once
+            final long epochDay = epochDay(timestamps[i]);
+            long minPrice = prices[i];
+            long maxPrice = minPrice;
+            i++;
+            while (i < count && epochDay(timestamps[i]) == epochDay) {
+                minPrice = Math.min(minPrice, prices[i]);
+                maxPrice = Math.max(maxPrice, prices[i]);
+                i++;
+            }
+
+            final long dayMinPrice = minPrice;
+            final long dayMaxPrice = maxPrice;
+            rangesByEpochDay.compute(epochDay, (key, ranges) ->
+                    (ranges == null ? DayRanges.empty() : ranges).with(cryptoType, dayMinPrice, dayMaxPrice, decimals));
+        }
+    }
+
+    /**
+     * @return the ranges of every crypto, by crypto
+     */
+    Map<CryptoType, List<DayRange>> rangesByCrypto() {
+        final List<CryptoType> cryptoTypes = CryptoType.values();
+        final Map<CryptoType, List<DayRange>> rangesByCrypto = new HashMap<>();
+        rangesByEpochDay.forEach((epochDay, ranges) -> {
+            for (CryptoType cryptoType : cryptoTypes) {
+                if (ranges.contains(cryptoType)) {
+                    rangesByCrypto.computeIfAbsent(cryptoType, key -> new ArrayList<>()).add(new DayRange(epochDay,
+                            ranges.getDecimals(cryptoType), ranges.getMinPrice(cryptoType), ranges.getMaxPrice(cryptoType)));
+                }
+            }
+        });
+        return rangesByCrypto;
+    }
+
+    /**
+     * Sets the ranges of the given crypto, as saved by a {@link StoreSnapshot}.
+     */
+    void restore(CryptoType cryptoType, List<DayRange> days) {
+        for (DayRange day : days) {
+            rangesByEpochDay.compute(day.epochDay(), (key, ranges) -> (ranges == null ? DayRanges.empty() : ranges)
+                    .replacing(cryptoType, day.minPrice(), day.maxPrice(), day.decimals()));
+        }
+    }
+
+    /**
+     * Indexes again, from the given view of the crypto's series, every day of the first {@code count} timestamps.
+     * Unlike {@link #add}, ranges may shrink, as needed once values of the series were replaced.
+     */
+    void reindex(CryptoType cryptoType, PriceColumns columns, long[] timestamps, int count) {
+        final Set<Long> epochDays = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            epochDays.add(epochDay(timestamps[i]));
+        }
+
+        for (long epochDay : epochDays) {
+            final int from = columns.lowerBound(dayStart(epochDay));
+            final int to = columns.lowerBound(dayStart(epochDay + 1));
+            if (from >= to) {
+                continue;
+            }
+            long minPrice = columns.priceAt(from);
+            long maxPrice = minPrice;
+            for (int i = from + 1; i < to; i++) {
+                minPrice = Math.min(minPrice, columns.priceAt(i));
+                maxPrice = Math.max(maxPrice, columns.priceAt(i));
+            }
+
+            final long dayMinPrice = minPrice;
+            final long dayMaxPrice = maxPrice;
+            rangesByEpochDay.compute(epochDay, (key, ranges) -> (ranges == null ? DayRanges.empty() : ranges)
+                    .replacing(cryptoType, dayMinPrice, dayMaxPrice, columns.getDecimals()));
+        }
+    }
+}
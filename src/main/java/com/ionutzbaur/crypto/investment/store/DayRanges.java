@@ -0,0 +1,93 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+
+import java.util.Arrays;
+
+/**
+ * Immutable min/max prices of every crypto within a single day, indexed by {@link CryptoType#index()}.
+ * Prices are fixed-point, each crypto's pair scaled by 10^{@link #getDecimals(CryptoType)}: ranges are merged at the
+ * higher number of decimals, so they stay exact while the series of the crypto gains decimals.
+ * Cryptos without any value in that day have -1 decimals or are past the end of the arrays.
+ */
+public final class DayRanges {
+
+    private static final DayRanges EMPTY = new DayRanges(new long[0], new long[0], new byte[0]);
+
+    private final long[] minPrices;
+    private final long[] maxPrices;
+    private final byte[] decimals;
+
+    private DayRanges(long[] minPrices, long[] maxPrices, byte[] decimals) {
+        this.minPrices = minPrices;
+        this.maxPrices = maxPrices;
+        this.decimals = decimals;
+    }
+
+    static DayRanges empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Derives the ranges after widening the given crypto's range with the given prices, scaled by 10^priceDecimals.
+     */
+    DayRanges with(CryptoType cryptoType, long minPrice, long maxPrice, int priceDecimals) {
+        final int currentDecimals = getDecimals(cryptoType);
+        if (currentDecimals < 0) {
+            return replacing(cryptoType, minPrice, maxPrice, priceDecimals);
+        }
+        final int index = cryptoType.index();
+        final int mergedDecimals = Math.max(currentDecimals, priceDecimals);
+        return replacing(cryptoType,
+                Math.min(FixedPoint.rescale(minPrices[index], currentDecimals, mergedDecimals),
+                        FixedPoint.rescale(minPrice, priceDecimals, mergedDecimals)),
+                Math.max(FixedPoint.rescale(maxPrices[index], currentDecimals, mergedDecimals),
+                        FixedPoint.rescale(maxPrice, priceDecimals, mergedDecimals)),
+                mergedDecimals);
+    }
+
+    /**
+     * Derives the ranges after setting the given crypto's range to the given prices, scaled by 10^priceDecimals,
+     * regardless of its current range.
+     */
+    DayRanges replacing(CryptoType cryptoType, long minPrice, long maxPrice, int priceDecimals) {
+        final int index = cryptoType.index();
+        final int length = Math.max(decimals.length, index + 1);
+        final long[] newMinPrices = Arrays.copyOf(minPrices, length);
+        final long[] newMaxPrices = Arrays.copyOf(maxPrices, length);
+        final byte[] newDecimals = Arrays.copyOf(decimals, length);
+        Arrays.fill(newDecimals, decimals.length, length, (byte) -1);
+
+        newMinPrices[index] = minPrice;
+        newMaxPrices[index] = maxPrice;
+        newDecimals[index] = (byte) priceDecimals;
+        return new DayRanges(newMinPrices, newMaxPrices, newDecimals);
+    }
+
+    public boolean contains(CryptoType cryptoType) {
+        return getDecimals(cryptoType) >= 0;
+    }
+
+    /**
+     * @return the number of decimals of the given crypto's prices, -1 if it has no value in this day
+     */
+    public int getDecimals(CryptoType cryptoType) {
+        final int index = cryptoType.index();
+        return index < decimals.length ? decimals[index] : -1;
+    }
+
+    /**
+     * @return the min price of the given crypto, scaled by 10^{@link #getDecimals(CryptoType)}
+     */
+    public long getMinPrice(CryptoType cryptoType) {
+        return minPrices[cryptoType.index()];
+    }
+
+    /**
+     * @return the max price of the given crypto, scaled by 10^{@link #getDecimals(CryptoType)}
+     */
+    public long getMaxPrice(CryptoType cryptoType) {
+        return maxPrices[cryptoType.index()];
+    }
+}
@@ -0,0 +1,91 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index of the per-crypto {@link PriceDistribution} of every calendar day, the days being the ones of the
+ * {@link DayIndex}. The distribution over a range of days is merged from the ones of its days, so it costs
+ * as much as the number of days, not of values. Appends only summarize the days they touch.
+ */
+final class DistributionIndex {
+
+    private final DayIndex dayIndex;
+
+    private final ConcurrentMap<CryptoType, ConcurrentNavigableMap<Long, PriceDistribution>> daysByCrypto =
+            new ConcurrentHashMap<>();
+
+    DistributionIndex(DayIndex dayIndex) {
+        this.dayIndex = dayIndex;
+    }
+
+    /**
+     * Indexes the entries of the given view from the given index on, none of them older than the entries before.
+     */
+    void add(PriceColumns columns, int from) {
+        final ConcurrentNavigableMap<Long, PriceDistribution> days = days(columns.getSymbol());
+        int dayFrom = from;
+        while (dayFrom < columns.size()) {
+            final long epochDay = dayIndex.epochDay(columns.timestampAt(dayFrom));
+            final int start = dayFrom;
+            final int end = columns.lowerBound(dayIndex.dayStart(epochDay + 1));
+            days.compute(epochDay, (key, day) -> day == null
+                    ? PriceDistribution.of(columns, start, end)
+                    : day.with(columns, start, end));
+            dayFrom = end;
+        }
+    }
+
+    /**
+     * Summarizes again, from the given view, every day of the first {@code count} timestamps.
+     */
+    void reindex(PriceColumns columns, long[] timestamps, int count) {
+        final Set<Long> epochDays = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            epochDays.add(dayIndex.epochDay(timestamps[i]));
+        }
+
+        final ConcurrentNavigableMap<Long, PriceDistribution> days = days(columns.getSymbol());
+        for (long epochDay : epochDays) {
+            final int from = columns.lowerBound(dayIndex.dayStart(epochDay));
+            final int to = columns.lowerBound(dayIndex.dayStart(epochDay + 1));
+            if (from < to) {
+                days.put(epochDay, PriceDistribution.of(columns, from, to));
+            } else {
+                days.remove(epochDay);
+            }
+        }
+    }
+
+    /**
+     * @param cryptoType the crypto to look up
+     * @param from the first day, or null for the oldest one
+     * @param to the last day, included, or null for the newest one
+     * @return the distribution of the values of the given days, or null if there are none
+     */
+    PriceDistribution get(CryptoType cryptoType, LocalDate from, LocalDate to) {
+        ConcurrentNavigableMap<Long, PriceDistribution> days = days(cryptoType);
+        if (from != null) {
+            days = days.tailMap(from.toEpochDay(), true);
+        }
+        if (to != null) {
+            days = days.headMap(to.toEpochDay(), true);
+        }
+
+        final List<PriceDistribution> distributions = new ArrayList<>(days.values());
+        return distributions.isEmpty() ? null : PriceDistribution.mergeAll(distributions);
+    }
+
+    private ConcurrentNavigableMap<Long, PriceDistribution> days(CryptoType cryptoType) {
+        return daysByCrypto.computeIfAbsent(cryptoType, key -> new ConcurrentSkipListMap<>());
+    }
+}
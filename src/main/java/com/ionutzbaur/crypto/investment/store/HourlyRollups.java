@@ -0,0 +1,161 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+
+import java.util.Arrays;
+
+/**
+ * Hourly open/high/low/close rollups of a price series, maintained by the owning {@link PriceSeries}
+ * as values are added in timestamp order. Closed buckets are never modified once published, the last
+ * bucket is still open and is therefore copied into every published {@link View}.
+ * Prices are scaled by 10^decimals of the owning series, see {@link FixedPoint}.
+ */
+public final class HourlyRollups {
+
+    public static final long HOUR_MILLIS = 3_600_000L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] starts = new long[INITIAL_CAPACITY];
+    private long[] opens = new long[INITIAL_CAPACITY];
+    private long[] highs = new long[INITIAL_CAPACITY];
+    private long[] lows = new long[INITIAL_CAPACITY];
+    private long[] closes = new long[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size;
+
+    HourlyRollups() {
+        // owned by a price series
+    }
+
+    public static long hourStart(long timestamp) {
+        return Math.floorDiv(timestamp, HOUR_MILLIS) * HOUR_MILLIS;
+    }
+
+    /**
+     * Adds a value, whose timestamp must not be older than any value added before.
+     */
+    void add(long timestamp, long price) {
+        final long start = hourStart(timestamp);
+        final int last = size - 1;
+        if (last >= 0 && starts[last] == start) {
+            highs[last] = Math.max(highs[last], price);
+            lows[last] = Math.min(lows[last], price);
+            closes[last] = price;
+            counts[last]++;
+            return;
+        }
+
+        if (size == starts.length) {
+            grow(size + (size >> 1));
+        }
+        starts[size] = start;
+        opens[size] = price;
+        highs[size] = price;
+        lows[size] = price;
+        closes[size] = price;
+        counts[size] = 1;
+        size++;
+    }
+
+    /**
+     * Drops the buckets starting at or after the hour of the given timestamp, so they can be rolled up again.
+     * The remaining buckets are moved to new arrays, leaving the ones of published views untouched.
+     */
+    void truncateFrom(long timestamp) {
+        size = TimestampSort.lowerBound(starts, size, hourStart(timestamp));
+        grow(Math.max(INITIAL_CAPACITY, starts.length));
+    }
+
+    View view() {
+        if (size == 0) {
+            return new View(starts, opens, highs, lows, closes, counts, 0, 0, 0, 0, 0, 0, 0);
+        }
+        final int last = size - 1;
+        return new View(starts, opens, highs, lows, closes, counts, last,
+                starts[last], opens[last], highs[last], lows[last], closes[last], counts[last]);
+    }
+
+    private void grow(int capacity) {
+        starts = Arrays.copyOf(starts, capacity);
+        opens = Arrays.copyOf(opens, capacity);
+        highs = Arrays.copyOf(highs, capacity);
+        lows = Arrays.copyOf(lows, capacity);
+        closes = Arrays.copyOf(closes, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+    }
+
+    /**
+     * Immutable, point-in-time view over the hourly buckets, sorted by start time.
+     */
+    public static final class View {
+
+        private final long[] starts;
+        private final long[] opens;
+        private final long[] highs;
+        private final long[] lows;
+        private final long[] closes;
+        private final int[] counts;
+        private final int closed;
+
+        private final long lastStart;
+        private final long lastOpen;
+        private final long lastHigh;
+        private final long lastLow;
+        private final long lastClose;
+        private final int lastCount;
+
+        private View(long[] starts, long[] opens, long[] highs, long[] lows, long[] closes, int[] counts, int closed,
+                     long lastStart, long lastOpen, long lastHigh, long lastLow, long lastClose, int lastCount) {
+            this.starts = starts;
+            this.opens = opens;
+            this.highs = highs;
+            this.lows = lows;
+            this.closes = closes;
+            this.counts = counts;
+            this.closed = closed;
+            this.lastStart = lastStart;
+            this.lastOpen = lastOpen;
+            this.lastHigh = lastHigh;
+            this.lastLow = lastLow;
+            this.lastClose = lastClose;
+            this.lastCount = lastCount;
+        }
+
+        public int size() {
+            return lastCount == 0 ? 0 : closed + 1;
+        }
+
+        /**
+         * @return the index of the first bucket starting at or after the given timestamp
+         */
+        public int lowerBound(long timestamp) {
+            final int index = TimestampSort.lowerBound(starts, closed, timestamp);
+            return index == closed && lastCount > 0 && lastStart < timestamp ? closed + 1 : index;
+        }
+
+        public long startAt(int index) {
+            return index == closed ? lastStart : starts[index];
+        }
+
+        public long openAt(int index) {
+            return index == closed ? lastOpen : opens[index];
+        }
+
+        public long highAt(int index) {
+            return index == closed ? lastHigh : highs[index];
+        }
+
+        public long lowAt(int index) {
+            return index == closed ? lastLow : lows[index];
+        }
+
+        public long closeAt(int index) {
+            return index == closed ? lastClose : closes[index];
+        }
+
+        public int countAt(int index) {
+            return index == closed ? lastCount : counts[index];
+        }
+    }
+}
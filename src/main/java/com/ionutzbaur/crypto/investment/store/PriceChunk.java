@@ -0,0 +1,40 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+
+/**
+ * Fixed-size buffer of parsed values, whose prices are kept at the highest number of decimals seen so far.
+ */
+final class PriceChunk {
+
+    final long[] timestamps;
+    final long[] prices;
+    int decimals;
+    int count;
+
+    PriceChunk(int size) {
+        this.timestamps = new long[size];
+        this.prices = new long[size];
+    }
+
+    void add(long timestamp, long price, int priceDecimals) {
+        if (priceDecimals > decimals) {
+            for (int i = 0; i < count; i++) {
+                prices[i] = FixedPoint.rescale(prices[i], decimals, priceDecimals);
+            }
+            decimals = priceDecimals;
+        }
+        timestamps[count] = timestamp;
+        prices[count] = FixedPoint.rescale(price, priceDecimals, decimals);
+        count++;
+    }
+
+    boolean isFull() {
+        return count == timestamps.length;
+    }
+
+    void clear() {
+        decimals = 0;
+        count = 0;
+    }
+}
@@ -0,0 +1,118 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.RollingWindow;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+
+/**
+ * Immutable, point-in-time view over the columnar price data of a single crypto, sorted by timestamp.
+ * Only the first {@link #size()} entries of the backing arrays belong to this view,
+ * the arrays themselves are shared with the owning {@link PriceSeries} and must not be modified.
+ * Prices are scaled by 10^{@link #getDecimals()}, see {@link FixedPoint}.
+ */
+public final class PriceColumns {
+
+    private final CryptoType symbol;
+    private final long version;
+    private final long[] timestamps;
+    private final long[] prices;
+    private final int decimals;
+    private final int size;
+    private final PriceStatistics statistics;
+    private final HourlyRollups.View hourlyRollups;
+    private final RollingAggregate.View[] rollingAggregates;
+
+    PriceColumns(CryptoType symbol, long version, long[] timestamps, long[] prices, int decimals, int size,
+                 PriceStatistics statistics, HourlyRollups.View hourlyRollups,
+                 RollingAggregate.View[] rollingAggregates) {
+        this.symbol = symbol;
+        this.version = version;
+        this.timestamps = timestamps;
+        this.prices = prices;
+        this.decimals = decimals;
+        this.size = size;
+        this.statistics = statistics;
+        this.hourlyRollups = hourlyRollups;
+        this.rollingAggregates = rollingAggregates;
+    }
+
+    public CryptoType getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the number of appends published so far by the owning series, 0 for a view without values
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the running aggregate over exactly the entries of this view
+     */
+    public PriceStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return the hourly open/high/low/close buckets over exactly the entries of this view
+     */
+    public HourlyRollups.View getHourlyRollups() {
+        return hourlyRollups;
+    }
+
+    /**
+     * @return the aggregate over the given window, ending with the newest entry of this view
+     */
+    public RollingAggregate.View getRollingAggregate(RollingWindow window) {
+        return rollingAggregates[window.ordinal()];
+    }
+
+    /**
+     * @return the number of decimals of the prices, the statistics, the hourly rollups and the rolling aggregates
+     * of this view
+     */
+    public int getDecimals() {
+        return decimals;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long timestampAt(int index) {
+        return timestamps[index];
+    }
+
+    /**
+     * @return the price at the given index, scaled by 10^{@link #getDecimals()}
+     */
+    public long priceAt(int index) {
+        return prices[index];
+    }
+
+    /**
+     * Binary searches the given timestamp.
+     *
+     * @param timestamp epoch millis
+     * @return the index of the first entry not older than the given timestamp, {@link #size()} if there is none
+     */
+    public int lowerBound(long timestamp) {
+        return TimestampSort.lowerBound(timestamps, size, timestamp);
+    }
+
+    /**
+     * Materializes the entry at the given index.
+     *
+     * @param index position in this view
+     * @return a new {@link CsvCrypto} holding the values at the given index
+     */
+    public CsvCrypto rowAt(int index) {
+        return new CsvCrypto(timestamps[index], symbol, FixedPoint.toBigDecimal(prices[index], decimals));
+    }
+}
@@ -0,0 +1,179 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.DuplicatePolicy;
+import com.ionutzbaur.crypto.investment.util.CsvCryptoUtil;
+import com.ionutzbaur.crypto.investment.util.CsvPriceReader;
+import com.ionutzbaur.crypto.investment.util.CsvPriceWriter;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+import com.ionutzbaur.crypto.investment.util.PriceLogReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Folds the append logs of a crypto into its CSV file.
+ * The content of the CSV file and of the logs is sorted by timestamp and stripped of duplicates: values with the same
+ * timestamp and price as an earlier one, typically sent twice by a client retrying a request, and, unless the
+ * {@link DuplicatePolicy} keeps all the values, values sharing the timestamp of another one. Values of the logs
+ * count as written after those of the CSV file, and the logs in the given order.
+ * The result is written to a temporary file, forced to the storage device and atomically moved over the CSV file,
+ * and only then are the logs deleted: a crash at any point leaves either the previous CSV file with all the logs,
+ * or the new one with logs whose values it already holds, which the next compaction drops as duplicates.
+ * Lines of the CSV file that cannot be decoded, such as a line truncated by a crash, are dropped as well.
+ */
+public final class PriceCompaction {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PriceCompaction.class);
+
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * Outcome of a compaction.
+     *
+     * @param columns the compacted price history, as now held by the CSV file
+     * @param logRecords the number of values read from the logs
+     * @param duplicates the number of duplicate values dropped
+     * @param discardedLogBytes the number of bytes of the logs after their last valid frame
+     */
+    public record Result(PriceColumns columns, long logRecords, long duplicates, long discardedLogBytes) {
+    }
+
+    private PriceCompaction() {
+        // utility class
+    }
+
+    /**
+     * @param cryptoType the crypto to compact
+     * @param csvPath the CSV file of the crypto, which may not exist yet
+     * @param logPaths the append logs to fold into the CSV file, none of them being written to anymore,
+     * from the oldest to the newest
+     * @param duplicatePolicy how values sharing a timestamp are handled
+     * @param writeSegment whether to convert the compacted CSV file into its {@link PriceSegment} as well
+     * @return the outcome of the compaction
+     * @throws IOException if reading or writing a file fails, then the CSV file and the logs are left untouched
+     */
+    public static Result compact(CryptoType cryptoType, Path csvPath, List<Path> logPaths,
+                                 DuplicatePolicy duplicatePolicy, boolean writeSegment) throws IOException {
+        final PriceSeries series = new PriceSeries(cryptoType);
+        final PriceChunk chunk = new PriceChunk(CHUNK_SIZE);
+        final CsvPriceReader.PriceHandler handler = (symbol, timestamp, price, decimals) -> {
+            if (symbol != cryptoType) {
+                return;
+            }
+            chunk.add(timestamp, price, decimals);
+            if (chunk.isFull()) {
+                series.appendAll(chunk.timestamps, chunk.prices, chunk.decimals, chunk.count);
+                chunk.clear();
+            }
+        };
+
+        if (Files.exists(csvPath)) {
+            CsvCryptoUtil.readCryptoFromCsv(csvPath, handler);
+        }
+        long logRecords = 0;
+        long discardedLogBytes = 0;
+        for (Path logPath : logPaths) {
+            if (!Files.exists(logPath)) {
+                continue; // folded by a previous compaction
+            }
+            final PriceLogReader.Result result = PriceLogReader.read(logPath, cryptoType, handler);
+            if (result.discardedBytes() > 0) {
+                LOGGER.warn("Discarding {} bytes after the last valid frame of {}", result.discardedBytes(), logPath);
+            }
+            logRecords += result.records();
+            discardedLogBytes += result.discardedBytes();
+        }
+        series.appendAll(chunk.timestamps, chunk.prices, chunk.decimals, chunk.count);
+
+        final PriceSeries compacted = withoutDuplicates(series.columns(), duplicatePolicy);
+        final PriceColumns columns = compacted.columns();
+        replaceCsv(columns, csvPath);
+        for (Path logPath : logPaths) {
+            Files.deleteIfExists(logPath);
+        }
+
+        if (writeSegment) {
+            try {
+                PriceSegment.write(columns, duplicatePolicy, csvPath);
+            } catch (IOException e) {
+                LOGGER.warn("Cannot write the price segment for {}", cryptoType, e);
+            }
+        }
+        return new Result(columns, logRecords, series.columns().size() - columns.size(), discardedLogBytes);
+    }
+
+    /**
+     * @param columns the values in the order they were written, for each timestamp
+     */
+    private static PriceSeries withoutDuplicates(PriceColumns columns, DuplicatePolicy duplicatePolicy) {
+        final int size = columns.size();
+        final long[] timestamps = new long[size];
+        final long[] prices = new long[size];
+        int count = 0;
+        int sameTimestampStart = 0;
+        for (int i = 0; i < size; i++) {
+            final long timestamp = columns.timestampAt(i);
+            final long price = columns.priceAt(i);
+            if (count == 0 || timestamps[count - 1] != timestamp) {
+                sameTimestampStart = count;
+            } else if (duplicatePolicy == DuplicatePolicy.LAST_WRITE_WINS) {
+                prices[count - 1] = price;
+                continue;
+            } else if (duplicatePolicy == DuplicatePolicy.REJECT || contains(prices, sameTimestampStart, count, price)) {
+                continue;
+            }
+            timestamps[count] = timestamp;
+            prices[count] = price;
+            count++;
+        }
+
+        final PriceSeries series = new PriceSeries(columns.getSymbol(), duplicatePolicy);
+        series.appendAll(timestamps, prices, columns.getDecimals(), count);
+        return series;
+    }
+
+    private static boolean contains(long[] prices, int from, int to, long price) {
+        for (int i = from; i < to; i++) {
+            if (prices[i] == price) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void replaceCsv(PriceColumns columns, Path csvPath) throws IOException {
+        final Path tempPath = csvPath.resolveSibling(csvPath.getFileName() + ".tmp");
+        Files.deleteIfExists(tempPath);
+        try (CsvPriceWriter writer = CsvPriceWriter.open(tempPath)) {
+            for (int i = 0; i < columns.size(); i++) {
+                writer.write(new CsvCrypto(columns.timestampAt(i), columns.getSymbol(),
+                        FixedPoint.toBigDecimal(columns.priceAt(i), columns.getDecimals())));
+            }
+        }
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tempPath, csvPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(csvPath.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Makes the move durable before the logs are deleted, where the platform allows opening a directory.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOGGER.debug("Cannot sync the directory {}", directory, e);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable summary of the prices of a single crypto over a time range, typically a day: first, last, min and max
+ * values, mean and variance, time-weighted average and a {@link QuantileSketch} of the prices.
+ * Summaries of consecutive ranges merge into the summary of the whole range, exactly except for the quantiles,
+ * which stay within the relative error of the sketch.
+ * The mean, the variance and the time-weighted average are approximate and kept unscaled; the other prices are
+ * scaled by 10^{@link #getDecimals()}, see {@link FixedPoint}. On ties the oldest value is kept.
+ */
+public final class PriceDistribution {
+
+    private final CryptoType symbol;
+    private final int decimals;
+    private final long count;
+    private final double mean;
+    private final double m2;
+
+    private final long firstTimestamp;
+    private final long firstPrice;
+    private final long lastTimestamp;
+    private final long lastPrice;
+    private final long minTimestamp;
+    private final long minPrice;
+    private final long maxTimestamp;
+    private final long maxPrice;
+
+    // sum of each price times the millis until the next value
+    private final double timeWeightedSum;
+    private final QuantileSketch sketch;
+
+    private PriceDistribution(CryptoType symbol, int decimals, long count, double mean, double m2,
+                              long firstTimestamp, long firstPrice, long lastTimestamp, long lastPrice,
+                              long minTimestamp, long minPrice, long maxTimestamp, long maxPrice,
+                              double timeWeightedSum, QuantileSketch sketch) {
+        this.symbol = symbol;
+        this.decimals = decimals;
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+        this.firstTimestamp = firstTimestamp;
+        this.firstPrice = firstPrice;
+        this.lastTimestamp = lastTimestamp;
+        this.lastPrice = lastPrice;
+        this.minTimestamp = minTimestamp;
+        this.minPrice = minPrice;
+        this.maxTimestamp = maxTimestamp;
+        this.maxPrice = maxPrice;
+        this.timeWeightedSum = timeWeightedSum;
+        this.sketch = sketch;
+    }
+
+    /**
+     * Summarizes the entries in [from, to) of the given view, at least one.
+     */
+    static PriceDistribution of(PriceColumns columns, int from, int to) {
+        final int decimals = columns.getDecimals();
+        final double[] values = new double[to - from];
+        double mean = 0;
+        double m2 = 0;
+        double timeWeightedSum = 0;
+        int min = from;
+        int max = from;
+        for (int i = from; i < to; i++) {
+            final long price = columns.priceAt(i);
+            final double value = FixedPoint.toDouble(price, decimals);
+            values[i - from] = value;
+
+            final double delta = value - mean;
+            mean += delta / (i - from + 1);
+            m2 += delta * (value - mean);
+            if (i > from) {
+                timeWeightedSum += values[i - from - 1] * (columns.timestampAt(i) - columns.timestampAt(i - 1));
+            }
+            if (price < columns.priceAt(min)) {
+                min = i;
+            }
+            if (price > columns.priceAt(max)) {
+                max = i;
+            }
+        }
+
+        return new PriceDistribution(columns.getSymbol(), decimals, to - from, mean, m2,
+                columns.timestampAt(from), columns.priceAt(from), columns.timestampAt(to - 1), columns.priceAt(to - 1),
+                columns.timestampAt(min), columns.priceAt(min), columns.timestampAt(max), columns.priceAt(max),
+                timeWeightedSum, QuantileSketch.of(values, values.length));
+    }
+
+    /**
+     * Derives the summary after appending the entries in [from, to) of the given view, none of them older than
+     * the newest value of this summary.
+     */
+    PriceDistribution with(PriceColumns columns, int from, int to) {
+        return from < to ? merge(of(columns, from, to)) : this;
+    }
+
+    /**
+     * Derives the summary of the values of both summaries.
+     *
+     * @param later a summary of values none of which is older than the newest value of this one
+     */
+    PriceDistribution merge(PriceDistribution later) {
+        return merge(later, sketch.merge(later.sketch));
+    }
+
+    /**
+     * @param distributions summaries of consecutive ranges, oldest first, at least one
+     * @return the summary of the values of all the given summaries
+     */
+    static PriceDistribution mergeAll(List<PriceDistribution> distributions) {
+        // the sketches are added up at once instead of allocating a new one for each summary
+        final List<QuantileSketch> sketches = new ArrayList<>(distributions.size());
+        PriceDistribution merged = distributions.get(0);
+        sketches.add(merged.sketch);
+        for (int i = 1; i < distributions.size(); i++) {
+            merged = merged.merge(distributions.get(i), QuantileSketch.empty());
+            sketches.add(distributions.get(i).sketch);
+        }
+        return merged.withSketch(QuantileSketch.mergeAll(sketches));
+    }
+
+    private PriceDistribution withSketch(QuantileSketch newSketch) {
+        return new PriceDistribution(symbol, decimals, count, mean, m2, firstTimestamp, firstPrice,
+                lastTimestamp, lastPrice, minTimestamp, minPrice, maxTimestamp, maxPrice, timeWeightedSum, newSketch);
+    }
+
+    private PriceDistribution merge(PriceDistribution later, QuantileSketch mergedSketch) {
+        final int mergedDecimals = Math.max(decimals, later.decimals);
+        final long mergedCount = count + later.count;
+        final double delta = later.mean - mean;
+        final double mergedMean = mean + delta * later.count / mergedCount;
+        final double mergedM2 = m2 + later.m2 + delta * delta * count * later.count / mergedCount;
+
+        final long earlierMin = FixedPoint.rescale(minPrice, decimals, mergedDecimals);
+        final long laterMin = FixedPoint.rescale(later.minPrice, later.decimals, mergedDecimals);
+        final long earlierMax = FixedPoint.rescale(maxPrice, decimals, mergedDecimals);
+        final long laterMax = FixedPoint.rescale(later.maxPrice, later.decimals, mergedDecimals);
+        final boolean laterMinWins = laterMin < earlierMin;
+        final boolean laterMaxWins = laterMax > earlierMax;
+
+        return new PriceDistribution(symbol, mergedDecimals, mergedCount, mergedMean, mergedM2,
+                firstTimestamp, FixedPoint.rescale(firstPrice, decimals, mergedDecimals),
+                later.lastTimestamp, FixedPoint.rescale(later.lastPrice, later.decimals, mergedDecimals),
+                laterMinWins ? later.minTimestamp : minTimestamp, laterMinWins ? laterMin : earlierMin,
+                laterMaxWins ? later.maxTimestamp : maxTimestamp, laterMaxWins ? laterMax : earlierMax,
+                timeWeightedSum + FixedPoint.toDouble(lastPrice, decimals) * (later.firstTimestamp - lastTimestamp)
+                        + later.timeWeightedSum,
+                mergedSketch);
+    }
+
+    public CryptoType getSymbol() {
+        return symbol;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public int getDecimals() {
+        return decimals;
+    }
+
+    public CsvCrypto getFirst() {
+        return row(firstTimestamp, firstPrice);
+    }
+
+    public CsvCrypto getLast() {
+        return row(lastTimestamp, lastPrice);
+    }
+
+    public CsvCrypto getMin() {
+        return row(minTimestamp, minPrice);
+    }
+
+    public CsvCrypto getMax() {
+        return row(maxTimestamp, maxPrice);
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the population standard deviation of the prices
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(Math.max(m2, 0) / count);
+    }
+
+    /**
+     * @return the average of the prices, each one weighted by the time until the next value,
+     * the mean if all the values share a timestamp
+     */
+    public double getTimeWeightedAverage() {
+        final long duration = lastTimestamp - firstTimestamp;
+        return duration > 0 ? timeWeightedSum / duration : mean;
+    }
+
+    /**
+     * @param quantile the quantile, from 0 to 1
+     * @return the estimated price of the given quantile, within the min and max prices
+     */
+    public double getQuantile(double quantile) {
+        final double estimate = sketch.quantile(quantile);
+        return Math.max(FixedPoint.toDouble(minPrice, decimals), Math.min(FixedPoint.toDouble(maxPrice, decimals), estimate));
+    }
+
+    private CsvCrypto row(long timestamp, long price) {
+        return new CsvCrypto(timestamp, symbol, FixedPoint.toBigDecimal(price, decimals));
+    }
+}
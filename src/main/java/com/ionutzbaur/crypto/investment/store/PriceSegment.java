@@ -0,0 +1,248 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.DuplicatePolicy;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary copy of a price CSV file, read through a memory mapping instead of parsing text.
+ * <p>
+ * Layout, all values little-endian:
+ * <pre>
+ * header (72 bytes): int magic, short version, short price decimals, long count,
+ *                    long source size, long source last modified millis,
+ *                    long min timestamp, long max timestamp, long min scaled price, long max scaled price,
+ *                    byte duplicate policy ordinal, 7 bytes of padding
+ * timestamps:        count x long
+ * prices:            count x long, scaled by 10^decimals
+ * </pre>
+ * The prices are the fixed-point ones of the store, see {@link FixedPoint}.
+ * The columnar layout allows bulk copies of each column straight from the mapping.
+ * The source size and last modified time tell whether the segment still matches its CSV file, and the duplicate
+ * policy whether its values are the ones the store keeps from it.
+ */
+public final class PriceSegment {
+
+    public static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final int MAGIC = 0x43525053; // CRPS
+    private static final short VERSION = 2;
+    private static final int HEADER_SIZE = 72;
+
+    /**
+     * The max number of values of a segment, the whole file being mapped as a single buffer.
+     */
+    static final int MAX_COUNT = (Integer.MAX_VALUE - HEADER_SIZE) / 16;
+
+    private static final DuplicatePolicy[] DUPLICATE_POLICIES = DuplicatePolicy.values();
+
+    private final int decimals;
+    private final int count;
+    private final long sourceSize;
+    private final long sourceLastModified;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final long minScaledPrice;
+    private final long maxScaledPrice;
+    private final DuplicatePolicy duplicatePolicy;
+    private final LongBuffer timestamps;
+    private final LongBuffer prices;
+
+    private PriceSegment(MappedByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new CryptoInvestmentException("Not a supported price segment");
+        }
+        this.decimals = buffer.getShort(6);
+        if (decimals < 0 || decimals > FixedPoint.MAX_DECIMALS) {
+            throw new CryptoInvestmentException("Not a supported price segment");
+        }
+        final long segmentCount = buffer.getLong(8);
+        if (segmentCount < 0 || segmentCount > MAX_COUNT) {
+            throw new CryptoInvestmentException("Not a supported price segment");
+        }
+        this.count = (int) segmentCount;
+        this.sourceSize = buffer.getLong(16);
+        this.sourceLastModified = buffer.getLong(24);
+        this.minTimestamp = buffer.getLong(32);
+        this.maxTimestamp = buffer.getLong(40);
+        this.minScaledPrice = buffer.getLong(48);
+        this.maxScaledPrice = buffer.getLong(56);
+        final int duplicatePolicyOrdinal = buffer.get(64);
+        if (duplicatePolicyOrdinal < 0 || duplicatePolicyOrdinal >= DUPLICATE_POLICIES.length) {
+            throw new CryptoInvestmentException("Not a supported price segment");
+        }
+        this.duplicatePolicy = DUPLICATE_POLICIES[duplicatePolicyOrdinal];
+        if (buffer.capacity() != HEADER_SIZE + 16L * count) {
+            throw new CryptoInvestmentException("Truncated price segment");
+        }
+        // fits in an int, as count is at most MAX_COUNT
+        final int columnSize = Math.toIntExact(8L * count);
+        this.timestamps = buffer.slice(HEADER_SIZE, columnSize).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        this.prices = buffer.slice(HEADER_SIZE + columnSize, columnSize).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+
+    /**
+     * @param csvPath path of a price CSV file
+     * @return the path of the segment holding the same data as the given CSV file
+     */
+    public static Path segmentPath(Path csvPath) {
+        final String fileName = csvPath.getFileName().toString();
+        final int extension = fileName.lastIndexOf('.');
+        return csvPath.resolveSibling((extension < 0 ? fileName : fileName.substring(0, extension)) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Maps an existing segment in memory.
+     *
+     * @param segmentPath the segment to open
+     * @return the mapped segment
+     * @throws IOException if the file cannot be mapped
+     */
+    public static PriceSegment open(Path segmentPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new PriceSegment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Opens the segment of the given CSV file, if it exists and still matches the CSV content.
+     *
+     * @param csvPath the CSV file the segment was converted from
+     * @param duplicatePolicy the duplicate policy of the store
+     * @return the mapped segment or null if missing, unreadable, stale or written with another duplicate policy
+     */
+    public static PriceSegment openIfUpToDate(Path csvPath, DuplicatePolicy duplicatePolicy) {
+        final Path segmentPath = segmentPath(csvPath);
+        if (!Files.isRegularFile(segmentPath)) {
+            return null;
+        }
+        try {
+            final PriceSegment segment = open(segmentPath);
+            final boolean upToDate = segment.duplicatePolicy == duplicatePolicy
+                    && segment.sourceSize == Files.size(csvPath)
+                    && segment.sourceLastModified == Files.getLastModifiedTime(csvPath).toMillis();
+            return upToDate ? segment : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Converts the given price history into the segment of the given CSV file.
+     * The segment is written next to the CSV file and atomically replaces any previous one.
+     *
+     * @param columns the price history, as parsed from the CSV file
+     * @param duplicatePolicy the duplicate policy the price history was parsed with
+     * @param csvPath the CSV file the price history was read from
+     * @throws IOException if writing the segment fails, or the price history holds more than {@link #MAX_COUNT} values
+     */
+    public static void write(PriceColumns columns, DuplicatePolicy duplicatePolicy, Path csvPath) throws IOException {
+        final int count = columns.size();
+        if (count > MAX_COUNT) {
+            throw new IOException(String.format("%d values do not fit in a price segment, at most %d do",
+                    count, MAX_COUNT));
+        }
+        final PriceStatistics statistics = columns.getStatistics();
+
+        final Path segmentPath = segmentPath(csvPath);
+        final Path tempPath = segmentPath.resolveSibling(segmentPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + 16L * count);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC)
+                    .putShort(VERSION)
+                    .putShort((short) columns.getDecimals())
+                    .putLong(count)
+                    .putLong(Files.size(csvPath))
+                    .putLong(Files.getLastModifiedTime(csvPath).toMillis())
+                    .putLong(count == 0 ? 0 : statistics.getOldest().getTimestamp())
+                    .putLong(count == 0 ? 0 : statistics.getNewest().getTimestamp())
+                    .putLong(statistics.getMinPrice())
+                    .putLong(statistics.getMaxPrice())
+                    .put((byte) duplicatePolicy.ordinal())
+                    .position(HEADER_SIZE);
+            for (int i = 0; i < count; i++) {
+                buffer.putLong(columns.timestampAt(i));
+            }
+            for (int i = 0; i < count; i++) {
+                buffer.putLong(columns.priceAt(i));
+            }
+            buffer.force();
+        }
+        Files.move(tempPath, segmentPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the size of the segment file in bytes
+     */
+    public long byteSize() {
+        return HEADER_SIZE + 16L * count;
+    }
+
+    public int getDecimals() {
+        return decimals;
+    }
+
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    /**
+     * @return the min price, scaled by 10^{@link #getDecimals()}
+     */
+    public long getMinPrice() {
+        return minScaledPrice;
+    }
+
+    /**
+     * @return the max price, scaled by 10^{@link #getDecimals()}
+     */
+    public long getMaxPrice() {
+        return maxScaledPrice;
+    }
+
+    public long timestampAt(int index) {
+        return timestamps.get(index);
+    }
+
+    /**
+     * @return the price at the given index, scaled by 10^{@link #getDecimals()}
+     */
+    public long priceAt(int index) {
+        return prices.get(index);
+    }
+
+    /**
+     * Bulk-copies a range of the segment into the given arrays.
+     *
+     * @param from first index of the segment to copy
+     * @param targetTimestamps receives the timestamps, starting at index 0
+     * @param targetPrices receives the prices scaled by 10^{@link #getDecimals()}, starting at index 0
+     * @param length number of entries to copy
+     */
+    public void copyTo(int from, long[] targetTimestamps, long[] targetPrices, int length) {
+        timestamps.get(from, targetTimestamps, 0, length);
+        prices.get(from, targetPrices, 0, length);
+    }
+}
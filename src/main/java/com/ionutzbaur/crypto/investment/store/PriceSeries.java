@@ -0,0 +1,303 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.DuplicatePolicy;
+import com.ionutzbaur.crypto.investment.domain.RollingWindow;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+
+import java.util.Arrays;
+
+/**
+ * Columnar price history of a single crypto, kept sorted by timestamp.
+ * Writers are serialized on this instance, readers work lock-free on the last published {@link PriceColumns},
+ * whose {@link PriceStatistics}, {@link HourlyRollups} and {@link RollingAggregate}s are updated incrementally
+ * with every append.
+ * Published entries are never modified afterwards: values newer than the history are written past the published
+ * size, while older values are merged into new arrays, so they only become visible once a new view is published.
+ * Prices are fixed-point, with as many decimals as the most precise price added so far: a value with more
+ * decimals rescales the whole history into new arrays, which only happens until the precision of the crypto is met.
+ * Values sharing the timestamp of another one are handled according to the {@link DuplicatePolicy} of the series:
+ * the history holds a single value per timestamp unless all of them are kept.
+ */
+public class PriceSeries {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final CryptoType symbol;
+    private final DuplicatePolicy duplicatePolicy;
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private int decimals;
+    private int size;
+    private long version;
+
+    private HourlyRollups rollups = new HourlyRollups();
+    private final RollingAggregate[] rollingAggregates = new RollingAggregate[RollingWindow.values().length];
+
+    private volatile PriceColumns columns;
+
+    public PriceSeries(CryptoType symbol) {
+        this(symbol, DuplicatePolicy.KEEP);
+    }
+
+    public PriceSeries(CryptoType symbol, DuplicatePolicy duplicatePolicy) {
+        this.symbol = symbol;
+        this.duplicatePolicy = duplicatePolicy;
+        for (RollingWindow window : RollingWindow.values()) {
+            rollingAggregates[window.ordinal()] = new RollingAggregate(window);
+        }
+        this.columns = new PriceColumns(symbol, 0, timestamps, prices, 0, 0, PriceStatistics.empty(symbol),
+                rollups.view(), rollingViews());
+    }
+
+    public CryptoType getSymbol() {
+        return symbol;
+    }
+
+    public DuplicatePolicy getDuplicatePolicy() {
+        return duplicatePolicy;
+    }
+
+    /**
+     * @return the latest published view of this series
+     */
+    public PriceColumns columns() {
+        return columns;
+    }
+
+    /**
+     * Adds the first {@code count} entries of the given columns, in any order, and publishes them to readers at once.
+     * The given arrays are not modified.
+     * Unless the series keeps all the values, entries sharing a timestamp with another entry or with the history
+     * replace it or are dropped, as per the {@link DuplicatePolicy}; the published view then holds fewer new entries.
+     *
+     * @param newTimestamps the timestamps to add
+     * @param newPrices the prices to add, scaled by 10^newDecimals
+     * @param newDecimals the number of decimals of the given prices
+     * @param count the number of entries to add
+     * @return the published view
+     * @throws CryptoInvestmentException if a price is out of range once rescaled, then nothing is added
+     */
+    public synchronized PriceColumns appendAll(long[] newTimestamps, long[] newPrices, int newDecimals, int count) {
+        if (count == 0) {
+            return columns;
+        }
+
+        PriceStatistics statistics = columns.getStatistics();
+        long[] scaledPrices = newPrices;
+        if (newDecimals < decimals) {
+            scaledPrices = FixedPoint.rescale(newPrices, count, newDecimals, decimals);
+        } else if (newDecimals > decimals) {
+            statistics = statistics.rescale(newDecimals);
+            rescale(newDecimals);
+        }
+
+        long[] sortedTimestamps = newTimestamps;
+        long[] sortedPrices = scaledPrices;
+        if (!TimestampSort.isSorted(newTimestamps, count)) {
+            sortedTimestamps = Arrays.copyOf(newTimestamps, count);
+            sortedPrices = Arrays.copyOf(scaledPrices, count);
+            TimestampSort.sort(sortedTimestamps, sortedPrices, count);
+        }
+
+        int uniqueCount = count;
+        if (duplicatePolicy != DuplicatePolicy.KEEP && hasEqualNeighbours(sortedTimestamps, count)) {
+            if (sortedTimestamps == newTimestamps) {
+                sortedTimestamps = Arrays.copyOf(newTimestamps, count);
+                sortedPrices = Arrays.copyOf(scaledPrices, count);
+            }
+            uniqueCount = collapse(sortedTimestamps, sortedPrices, count);
+        }
+
+        if (size == 0 || sortedTimestamps[0] > timestamps[size - 1]
+                || (sortedTimestamps[0] == timestamps[size - 1] && duplicatePolicy == DuplicatePolicy.KEEP)) {
+            statistics = uniqueCount == count
+                    ? statistics.with(newTimestamps, scaledPrices, 0, count)
+                    : statistics.with(sortedTimestamps, sortedPrices, 0, uniqueCount);
+            append(sortedTimestamps, sortedPrices, uniqueCount);
+        } else if (duplicatePolicy == DuplicatePolicy.KEEP || !overlaps(sortedTimestamps, uniqueCount)) {
+            statistics = uniqueCount == count
+                    ? statistics.with(newTimestamps, scaledPrices, 0, count)
+                    : statistics.with(sortedTimestamps, sortedPrices, 0, uniqueCount);
+            merge(sortedTimestamps, sortedPrices, uniqueCount);
+        } else {
+            mergeReplacing(sortedTimestamps, sortedPrices, uniqueCount);
+            // replaced values may have been the oldest, newest, min or max ones
+            statistics = PriceStatistics.empty(symbol).rescale(decimals).with(timestamps, prices, 0, size);
+        }
+
+        columns = new PriceColumns(symbol, ++version, timestamps, prices, decimals, size, statistics,
+                rollups.view(), rollingViews());
+        return columns;
+    }
+
+    private static boolean hasEqualNeighbours(long[] sortedTimestamps, int count) {
+        for (int i = 1; i < count; i++) {
+            if (sortedTimestamps[i] == sortedTimestamps[i - 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keeps a single entry per timestamp of the given sorted columns, in place, as per the duplicate policy.
+     *
+     * @return the number of entries left
+     */
+    private int collapse(long[] sortedTimestamps, long[] sortedPrices, int count) {
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique > 0 && sortedTimestamps[unique - 1] == sortedTimestamps[i]) {
+                if (duplicatePolicy == DuplicatePolicy.LAST_WRITE_WINS) {
+                    sortedPrices[unique - 1] = sortedPrices[i];
+                }
+                continue;
+            }
+            sortedTimestamps[unique] = sortedTimestamps[i];
+            sortedPrices[unique++] = sortedPrices[i];
+        }
+        return unique;
+    }
+
+    /**
+     * @return whether any of the given sorted timestamps is already in the history, found by binary search
+     */
+    private boolean overlaps(long[] sortedTimestamps, int count) {
+        for (int i = 0; i < count && sortedTimestamps[i] <= timestamps[size - 1]; i++) {
+            final int index = TimestampSort.lowerBound(timestamps, size, sortedTimestamps[i]);
+            if (index < size && timestamps[index] == sortedTimestamps[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private RollingAggregate.View[] rollingViews() {
+        final RollingAggregate.View[] views = new RollingAggregate.View[rollingAggregates.length];
+        for (int i = 0; i < rollingAggregates.length; i++) {
+            views[i] = rollingAggregates[i].view(timestamps, prices);
+        }
+        return views;
+    }
+
+    /**
+     * Moves the history to new arrays with more decimals and rolls it up again.
+     * Nothing changes if a price is out of range.
+     */
+    private void rescale(int newDecimals) {
+        prices = FixedPoint.rescale(prices, size, decimals, newDecimals);
+        decimals = newDecimals;
+
+        rollups = new HourlyRollups();
+        for (int i = 0; i < size; i++) {
+            rollups.add(timestamps[i], prices[i]);
+        }
+    }
+
+    private void append(long[] newTimestamps, long[] newPrices, int count) {
+        if (size + count > timestamps.length) {
+            // old arrays stay untouched so views published before the growth remain valid
+            final int newCapacity = newCapacity(size + count);
+            timestamps = Arrays.copyOf(timestamps, newCapacity);
+            prices = Arrays.copyOf(prices, newCapacity);
+        }
+        System.arraycopy(newTimestamps, 0, timestamps, size, count);
+        System.arraycopy(newPrices, 0, prices, size, count);
+        for (int i = 0; i < count; i++) {
+            rollups.add(newTimestamps[i], newPrices[i]);
+        }
+        size += count;
+        for (RollingAggregate rollingAggregate : rollingAggregates) {
+            rollingAggregate.advance(timestamps, prices, decimals, size);
+        }
+    }
+
+    /**
+     * Merges sorted values older than the newest published one into new arrays.
+     * On equal timestamps the values already in the history come first.
+     */
+    private void merge(long[] newTimestamps, long[] newPrices, int count) {
+        final int mergeFrom = TimestampSort.upperBound(timestamps, size, newTimestamps[0]);
+        final int newCapacity = size + count <= timestamps.length ? timestamps.length : newCapacity(size + count);
+        final long[] mergedTimestamps = Arrays.copyOf(timestamps, newCapacity);
+        final long[] mergedPrices = Arrays.copyOf(prices, newCapacity);
+
+        int existing = mergeFrom;
+        int added = 0;
+        for (int i = mergeFrom; i < size + count; i++) {
+            if (added >= count || (existing < size && timestamps[existing] <= newTimestamps[added])) {
+                mergedTimestamps[i] = timestamps[existing];
+                mergedPrices[i] = prices[existing++];
+            } else {
+                mergedTimestamps[i] = newTimestamps[added];
+                mergedPrices[i] = newPrices[added++];
+            }
+        }
+
+        timestamps = mergedTimestamps;
+        prices = mergedPrices;
+        size += count;
+
+        // roll up again every hour touched by the merge
+        rollups.truncateFrom(newTimestamps[0]);
+        for (int i = TimestampSort.lowerBound(timestamps, size, HourlyRollups.hourStart(newTimestamps[0])); i < size; i++) {
+            rollups.add(timestamps[i], prices[i]);
+        }
+        // the merged values may fall within the windows, which only slide forward
+        for (RollingAggregate rollingAggregate : rollingAggregates) {
+            rollingAggregate.reset(timestamps, prices, decimals, size);
+        }
+    }
+
+    /**
+     * Merges sorted values, some of them sharing the timestamp of a value of the history, into new arrays.
+     * A shared timestamp keeps either the new value or the existing one, as per the duplicate policy.
+     */
+    private void mergeReplacing(long[] newTimestamps, long[] newPrices, int count) {
+        final int mergeFrom = TimestampSort.lowerBound(timestamps, size, newTimestamps[0]);
+        final int newCapacity = size + count <= timestamps.length ? timestamps.length : newCapacity(size + count);
+        final long[] mergedTimestamps = Arrays.copyOf(timestamps, newCapacity);
+        final long[] mergedPrices = Arrays.copyOf(prices, newCapacity);
+
+        int existing = mergeFrom;
+        int added = 0;
+        int merged = mergeFrom;
+        while (existing < size || added < count) {
+            if (added >= count || (existing < size && timestamps[existing] < newTimestamps[added])) {
+                mergedTimestamps[merged] = timestamps[existing];
+                mergedPrices[merged++] = prices[existing++];
+            } else if (existing >= size || newTimestamps[added] < timestamps[existing]) {
+                mergedTimestamps[merged] = newTimestamps[added];
+                mergedPrices[merged++] = newPrices[added++];
+            } else if (duplicatePolicy == DuplicatePolicy.LAST_WRITE_WINS) {
+                final long timestamp = newTimestamps[added];
+                mergedTimestamps[merged] = timestamp;
+                mergedPrices[merged++] = newPrices[added++];
+                while (existing < size && timestamps[existing] == timestamp) {
+                    existing++;
+                }
+            } else {
+                added++;
+            }
+        }
+
+        timestamps = mergedTimestamps;
+        prices = mergedPrices;
+        size = merged;
+
+        rollups.truncateFrom(newTimestamps[0]);
+        for (int i = TimestampSort.lowerBound(timestamps, size, HourlyRollups.hourStart(newTimestamps[0])); i < size; i++) {
+            rollups.add(timestamps[i], prices[i]);
+        }
+        for (RollingAggregate rollingAggregate : rollingAggregates) {
+            rollingAggregate.reset(timestamps, prices, decimals, size);
+        }
+    }
+
+    private int newCapacity(int required) {
+        return Math.max(required, timestamps.length + (timestamps.length >> 1));
+    }
+}
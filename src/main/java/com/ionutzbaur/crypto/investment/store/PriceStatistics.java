@@ -0,0 +1,197 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+
+/**
+ * Immutable running aggregate of the price history of a single crypto.
+ * A new instance is derived on every append, so reading any statistic is constant-time.
+ * On ties the entry seen first is kept, same as a full scan would do.
+ * Prices are scaled by 10^{@link #getDecimals()}, see {@link FixedPoint}; only the sum is approximate.
+ */
+public final class PriceStatistics {
+
+    private final CryptoType symbol;
+    private final int decimals;
+    private final long count;
+    private final double sum;
+
+    private final long minTimestamp;
+    private final long minPrice;
+    private final long maxTimestamp;
+    private final long maxPrice;
+    private final long oldestTimestamp;
+    private final long oldestPrice;
+    private final long newestTimestamp;
+    private final long newestPrice;
+
+    private PriceStatistics(CryptoType symbol, int decimals, long count, double sum,
+                            long minTimestamp, long minPrice, long maxTimestamp, long maxPrice,
+                            long oldestTimestamp, long oldestPrice, long newestTimestamp, long newestPrice) {
+        this.symbol = symbol;
+        this.decimals = decimals;
+        this.count = count;
+        this.sum = sum;
+        this.minTimestamp = minTimestamp;
+        this.minPrice = minPrice;
+        this.maxTimestamp = maxTimestamp;
+        this.maxPrice = maxPrice;
+        this.oldestTimestamp = oldestTimestamp;
+        this.oldestPrice = oldestPrice;
+        this.newestTimestamp = newestTimestamp;
+        this.newestPrice = newestPrice;
+    }
+
+    static PriceStatistics empty(CryptoType symbol) {
+        return new PriceStatistics(symbol, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Restores statistics saved by a {@link StoreSnapshot}.
+     */
+    static PriceStatistics of(CryptoType symbol, int decimals, long count, double sum,
+                              long minTimestamp, long minPrice, long maxTimestamp, long maxPrice,
+                              long oldestTimestamp, long oldestPrice, long newestTimestamp, long newestPrice) {
+        return new PriceStatistics(symbol, decimals, count, sum, minTimestamp, minPrice, maxTimestamp, maxPrice,
+                oldestTimestamp, oldestPrice, newestTimestamp, newestPrice);
+    }
+
+    /**
+     * Derives the same statistics with prices scaled by 10^newDecimals.
+     */
+    PriceStatistics rescale(int newDecimals) {
+        if (newDecimals == decimals) {
+            return this;
+        }
+        return new PriceStatistics(symbol, newDecimals, count, sum,
+                minTimestamp, FixedPoint.rescale(minPrice, decimals, newDecimals),
+                maxTimestamp, FixedPoint.rescale(maxPrice, decimals, newDecimals),
+                oldestTimestamp, FixedPoint.rescale(oldestPrice, decimals, newDecimals),
+                newestTimestamp, FixedPoint.rescale(newestPrice, decimals, newDecimals));
+    }
+
+    /**
+     * Derives the statistics after appending the entries in [from, to) of the given columns,
+     * whose prices are scaled by 10^{@link #getDecimals()}.
+     */
+    PriceStatistics with(long[] timestamps, long[] prices, int from, int to) {
+        if (from >= to) {
+            return this;
+        }
+
+        long newCount = count;
+        double newSum = sum;
+        long newMinTimestamp = minTimestamp;
+        long newMinPrice = minPrice;
+        long newMaxTimestamp = maxTimestamp;
+        long newMaxPrice = maxPrice;
+        long newOldestTimestamp = oldestTimestamp;
+        long newOldestPrice = oldestPrice;
+        long newNewestTimestamp = newestTimestamp;
+        long newNewestPrice = newestPrice;
+
+        for (int i = from; i < to; i++) {
+            final long timestamp = timestamps[i];
+            final long price = prices[i];
+            final boolean first = newCount == 0;
+
+            if (first || price < newMinPrice) {
+                newMinPrice = price;
+                newMinTimestamp = timestamp;
+            }
+            if (first || price > newMaxPrice) {
+                newMaxPrice = price;
+                newMaxTimestamp = timestamp;
+            }
+            if (first || timestamp < newOldestTimestamp) {
+                newOldestTimestamp = timestamp;
+                newOldestPrice = price;
+            }
+            if (first || timestamp > newNewestTimestamp) {
+                newNewestTimestamp = timestamp;
+                newNewestPrice = price;
+            }
+            newCount++;
+            newSum += FixedPoint.toDouble(price, decimals);
+        }
+
+        return new PriceStatistics(symbol, decimals, newCount, newSum,
+                newMinTimestamp, newMinPrice, newMaxTimestamp, newMaxPrice,
+                newOldestTimestamp, newOldestPrice, newNewestTimestamp, newNewestPrice);
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public int getDecimals() {
+        return decimals;
+    }
+
+    /**
+     * @return the min price, scaled by 10^{@link #getDecimals()}
+     */
+    public long getMinPrice() {
+        return minPrice;
+    }
+
+    /**
+     * @return the max price, scaled by 10^{@link #getDecimals()}
+     */
+    public long getMaxPrice() {
+        return maxPrice;
+    }
+
+    long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    long getOldestTimestamp() {
+        return oldestTimestamp;
+    }
+
+    long getOldestPrice() {
+        return oldestPrice;
+    }
+
+    long getNewestTimestamp() {
+        return newestTimestamp;
+    }
+
+    long getNewestPrice() {
+        return newestPrice;
+    }
+
+    public CsvCrypto getMin() {
+        return row(minTimestamp, minPrice);
+    }
+
+    public CsvCrypto getMax() {
+        return row(maxTimestamp, maxPrice);
+    }
+
+    public CsvCrypto getOldest() {
+        return row(oldestTimestamp, oldestPrice);
+    }
+
+    public CsvCrypto getNewest() {
+        return row(newestTimestamp, newestPrice);
+    }
+
+    private CsvCrypto row(long timestamp, long price) {
+        return isEmpty() ? null : new CsvCrypto(timestamp, symbol, FixedPoint.toBigDecimal(price, decimals));
+    }
+}
@@ -0,0 +1,151 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import java.util.List;
+
+/**
+ * Immutable, mergeable sketch of a distribution of prices, answering quantiles within a relative error of
+ * {@value #RELATIVE_ACCURACY} regardless of the number of values.
+ * Values are counted in logarithmic buckets, the bucket i covering (gamma^(i-1), gamma^i]: the prices of a day
+ * usually fall in a handful of buckets, and even years of a volatile crypto in a few hundred.
+ * Merging two sketches adds up their counts, so the sketch of any range of days is exactly the one of its values.
+ * Non-positive prices are counted apart, as zero.
+ */
+public final class QuantileSketch {
+
+    static final double RELATIVE_ACCURACY = 0.005;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private static final QuantileSketch EMPTY = new QuantileSketch(0, new long[0], 0, 0);
+
+    // bucket index of counts[0]
+    private final int offset;
+    private final long[] counts;
+    private final long zeroCount;
+    private final long count;
+
+    private QuantileSketch(int offset, long[] counts, long zeroCount, long count) {
+        this.offset = offset;
+        this.counts = counts;
+        this.zeroCount = zeroCount;
+        this.count = count;
+    }
+
+    static QuantileSketch empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param values the values to count
+     * @param length the number of values to count, from index 0
+     */
+    static QuantileSketch of(double[] values, int length) {
+        int minIndex = Integer.MAX_VALUE;
+        int maxIndex = Integer.MIN_VALUE;
+        for (int i = 0; i < length; i++) {
+            if (values[i] > 0) {
+                final int index = bucketIndex(values[i]);
+                minIndex = Math.min(minIndex, index);
+                maxIndex = Math.max(maxIndex, index);
+            }
+        }
+
+        final long[] counts = new long[minIndex > maxIndex ? 0 : maxIndex - minIndex + 1];
+        long zeroCount = 0;
+        for (int i = 0; i < length; i++) {
+            if (values[i] > 0) {
+                counts[bucketIndex(values[i]) - minIndex]++;
+            } else {
+                zeroCount++;
+            }
+        }
+        return new QuantileSketch(counts.length == 0 ? 0 : minIndex, counts, zeroCount, length);
+    }
+
+    /**
+     * @return the sketch of the values of both sketches
+     */
+    QuantileSketch merge(QuantileSketch other) {
+        if (other.counts.length == 0 || counts.length == 0) {
+            final QuantileSketch buckets = counts.length == 0 ? other : this;
+            return new QuantileSketch(buckets.offset, buckets.counts, zeroCount + other.zeroCount, count + other.count);
+        }
+
+        final int mergedOffset = Math.min(offset, other.offset);
+        final int mergedEnd = Math.max(offset + counts.length, other.offset + other.counts.length);
+        final long[] mergedCounts = new long[mergedEnd - mergedOffset];
+        for (int i = 0; i < counts.length; i++) {
+            mergedCounts[offset - mergedOffset + i] += counts[i];
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            mergedCounts[other.offset - mergedOffset + i] += other.counts[i];
+        }
+        return new QuantileSketch(mergedOffset, mergedCounts, zeroCount + other.zeroCount, count + other.count);
+    }
+
+    /**
+     * @return the sketch of the values of all the given sketches, whose counts are added up in a single pass
+     */
+    static QuantileSketch mergeAll(List<QuantileSketch> sketches) {
+        int mergedOffset = Integer.MAX_VALUE;
+        int mergedEnd = Integer.MIN_VALUE;
+        long zeroCount = 0;
+        long count = 0;
+        for (QuantileSketch sketch : sketches) {
+            if (sketch.counts.length > 0) {
+                mergedOffset = Math.min(mergedOffset, sketch.offset);
+                mergedEnd = Math.max(mergedEnd, sketch.offset + sketch.counts.length);
+            }
+            zeroCount += sketch.zeroCount;
+            count += sketch.count;
+        }
+        if (mergedOffset > mergedEnd) {
+            return new QuantileSketch(0, new long[0], zeroCount, count);
+        }
+
+        final long[] mergedCounts = new long[mergedEnd - mergedOffset];
+        for (QuantileSketch sketch : sketches) {
+            for (int i = 0; i < sketch.counts.length; i++) {
+                mergedCounts[sketch.offset - mergedOffset + i] += sketch.counts[i];
+            }
+        }
+        return new QuantileSketch(mergedOffset, mergedCounts, zeroCount, count);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Quantiles follow the nearest-rank definition: the q quantile of n values is the ceil(q * n)-th smallest one,
+     * the smallest value at or above which lie a share q of the values, e.g. the 95th percentile of 5 values is
+     * the largest one. No value is interpolated, the answer being within the relative error of a value seen.
+     *
+     * @param quantile the quantile, from 0 to 1
+     * @return the estimated value of the given quantile, NaN if the sketch is empty
+     */
+    public double quantile(double quantile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        // 0-based
+        final long rank = Math.max(0, (long) Math.ceil(quantile * count) - 1);
+        if (rank < zeroCount) {
+            return 0;
+        }
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                // the value at the same relative distance from both ends of the bucket
+                return 2 * Math.pow(GAMMA, offset + i) / (GAMMA + 1);
+            }
+        }
+        return 2 * Math.pow(GAMMA, offset + counts.length - 1) / (GAMMA + 1);
+    }
+
+    private static int bucketIndex(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+}
@@ -0,0 +1,259 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.RollingWindow;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+
+/**
+ * Sliding-window aggregate of a price series, maintained by the owning {@link PriceSeries} as values are added
+ * in timestamp order. The window ends with the newest value of the series and covers the values within its duration,
+ * i.e. with a timestamp in (newest - duration, newest].
+ * Min and max are kept by monotonic deques of series indices and the mean and variance by Welford's algorithm,
+ * so each added or expired value costs constant amortized time.
+ * Prices are scaled by 10^decimals of the owning series, see {@link FixedPoint}; only the mean and variance
+ * are approximate and kept unscaled, so they survive a rescale of the series.
+ */
+public final class RollingAggregate {
+
+    private final RollingWindow window;
+    private final long durationMillis;
+
+    // series index of the oldest value in the window, the newest one is the last of the series
+    private int start;
+    private int end;
+    private final IndexDeque minIndices = new IndexDeque();
+    private final IndexDeque maxIndices = new IndexDeque();
+
+    private double mean;
+    private double m2;
+
+    RollingAggregate(RollingWindow window) {
+        this.window = window;
+        this.durationMillis = window.getDuration().toMillis();
+    }
+
+    /**
+     * Moves the window to the end of the series after values were appended to it.
+     *
+     * @param timestamps the timestamps of the series
+     * @param prices the prices of the series
+     * @param decimals the number of decimals of the prices
+     * @param size the size of the series, the values from the previous size on are the appended ones
+     */
+    void advance(long[] timestamps, long[] prices, int decimals, int size) {
+        if (end == size) {
+            return;
+        }
+        for (int i = end; i < size; i++) {
+            add(prices, decimals, i);
+        }
+        end = size;
+
+        final long expiredUntil = timestamps[size - 1] - durationMillis;
+        while (timestamps[start] <= expiredUntil) {
+            remove(prices, decimals, start++);
+        }
+        minIndices.dropBefore(start);
+        maxIndices.dropBefore(start);
+    }
+
+    /**
+     * Recomputes the window from scratch, after values were merged into the history of the series.
+     */
+    void reset(long[] timestamps, long[] prices, int decimals, int size) {
+        minIndices.clear();
+        maxIndices.clear();
+        mean = 0;
+        m2 = 0;
+        start = size == 0 ? 0 : TimestampSort.upperBound(timestamps, size, timestamps[size - 1] - durationMillis);
+        end = start;
+        advance(timestamps, prices, decimals, size);
+    }
+
+    View view(long[] timestamps, long[] prices) {
+        final int count = end - start;
+        if (count == 0) {
+            return new View(window, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        }
+        final int min = minIndices.first();
+        final int max = maxIndices.first();
+        return new View(window, count, timestamps[start], timestamps[end - 1],
+                timestamps[min], prices[min], timestamps[max], prices[max],
+                mean, Math.sqrt(Math.max(m2, 0) / count));
+    }
+
+    private void add(long[] prices, int decimals, int index) {
+        final long price = prices[index];
+        // on ties the older value stays in front, same as the running statistics
+        while (!minIndices.isEmpty() && prices[minIndices.last()] > price) {
+            minIndices.removeLast();
+        }
+        minIndices.addLast(index);
+        while (!maxIndices.isEmpty() && prices[maxIndices.last()] < price) {
+            maxIndices.removeLast();
+        }
+        maxIndices.addLast(index);
+
+        final double value = FixedPoint.toDouble(price, decimals);
+        final int count = index - start + 1;
+        final double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    private void remove(long[] prices, int decimals, int index) {
+        final int count = end - index;
+        if (count == 1) {
+            mean = 0;
+            m2 = 0;
+            return;
+        }
+        final double value = FixedPoint.toDouble(prices[index], decimals);
+        final double newMean = (count * mean - value) / (count - 1);
+        m2 -= (value - mean) * (value - newMean);
+        mean = newMean;
+    }
+
+    /**
+     * Growable ring buffer of ascending series indices.
+     */
+    private static final class IndexDeque {
+
+        private int[] indices = new int[16];
+        private int head;
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int first() {
+            return indices[head];
+        }
+
+        int last() {
+            return indices[(head + size - 1) & (indices.length - 1)];
+        }
+
+        void addLast(int index) {
+            if (size == indices.length) {
+                final int[] grown = new int[indices.length << 1];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = indices[(head + i) & (indices.length - 1)];
+                }
+                indices = grown;
+                head = 0;
+            }
+            indices[(head + size++) & (indices.length - 1)] = index;
+        }
+
+        void removeLast() {
+            size--;
+        }
+
+        void dropBefore(int index) {
+            while (size > 0 && indices[head] < index) {
+                head = (head + 1) & (indices.length - 1);
+                size--;
+            }
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+    }
+
+    /**
+     * Immutable, point-in-time view over a window.
+     */
+    public static final class View {
+
+        private final RollingWindow window;
+        private final int count;
+        private final long fromTimestamp;
+        private final long toTimestamp;
+        private final long minTimestamp;
+        private final long minPrice;
+        private final long maxTimestamp;
+        private final long maxPrice;
+        private final double mean;
+        private final double standardDeviation;
+
+        private View(RollingWindow window, int count, long fromTimestamp, long toTimestamp,
+                     long minTimestamp, long minPrice, long maxTimestamp, long maxPrice,
+                     double mean, double standardDeviation) {
+            this.window = window;
+            this.count = count;
+            this.fromTimestamp = fromTimestamp;
+            this.toTimestamp = toTimestamp;
+            this.minTimestamp = minTimestamp;
+            this.minPrice = minPrice;
+            this.maxTimestamp = maxTimestamp;
+            this.maxPrice = maxPrice;
+            this.mean = mean;
+            this.standardDeviation = standardDeviation;
+        }
+
+        public RollingWindow getWindow() {
+            return window;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * @return the timestamp of the oldest value in the window
+         */
+        public long getFromTimestamp() {
+            return fromTimestamp;
+        }
+
+        /**
+         * @return the timestamp of the newest value in the window, which is the newest of the series
+         */
+        public long getToTimestamp() {
+            return toTimestamp;
+        }
+
+        public long getMinTimestamp() {
+            return minTimestamp;
+        }
+
+        /**
+         * @return the min price, scaled by 10^decimals of the series
+         */
+        public long getMinPrice() {
+            return minPrice;
+        }
+
+        public long getMaxTimestamp() {
+            return maxTimestamp;
+        }
+
+        /**
+         * @return the max price, scaled by 10^decimals of the series
+         */
+        public long getMaxPrice() {
+            return maxPrice;
+        }
+
+        /**
+         * @return the mean price, unscaled
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * @return the population standard deviation of the prices, unscaled
+         */
+        public double getStandardDeviation() {
+            return standardDeviation;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.DuplicatePolicy;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import com.ionutzbaur.crypto.investment.util.FixedPoint;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time copy of the aggregates of the {@link CryptoPriceStore}: for each crypto, its {@link PriceStatistics}
+ * and its min/max prices by day of the {@link DayIndex}, along with the size and last modified time of the CSV file
+ * they were computed from, which tell whether they still match it.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * header:  int magic, short version, UTF zone id, UTF duplicate policy, int crypto count
+ * crypto:  UTF symbol, long source size, long source last modified millis,
+ *          byte price decimals, long count, double sum, long min timestamp, long min price,
+ *          long max timestamp, long max price, long oldest timestamp, long oldest price,
+ *          long newest timestamp, long newest price,
+ *          int day count, days: long epoch day, byte price decimals, long min price, long max price
+ * trailer: long CRC32 of everything before
+ * </pre>
+ * The prices are the fixed-point ones of the store, see {@link FixedPoint}. The days depend on the time zone and
+ * the aggregates on the duplicate policy, so a snapshot taken with other settings is ignored.
+ */
+public final class StoreSnapshot {
+
+    public static final String FILE_NAME = "aggregates.snapshot";
+
+    private static final int MAGIC = 0x43525353; // CRSS
+    private static final short VERSION = 1;
+
+    /**
+     * Aggregates of a single crypto.
+     *
+     * @param sourceSize the size of the CSV file, all of it being part of the aggregates
+     * @param sourceLastModified the last modified time of the CSV file, in epoch millis
+     */
+    public record Entry(CryptoType cryptoType, long sourceSize, long sourceLastModified, PriceStatistics statistics,
+                        List<DayIndex.DayRange> days) {
+
+        /**
+         * @param csvPath the CSV file of the crypto
+         * @return whether the CSV file was left untouched since the aggregates were taken
+         */
+        public boolean isUpToDate(Path csvPath) {
+            try {
+                return sourceSize == Files.size(csvPath)
+                        && sourceLastModified == Files.getLastModifiedTime(csvPath).toMillis();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    private StoreSnapshot() {
+        // utility class
+    }
+
+    /**
+     * Writes the given aggregates to the given file, atomically replacing any previous snapshot.
+     *
+     * @param snapshotPath the snapshot file
+     * @param zoneId the time zone of the days
+     * @param duplicatePolicy the duplicate policy the aggregates were computed with
+     * @param entries the aggregates of each crypto
+     * @throws IOException if writing the snapshot fails, then the previous one is left untouched
+     */
+    public static void write(Path snapshotPath, ZoneId zoneId, DuplicatePolicy duplicatePolicy, List<Entry> entries)
+            throws IOException {
+        final Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(tempPath)) {
+            final CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file), new CRC32());
+            final DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeUTF(zoneId.getId());
+            out.writeUTF(duplicatePolicy.name());
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                writeEntry(out, entry);
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+        }
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        final PriceStatistics statistics = entry.statistics();
+        out.writeUTF(entry.cryptoType().name());
+        out.writeLong(entry.sourceSize());
+        out.writeLong(entry.sourceLastModified());
+        out.writeByte(statistics.getDecimals());
+        out.writeLong(statistics.getCount());
+        out.writeDouble(statistics.getSum());
+        out.writeLong(statistics.getMinTimestamp());
+        out.writeLong(statistics.getMinPrice());
+        out.writeLong(statistics.getMaxTimestamp());
+        out.writeLong(statistics.getMaxPrice());
+        out.writeLong(statistics.getOldestTimestamp());
+        out.writeLong(statistics.getOldestPrice());
+        out.writeLong(statistics.getNewestTimestamp());
+        out.writeLong(statistics.getNewestPrice());
+
+        out.writeInt(entry.days().size());
+        for (DayIndex.DayRange day : entry.days()) {
+            out.writeLong(day.epochDay());
+            out.writeByte(day.decimals());
+            out.writeLong(day.minPrice());
+            out.writeLong(day.maxPrice());
+        }
+    }
+
+    /**
+     * Reads the aggregates of a snapshot taken with the given settings.
+     *
+     * @param snapshotPath the snapshot file
+     * @param zoneId the time zone of the days
+     * @param duplicatePolicy the duplicate policy of the store
+     * @return the aggregates by registered crypto, the cryptos being discovered from their CSV file first,
+     * empty if there is no snapshot or it was taken with other settings
+     * @throws IOException if reading the snapshot fails
+     * @throws CryptoInvestmentException if the file is not a supported or intact snapshot
+     */
+    public static Map<CryptoType, Entry> read(Path snapshotPath, ZoneId zoneId, DuplicatePolicy duplicatePolicy)
+            throws IOException {
+        if (!Files.isRegularFile(snapshotPath)) {
+            return Map.of();
+        }
+
+        final byte[] bytes = Files.readAllBytes(snapshotPath);
+        if (bytes.length < 8) {
+            throw new CryptoInvestmentException("Truncated store snapshot");
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        in.skipNBytes(bytes.length - 8);
+        if (in.readLong() != crc.getValue()) {
+            throw new CryptoInvestmentException("Corrupted store snapshot");
+        }
+
+        final DataInputStream body = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8));
+        if (body.readInt() != MAGIC || body.readShort() != VERSION) {
+            throw new CryptoInvestmentException("Not a supported store snapshot");
+        }
+        if (!body.readUTF().equals(zoneId.getId()) || !body.readUTF().equals(duplicatePolicy.name())) {
+            return Map.of();
+        }
+
+        final int count = body.readInt();
+        final Map<CryptoType, Entry> entries = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            final Entry entry = readEntry(body);
+            if (entry != null) {
+                entries.put(entry.cryptoType(), entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return the entry, or null if its crypto is not registered, its CSV file being gone
+     */
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        final CryptoType cryptoType = CryptoType.find(in.readUTF());
+        final long sourceSize = in.readLong();
+        final long sourceLastModified = in.readLong();
+        final PriceStatistics statistics = PriceStatistics.of(cryptoType, in.readByte(), in.readLong(), in.readDouble(),
+                in.readLong(), in.readLong(), in.readLong(), in.readLong(),
+                in.readLong(), in.readLong(), in.readLong(), in.readLong());
+
+        final int dayCount = in.readInt();
+        final List<DayIndex.DayRange> days = new ArrayList<>(dayCount);
+        for (int i = 0; i < dayCount; i++) {
+            days.add(new DayIndex.DayRange(in.readLong(), in.readByte(), in.readLong(), in.readLong()));
+        }
+        if (cryptoType == null) {
+            return null;
+        }
+        return new Entry(cryptoType, sourceSize, sourceLastModified, statistics, days);
+    }
+}
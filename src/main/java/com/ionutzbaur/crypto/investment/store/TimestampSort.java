@@ -0,0 +1,108 @@
+package com.ionutzbaur.crypto.investment.store;
+
+/**
+ * Stable sort of parallel timestamp/price columns by timestamp, without boxing.
+ */
+final class TimestampSort {
+
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private TimestampSort() {
+        // utility class
+    }
+
+    static boolean isSorted(long[] timestamps, int count) {
+        for (int i = 1; i < count; i++) {
+            if (timestamps[i] < timestamps[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void sort(long[] timestamps, long[] prices, int count) {
+        if (count < 2) {
+            return;
+        }
+        final long[] timestampsBuffer = new long[count];
+        final long[] pricesBuffer = new long[count];
+        mergeSort(timestamps, prices, timestampsBuffer, pricesBuffer, 0, count);
+    }
+
+    /**
+     * @return the index of the first entry whose timestamp is greater or equal than the given one, in [0, size]
+     */
+    static int lowerBound(long[] timestamps, int size, long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (timestamps[middle] < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the first entry whose timestamp is strictly greater than the given one, in [0, size]
+     */
+    static int upperBound(long[] timestamps, int size, long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (timestamps[middle] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static void mergeSort(long[] timestamps, long[] prices, long[] timestampsBuffer, long[] pricesBuffer,
+                                  int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(timestamps, prices, from, to);
+            return;
+        }
+        final int middle = (from + to) >>> 1;
+        mergeSort(timestamps, prices, timestampsBuffer, pricesBuffer, from, middle);
+        mergeSort(timestamps, prices, timestampsBuffer, pricesBuffer, middle, to);
+        if (timestamps[middle - 1] <= timestamps[middle]) {
+            return; // already in order
+        }
+
+        System.arraycopy(timestamps, from, timestampsBuffer, from, to - from);
+        System.arraycopy(prices, from, pricesBuffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && timestampsBuffer[left] <= timestampsBuffer[right])) {
+                timestamps[i] = timestampsBuffer[left];
+                prices[i] = pricesBuffer[left++];
+            } else {
+                timestamps[i] = timestampsBuffer[right];
+                prices[i] = pricesBuffer[right++];
+            }
+        }
+    }
+
+    private static void insertionSort(long[] timestamps, long[] prices, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            final long timestamp = timestamps[i];
+            final long price = prices[i];
+            int j = i - 1;
+            while (j >= from && timestamps[j] > timestamp) {
+                timestamps[j + 1] = timestamps[j];
+                prices[j + 1] = prices[j];
+                j--;
+            }
+            timestamps[j + 1] = timestamp;
+            prices[j + 1] = price;
+        }
+    }
+}
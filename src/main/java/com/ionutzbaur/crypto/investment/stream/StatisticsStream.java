@@ -0,0 +1,189 @@
+package com.ionutzbaur.crypto.investment.stream;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoStatistics;
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.service.CryptoService;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import com.ionutzbaur.crypto.investment.store.PriceStatistics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes statistic and ranking changes to Server-Sent Events subscribers whenever new values become visible
+ * in the {@link CryptoPriceStore}.
+ * Updates are coalesced per subscriber: a subscriber only remembers which cryptos changed since its last events
+ * and reads their latest statistics when sending, so a slow client gets the latest snapshot once it catches up
+ * instead of an unbounded backlog. A subscriber with pending updates is served on its own virtual thread,
+ * so a slow client never delays the others nor the ingest.
+ */
+@Component
+public class StatisticsStream implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatisticsStream.class);
+
+    static final String STATISTICS_EVENT = "statistics";
+    static final String RANKING_EVENT = "ranking";
+
+    private final CryptoPriceStore priceStore;
+    private final CryptoService cryptoService;
+    private final long timeoutMillis;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public StatisticsStream(CryptoPriceStore priceStore, CryptoService cryptoService,
+                            @Value("${crypto.stream.timeout:30m}") Duration timeout) {
+        this.priceStore = priceStore;
+        this.cryptoService = cryptoService;
+        this.timeoutMillis = timeout.toMillis();
+        priceStore.addUpdateListener(this::onUpdate);
+    }
+
+    /**
+     * Opens a stream sending the current statistics and ranking right away, then every change of them.
+     * Clients are expected to reconnect once the stream times out.
+     *
+     * @param cryptoTypes the cryptos whose statistics are sent, null or empty for all of them
+     * @return the emitter of the stream
+     */
+    public SseEmitter subscribe(Collection<CryptoType> cryptoTypes) {
+        final SseEmitter emitter = new SseEmitter(timeoutMillis);
+        subscribe(emitter, cryptoTypes);
+        return emitter;
+    }
+
+    void subscribe(SseEmitter emitter, Collection<CryptoType> cryptoTypes) {
+        final Subscriber subscriber = new Subscriber(emitter,
+                cryptoTypes == null || cryptoTypes.isEmpty() ? null : Set.copyOf(cryptoTypes));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        for (CryptoType cryptoType : priceStore.symbols()) {
+            subscriber.changed(cryptoType);
+        }
+        subscriber.schedule();
+    }
+
+    /**
+     * @return the number of open streams
+     */
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        Gauge.builder("crypto.stream.subscribers", this, StatisticsStream::subscriberCount)
+                .description("Number of open statistics streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ends all the streams, clients reconnecting to another instance.
+     */
+    @PreDestroy
+    public void stop() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        executor.shutdownNow();
+    }
+
+    private void onUpdate(CryptoType cryptoType) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.changed(cryptoType);
+            subscriber.schedule();
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Set<CryptoType> cryptoTypes;
+
+        // at most one pending update per crypto plus the ranking, whatever the number of changes
+        private final Set<CryptoType> changedTypes = ConcurrentHashMap.newKeySet();
+        private volatile boolean rankingChanged;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, Set<CryptoType> cryptoTypes) {
+            this.emitter = emitter;
+            this.cryptoTypes = cryptoTypes;
+        }
+
+        void changed(CryptoType cryptoType) {
+            if (cryptoTypes == null || cryptoTypes.contains(cryptoType)) {
+                changedTypes.add(cryptoType);
+            }
+            rankingChanged = true;
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // stopped
+                }
+            }
+        }
+
+        /**
+         * Sends the pending updates until there are none left. Changes arriving meanwhile are either picked up
+         * by this loop or schedule a new drain, never both.
+         */
+        private void drain() {
+            try {
+                do {
+                    for (CryptoType cryptoType : changedTypes) {
+                        changedTypes.remove(cryptoType);
+                        sendStatistics(cryptoType);
+                    }
+                    if (rankingChanged) {
+                        rankingChanged = false;
+                        send(RANKING_EVENT, cryptoService.getNormalizedDesc());
+                    }
+                    scheduled.set(false);
+                } while ((rankingChanged || !changedTypes.isEmpty()) && scheduled.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                LOGGER.debug("Closing a statistics stream", e);
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+            }
+        }
+
+        private void sendStatistics(CryptoType cryptoType) throws IOException {
+            final PriceStatistics statistics = priceStore.statistics(cryptoType);
+            if (!statistics.isEmpty()) {
+                send(STATISTICS_EVENT, new CryptoStatistics(cryptoType, statistics.getOldest(), statistics.getNewest(),
+                        statistics.getMin(), statistics.getMax()));
+            }
+        }
+
+        private void send(String eventName, Object data) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(priceStore.version()))
+                    .name(eventName)
+                    .data(data, MediaType.APPLICATION_JSON));
+        }
+    }
+}
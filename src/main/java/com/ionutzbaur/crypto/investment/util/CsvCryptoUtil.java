@@ -1,57 +1,245 @@
 package com.ionutzbaur.crypto.investment.util;
 
 import com.ionutzbaur.crypto.investment.domain.CryptoType;
-import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
 import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
-import com.opencsv.bean.CsvToBean;
-import com.opencsv.bean.CsvToBeanBuilder;
-import com.opencsv.bean.StatefulBeanToCsv;
-import com.opencsv.bean.StatefulBeanToCsvBuilder;
-import com.opencsv.exceptions.CsvDataTypeMismatchException;
-import com.opencsv.exceptions.CsvRequiredFieldEmptyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.Reader;
-import java.nio.file.*;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class CsvCryptoUtil {
 
-    private static final String CSV_BASE_PATH = "src/main/resources/prices/";
+    private static final Logger LOGGER = LoggerFactory.getLogger(CsvCryptoUtil.class);
+
+    /**
+     * The price directory used unless {@code crypto.data-dir} is configured, relative to the working directory.
+     */
+    public static final Path DEFAULT_DATA_DIRECTORY = Paths.get("src/main/resources/prices");
+
     private static final String CSV_SUFFIX = "_values.csv";
-    private static final String FILE_PATH = CSV_BASE_PATH + "%s" + CSV_SUFFIX;
+    private static final String LOG_INFIX = "_values.";
+    private static final String LOG_SUFFIX = ".log";
+    private static final int TAIL_SCAN_BLOCK = 8192;
 
     private CsvCryptoUtil() {
         // utility class
     }
 
-    public static CsvToBean<CsvCrypto> readCryptoFromCsv(CryptoType cryptoType) throws IOException {
-        final Reader reader = Files.newBufferedReader(Paths.get(String.format(FILE_PATH, cryptoType)));
-        return new CsvToBeanBuilder<CsvCrypto>(reader)
-                .withType(CsvCrypto.class)
-                .withIgnoreLeadingWhiteSpace(true)
-                .build();
+    public static Path getCsvPath(Path directory, CryptoType cryptoType) {
+        return directory.resolve(cryptoType + CSV_SUFFIX);
+    }
+
+    /**
+     * @param csvPath a file of the price directory
+     * @return the symbol of the given {@code <SYMBOL>_values.csv} file, or null if it is not named like one
+     */
+    public static String getCsvSymbol(Path csvPath) {
+        final String fileName = csvPath.getFileName().toString();
+        return fileName.endsWith(CSV_SUFFIX) && fileName.length() > CSV_SUFFIX.length()
+                ? fileName.substring(0, fileName.length() - CSV_SUFFIX.length())
+                : null;
+    }
+
+    /**
+     * Lists the append logs of a crypto, holding the values added since the CSV file was last compacted.
+     * The logs are named {@code <SYMBOL>_values.<generation>.log}, a new generation being started whenever
+     * the previous one is sealed for compaction.
+     *
+     * @param directory the price directory
+     * @param cryptoType the crypto to look up
+     * @return the append logs of the crypto, oldest generation first
+     * @throws IOException if the price directory cannot be listed
+     */
+    public static List<Path> getLogPaths(Path directory, CryptoType cryptoType) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+
+        final List<Path> logPaths = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory,
+                cryptoType + LOG_INFIX + "*" + LOG_SUFFIX)) {
+            for (Path logPath : paths) {
+                if (getLogGeneration(logPath) >= 0) {
+                    logPaths.add(logPath);
+                }
+            }
+        }
+        logPaths.sort(Comparator.comparingLong(CsvCryptoUtil::getLogGeneration));
+        return logPaths;
+    }
+
+    /**
+     * Opens a new generation of the append log of a crypto, after the existing ones.
+     */
+    public static PriceLogWriter openLogWriter(Path directory, CryptoType cryptoType) throws IOException {
+        final List<Path> logPaths = getLogPaths(directory, cryptoType);
+        final long generation = logPaths.isEmpty() ? 1 : getLogGeneration(logPaths.get(logPaths.size() - 1)) + 1;
+        Files.createDirectories(directory);
+        return PriceLogWriter.create(directory.resolve(cryptoType + LOG_INFIX + generation + LOG_SUFFIX));
+    }
+
+    /**
+     * Registers the crypto of every {@code <SYMBOL>_values.csv} file and of every append log in the price directory.
+     *
+     * @param directory the price directory
+     * @return the cryptos having a price file, sorted by name
+     * @throws IOException if the price directory cannot be listed
+     */
+    public static List<CryptoType> discoverCryptos(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+
+        final Set<CryptoType> cryptoTypes = new TreeSet<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory,
+                "*{" + CSV_SUFFIX + "," + LOG_SUFFIX + "}")) {
+            for (Path path : paths) {
+                final String fileName = path.getFileName().toString();
+                final int symbolEnd = fileName.endsWith(CSV_SUFFIX)
+                        ? fileName.length() - CSV_SUFFIX.length()
+                        : fileName.lastIndexOf(LOG_INFIX);
+                if (symbolEnd <= 0 || (fileName.endsWith(LOG_SUFFIX) && getLogGeneration(path) < 0)) {
+                    continue;
+                }
+                try {
+                    cryptoTypes.add(CryptoType.register(fileName.substring(0, symbolEnd)));
+                } catch (CryptoInvestmentException e) {
+                    LOGGER.warn("Ignoring price file {}: {}", path, e.getMessage());
+                }
+            }
+        }
+        return List.copyOf(cryptoTypes);
+    }
+
+    /**
+     * @return the generation of the given append log, or -1 if it is not named like one
+     */
+    private static long getLogGeneration(Path logPath) {
+        final String fileName = logPath.getFileName().toString();
+        final int start = fileName.lastIndexOf(LOG_INFIX) + LOG_INFIX.length();
+        final int end = fileName.length() - LOG_SUFFIX.length();
+        if (start < LOG_INFIX.length() || end <= start || end - start > 18) {
+            return -1;
+        }
+        for (int i = start; i < end; i++) {
+            if (fileName.charAt(i) < '0' || fileName.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        return Long.parseLong(fileName, start, end, 10);
+    }
+
+    public static CsvPriceReader.Result readCryptoFromCsv(Path inputPath, CsvPriceReader.PriceHandler handler) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(inputPath)) {
+            return new CsvPriceReader().read(inputStream, handler);
+        }
+    }
+
+    /**
+     * Reads the complete lines of a CSV file from the given offset on, in the default column order;
+     * a last line not terminated yet, e.g. still being written by another process, is left for the next read.
+     *
+     * @param csvPath the CSV file
+     * @param offset the number of bytes already read, at the start of a line
+     * @param handler receives the values of the lines read
+     * @return the offset after the last line read, the given one if there is no complete line
+     * @throws IOException if reading the file fails
+     */
+    public static long readCsvTail(Path csvPath, long offset, CsvPriceReader.PriceHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            final long end = afterLastNewline(channel, offset, channel.size());
+            if (end > offset) {
+                final InputStream inputStream = Channels.newInputStream(channel.position(offset));
+                new CsvPriceReader().read(new BoundedInputStream(inputStream, end - offset), handler);
+            }
+            return end;
+        }
     }
 
-    public static void writeCryptoToCsv(List<CsvCrypto> csvCryptoList, CryptoType cryptoType) {
-        Path outputPath = Paths.get(String.format(FILE_PATH, cryptoType));
-        if (Files.exists(outputPath)) {
-            writeCryptoToCsv(csvCryptoList, outputPath, false, StandardOpenOption.APPEND);
-        } else {
-            writeCryptoToCsv(csvCryptoList, outputPath, true);
+    /**
+     * @param csvPath the CSV file
+     * @return the number of bytes of the file up to its last line feed included
+     * @throws IOException if reading the file fails
+     */
+    public static long getCompleteLinesLength(Path csvPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            return afterLastNewline(channel, 0, channel.size());
         }
     }
 
-    public static void writeCryptoToCsv(List<CsvCrypto> csvCryptoList, Path outputPath, boolean writeHeader, OpenOption... options) {
-        try (var writer = Files.newBufferedWriter(outputPath, options)) {
-            StatefulBeanToCsv<CsvCrypto> csv = new StatefulBeanToCsvBuilder<CsvCrypto>(writer)
-                    .withMappingStrategy(new CsvAnnotationStrategy<>(CsvCrypto.class, writeHeader))
-                    .withApplyQuotesToAll(false)
-                    .build();
-            csv.write(csvCryptoList);
-        } catch (IOException | CsvDataTypeMismatchException | CsvRequiredFieldEmptyException e) {
-            throw new CryptoInvestmentException(e);
+    /**
+     * @return the position after the last line feed within [from, to), or from if there is none
+     */
+    private static long afterLastNewline(FileChannel channel, long from, long to) throws IOException {
+        final ByteBuffer block = ByteBuffer.allocate(TAIL_SCAN_BLOCK);
+        long blockEnd = to;
+        while (blockEnd > from) {
+            final long blockStart = Math.max(from, blockEnd - TAIL_SCAN_BLOCK);
+            block.clear().limit((int) (blockEnd - blockStart));
+            while (block.hasRemaining()) {
+                if (channel.read(block, blockStart + block.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = block.position() - 1; i >= 0; i--) {
+                if (block.get(i) == '\n') {
+                    return blockStart + i + 1;
+                }
+            }
+            blockEnd = blockStart;
         }
+        return from;
     }
 
+    /**
+     * Ends after the given number of bytes, so lines appended while reading are left for the next read.
+     */
+    private static final class BoundedInputStream extends InputStream {
+
+        private final InputStream inputStream;
+        private long remaining;
+
+        private BoundedInputStream(InputStream inputStream, long length) {
+            this.inputStream = inputStream;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int b = inputStream.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int read = inputStream.read(buffer, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
 }
@@ -0,0 +1,333 @@
+package com.ionutzbaur.crypto.investment.util;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Streaming reader for the {@code timestamp,symbol,price} CSV format.
+ * It works directly on a reusable byte buffer: timestamps, symbols and prices are decoded in place,
+ * without creating intermediate Strings or BigDecimals, so the memory used is bounded by the longest line.
+ * Prices are decoded to {@link FixedPoint} values with the fewest decimals representing them.
+ * Lines that cannot be decoded, including lines of symbols the resolver does not know (by default the unregistered
+ * ones), are skipped and counted.
+ * The column order is taken from the header if present, otherwise {@code timestamp,symbol,price} is assumed.
+ * A first line not starting with a digit is the header if it names the three columns, otherwise a malformed line.
+ * Not thread-safe, the stream is not closed by the reader.
+ */
+public class CsvPriceReader {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FAST_PATH_DIGITS = 18;
+
+    private static final String TIMESTAMP_COLUMN = "timestamp";
+    private static final String SYMBOL_COLUMN = "symbol";
+    private static final String PRICE_COLUMN = "price";
+
+    /**
+     * Receives every decoded line.
+     */
+    @FunctionalInterface
+    public interface PriceHandler {
+
+        /**
+         * @param symbol the crypto of the line
+         * @param timestamp the epoch millis of the line
+         * @param price the price of the line, scaled by 10^decimals
+         * @param decimals the number of decimals of the price
+         */
+        void onPrice(CryptoType symbol, long timestamp, long price, int decimals);
+    }
+
+    /**
+     * Outcome of reading a whole stream.
+     *
+     * @param rows the number of decoded lines passed to the handler
+     * @param malformedRows the number of skipped lines
+     * @param bytes the number of bytes consumed
+     */
+    public record Result(long rows, long malformedRows, long bytes) {
+    }
+
+    // files usually hold a single symbol, so the last decoded one is compared first
+    private byte[] lastSymbolName = new byte[0];
+    private CryptoType lastSymbol;
+
+    private final Function<String, CryptoType> symbolResolver;
+    private byte[] buffer;
+
+    private int timestampColumn = 0;
+    private int symbolColumn = 1;
+    private int priceColumn = 2;
+
+    // per-line decoding state, reused to avoid allocations
+    private long lineTimestamp;
+    private CryptoType lineSymbol;
+    private long linePrice;
+    private int lineDecimals;
+
+    public CsvPriceReader() {
+        this(CryptoType::find);
+    }
+
+    /**
+     * @param symbolResolver maps the symbol names found in the stream to cryptos, returning null to skip the line
+     */
+    public CsvPriceReader(Function<String, CryptoType> symbolResolver) {
+        this(symbolResolver, DEFAULT_BUFFER_SIZE);
+    }
+
+    CsvPriceReader(int bufferSize) {
+        this(CryptoType::find, bufferSize);
+    }
+
+    private CsvPriceReader(Function<String, CryptoType> symbolResolver, int bufferSize) {
+        this.symbolResolver = symbolResolver;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Reads the whole stream, passing every decoded line to the given handler.
+     *
+     * @param inputStream the CSV content, optionally starting with a header line
+     * @param handler receives the decoded lines in stream order
+     * @return counters of what was read
+     * @throws IOException if reading from the stream fails
+     */
+    public Result read(InputStream inputStream, PriceHandler handler) throws IOException {
+        long rows = 0;
+        long malformedRows = 0;
+        long bytes = 0;
+        boolean firstLine = true;
+
+        int start = 0;
+        int limit = 0;
+        boolean endOfStream = false;
+        while (true) {
+            int lineEnd = indexOf(buffer, (byte) '\n', start, limit);
+            if (lineEnd < 0) {
+                if (endOfStream) {
+                    if (start == limit) {
+                        break;
+                    }
+                    lineEnd = limit; // last line without a line terminator
+                } else {
+                    // compact the partial line to the start of the buffer and read more
+                    final int remaining = limit - start;
+                    if (remaining == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    } else {
+                        System.arraycopy(buffer, start, buffer, 0, remaining);
+                    }
+                    start = 0;
+                    limit = remaining;
+                    final int read = inputStream.read(buffer, limit, buffer.length - limit);
+                    if (read < 0) {
+                        endOfStream = true;
+                    } else {
+                        limit += read;
+                        bytes += read;
+                    }
+                    continue;
+                }
+            }
+
+            int end = lineEnd;
+            if (end > start && buffer[end - 1] == '\r') {
+                end--;
+            }
+            if (firstLine && end > start && !isDigit(buffer[skipWhitespace(start, end)])) {
+                if (!readHeader(start, end)) {
+                    malformedRows++;
+                }
+            } else if (end > start) {
+                if (decodeLine(start, end)) {
+                    handler.onPrice(lineSymbol, lineTimestamp, linePrice, lineDecimals);
+                    rows++;
+                } else {
+                    malformedRows++;
+                }
+            }
+            firstLine = false;
+            start = Math.min(lineEnd + 1, limit);
+        }
+
+        return new Result(rows, malformedRows, bytes);
+    }
+
+    /**
+     * @return whether the line is a header naming the timestamp, symbol and price columns, whose order is then taken
+     */
+    private boolean readHeader(int start, int end) {
+        final String[] columns = new String(buffer, start, end - start, StandardCharsets.US_ASCII).split(",");
+        int headerTimestampColumn = -1;
+        int headerSymbolColumn = -1;
+        int headerPriceColumn = -1;
+        for (int i = 0; i < columns.length; i++) {
+            switch (columns[i].replace("\"", "").trim().toLowerCase(Locale.ROOT)) {
+                case TIMESTAMP_COLUMN -> headerTimestampColumn = i;
+                case SYMBOL_COLUMN -> headerSymbolColumn = i;
+                case PRICE_COLUMN -> headerPriceColumn = i;
+                default -> {
+                    // unknown columns are ignored
+                }
+            }
+        }
+        if (headerTimestampColumn < 0 || headerSymbolColumn < 0 || headerPriceColumn < 0) {
+            return false;
+        }
+        timestampColumn = headerTimestampColumn;
+        symbolColumn = headerSymbolColumn;
+        priceColumn = headerPriceColumn;
+        return true;
+    }
+
+    private boolean decodeLine(int start, int end) {
+        boolean timestampFound = false;
+        boolean symbolFound = false;
+        boolean priceFound = false;
+
+        int column = 0;
+        int fieldStart = start;
+        while (fieldStart <= end) {
+            int fieldEnd = indexOf(buffer, (byte) ',', fieldStart, end);
+            if (fieldEnd < 0) {
+                fieldEnd = end;
+            }
+
+            int from = skipWhitespace(fieldStart, fieldEnd);
+            int to = fieldEnd;
+            while (to > from && buffer[to - 1] == ' ') {
+                to--;
+            }
+            if (to - from >= 2 && buffer[from] == '"' && buffer[to - 1] == '"') {
+                from++;
+                to--;
+            }
+
+            if (column == timestampColumn) {
+                timestampFound = decodeTimestamp(from, to);
+            } else if (column == symbolColumn) {
+                symbolFound = decodeSymbol(from, to);
+            } else if (column == priceColumn) {
+                priceFound = decodePrice(from, to);
+            }
+
+            column++;
+            fieldStart = fieldEnd + 1;
+        }
+
+        return timestampFound && symbolFound && priceFound;
+    }
+
+    private boolean decodeTimestamp(int from, int to) {
+        if (from == to || to - from > 18) {
+            return false;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            final byte b = buffer[i];
+            if (!isDigit(b)) {
+                return false;
+            }
+            value = value * 10 + (b - '0');
+        }
+        lineTimestamp = value;
+        return true;
+    }
+
+    private boolean decodeSymbol(int from, int to) {
+        if (lastSymbol == null || !Arrays.equals(lastSymbolName, 0, lastSymbolName.length, buffer, from, to)) {
+            final CryptoType symbol =
+                    symbolResolver.apply(new String(buffer, from, to - from, StandardCharsets.US_ASCII));
+            if (symbol == null) {
+                return false;
+            }
+            lastSymbol = symbol;
+            lastSymbolName = Arrays.copyOfRange(buffer, from, to);
+        }
+        lineSymbol = lastSymbol;
+        return true;
+    }
+
+    private boolean decodePrice(int from, int to) {
+        long mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        boolean anyDigit = false;
+        boolean fraction = false;
+        for (int i = from; i < to; i++) {
+            final byte b = buffer[i];
+            if (isDigit(b)) {
+                anyDigit = true;
+                if (mantissa != 0 || b != '0') {
+                    significantDigits++;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (fraction) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                // signs, exponents and anything unusual go through BigDecimal
+                return decodePriceSlowPath(from, to);
+            }
+        }
+        if (!anyDigit) {
+            return false;
+        }
+        if (significantDigits > MAX_FAST_PATH_DIGITS || fractionDigits > FixedPoint.MAX_DECIMALS) {
+            return decodePriceSlowPath(from, to);
+        }
+
+        while (fractionDigits > 0 && mantissa % 10 == 0) {
+            mantissa /= 10;
+            fractionDigits--;
+        }
+        linePrice = mantissa;
+        lineDecimals = fractionDigits;
+        return true;
+    }
+
+    private boolean decodePriceSlowPath(int from, int to) {
+        try {
+            final BigDecimal price = new BigDecimal(new String(buffer, from, to - from, StandardCharsets.US_ASCII));
+            if (price.precision() - price.scale() > MAX_FAST_PATH_DIGITS) {
+                return false; // out of range, checked before scaling an arbitrarily large exponent
+            }
+            lineDecimals = FixedPoint.decimalsOf(price);
+            linePrice = FixedPoint.toScaled(price, lineDecimals);
+            return true;
+        } catch (NumberFormatException | CryptoInvestmentException e) {
+            return false;
+        }
+    }
+
+    private int skipWhitespace(int from, int to) {
+        while (from < to - 1 && (buffer[from] == ' ' || buffer[from] == '\t')) {
+            from++;
+        }
+        return from;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
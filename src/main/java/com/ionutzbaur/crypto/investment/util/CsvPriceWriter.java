@@ -0,0 +1,78 @@
+package com.ionutzbaur.crypto.investment.util;
+
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Long-lived appender of {@code timestamp,symbol,price} lines to a single CSV file.
+ * Lines are buffered until {@link #flush()}, so many values can be committed with a single write.
+ * Not thread-safe.
+ */
+public class CsvPriceWriter implements PriceAppender {
+
+    private static final String HEADER = "timestamp,symbol,price";
+
+    private final Writer writer;
+    private long bytesWritten;
+
+    CsvPriceWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Opens the given file for appending, creating it with a header line if it does not exist yet.
+     *
+     * @param outputPath the CSV file
+     * @return the writer, positioned at the end of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static CsvPriceWriter open(Path outputPath) throws IOException {
+        final boolean newFile = !Files.exists(outputPath) || Files.size(outputPath) == 0;
+        final CsvPriceWriter csvPriceWriter = new CsvPriceWriter(Files.newBufferedWriter(outputPath, StandardCharsets.US_ASCII,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+        if (newFile) {
+            csvPriceWriter.writer.write(HEADER);
+            csvPriceWriter.writer.write('\n');
+        }
+        return csvPriceWriter;
+    }
+
+    @Override
+    public void write(CsvCrypto csvCrypto) throws IOException {
+        final String timestamp = Long.toString(csvCrypto.getTimestamp());
+        final String symbol = csvCrypto.getSymbol().name();
+        final String price = csvCrypto.getPrice().toPlainString();
+        writer.write(timestamp);
+        writer.write(',');
+        writer.write(symbol);
+        writer.write(',');
+        writer.write(price);
+        writer.write('\n');
+        // one byte per char in US-ASCII
+        bytesWritten += timestamp.length() + symbol.length() + price.length() + 3;
+    }
+
+    /**
+     * @return the number of bytes of the lines written so far, flushed or not, the header excluded
+     */
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
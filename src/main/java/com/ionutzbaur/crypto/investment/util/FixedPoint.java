@@ -0,0 +1,102 @@
+package com.ionutzbaur.crypto.investment.util;
+
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point price arithmetic: a price is held as a {@code long} scaled by {@code 10^decimals}.
+ * Every crypto has its own number of decimals, the smallest one representing all its prices exactly,
+ * up to {@value #MAX_DECIMALS}; further decimals are rounded half up.
+ * {@link BigDecimal} is only used to convert from and to the external representation.
+ */
+public final class FixedPoint {
+
+    public static final int MAX_DECIMALS = 12;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L
+    };
+
+    private FixedPoint() {
+        // utility class
+    }
+
+    /**
+     * @return 10^decimals, for decimals up to {@value #MAX_DECIMALS}
+     */
+    public static long powerOfTen(int decimals) {
+        return POWERS_OF_TEN[decimals];
+    }
+
+    /**
+     * @param price an external price
+     * @return the number of decimals needed to hold the given price, capped to {@value #MAX_DECIMALS}
+     */
+    public static int decimalsOf(BigDecimal price) {
+        return Math.max(0, Math.min(MAX_DECIMALS, price.stripTrailingZeros().scale()));
+    }
+
+    /**
+     * @param price an external price
+     * @param decimals the target number of decimals
+     * @return the given price scaled by 10^decimals
+     * @throws CryptoInvestmentException if the price does not fit
+     */
+    public static long toScaled(BigDecimal price, int decimals) {
+        try {
+            return price.setScale(decimals, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new CryptoInvestmentException(String.format("Price %s is out of range", price.toPlainString()));
+        }
+    }
+
+    /**
+     * @param scaledPrice a price scaled by 10^fromDecimals
+     * @param fromDecimals the current number of decimals
+     * @param toDecimals the target number of decimals, not lower than the current one
+     * @return the same price scaled by 10^toDecimals
+     * @throws CryptoInvestmentException if the price does not fit
+     */
+    public static long rescale(long scaledPrice, int fromDecimals, int toDecimals) {
+        try {
+            return Math.multiplyExact(scaledPrice, POWERS_OF_TEN[toDecimals - fromDecimals]);
+        } catch (ArithmeticException e) {
+            throw new CryptoInvestmentException(String.format("Price %s is out of range with %d decimals",
+                    toBigDecimal(scaledPrice, fromDecimals).toPlainString(), toDecimals));
+        }
+    }
+
+    /**
+     * @return a copy of the first count scaled prices, rescaled to more decimals, as long as the given array
+     */
+    public static long[] rescale(long[] scaledPrices, int count, int fromDecimals, int toDecimals) {
+        final long[] rescaled = new long[Math.max(count, scaledPrices.length)];
+        for (int i = 0; i < count; i++) {
+            rescaled[i] = rescale(scaledPrices[i], fromDecimals, toDecimals);
+        }
+        return rescaled;
+    }
+
+    /**
+     * @return the external representation of the given price, without trailing zeros
+     */
+    public static BigDecimal toBigDecimal(long scaledPrice, int decimals) {
+        int scale = decimals;
+        long unscaled = scaledPrice;
+        while (scale > 0 && unscaled % 10 == 0) {
+            unscaled /= 10;
+            scale--;
+        }
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * @return the approximate value of the given price, for statistics only
+     */
+    public static double toDouble(long scaledPrice, int decimals) {
+        return scaledPrice / (double) POWERS_OF_TEN[decimals];
+    }
+}
@@ -0,0 +1,25 @@
+package com.ionutzbaur.crypto.investment.util;
+
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Long-lived appender of values to the file of a single crypto, buffering them until {@link #flush()}.
+ * Not thread-safe.
+ */
+public interface PriceAppender extends Closeable {
+
+    void write(CsvCrypto csvCrypto) throws IOException;
+
+    /**
+     * Writes the values buffered since the last flush.
+     */
+    void flush() throws IOException;
+
+    /**
+     * @return the number of bytes of the values written so far, flushed or not
+     */
+    long getBytesWritten();
+}
@@ -0,0 +1,98 @@
+package com.ionutzbaur.crypto.investment.util;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+/**
+ * Reader of the append log of a single crypto, see {@link PriceLogWriter} for the layout.
+ * Frames are read up to the first one that is truncated or whose checksum does not match, i.e. up to the last
+ * frame fully flushed before a crash; the remaining bytes are discarded.
+ */
+public final class PriceLogReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Outcome of reading a whole append log.
+     *
+     * @param records the number of values passed to the handler
+     * @param bytes the number of bytes of the valid frames, the header included
+     * @param discardedBytes the number of bytes after the last valid frame
+     */
+    public record Result(long records, long bytes, long discardedBytes) {
+    }
+
+    private PriceLogReader() {
+        // utility class
+    }
+
+    /**
+     * Reads the values of all the valid frames of the given append log.
+     *
+     * @param logPath the append log
+     * @param cryptoType the crypto the append log belongs to
+     * @param handler receives the values in log order
+     * @return counters of what was read
+     * @throws IOException if reading the file fails
+     */
+    public static Result read(Path logPath, CryptoType cryptoType, CsvPriceReader.PriceHandler handler)
+            throws IOException {
+        final long fileSize = Files.size(logPath);
+        long records = 0;
+        long bytes = 0;
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(logPath), BUFFER_SIZE)) {
+            final ByteBuffer header = readFully(inputStream, PriceLogWriter.HEADER_SIZE);
+            if (header == null || header.getInt() != PriceLogWriter.MAGIC
+                    || header.getShort() != PriceLogWriter.VERSION) {
+                return new Result(0, 0, fileSize);
+            }
+            bytes = PriceLogWriter.HEADER_SIZE;
+
+            final CRC32C checksum = new CRC32C();
+            ByteBuffer frameHeader;
+            while ((frameHeader = readFully(inputStream, PriceLogWriter.FRAME_HEADER_SIZE)) != null) {
+                final int payloadLength = frameHeader.getInt();
+                final int expectedChecksum = frameHeader.getInt();
+                if (payloadLength <= 0 || payloadLength % PriceLogWriter.RECORD_SIZE != 0
+                        || payloadLength > fileSize - bytes - PriceLogWriter.FRAME_HEADER_SIZE) {
+                    break;
+                }
+                final ByteBuffer payload = readFully(inputStream, payloadLength);
+                if (payload == null) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(payload.duplicate());
+                if ((int) checksum.getValue() != expectedChecksum) {
+                    break;
+                }
+
+                while (payload.hasRemaining()) {
+                    final long timestamp = payload.getLong();
+                    final long price = payload.getLong();
+                    final int decimals = payload.get();
+                    handler.onPrice(cryptoType, timestamp, price, decimals);
+                }
+                records += payloadLength / PriceLogWriter.RECORD_SIZE;
+                bytes += PriceLogWriter.FRAME_HEADER_SIZE + payloadLength;
+            }
+        }
+        return new Result(records, bytes, fileSize - bytes);
+    }
+
+    /**
+     * @return the next bytes of the stream, or null if it ends before
+     */
+    private static ByteBuffer readFully(InputStream inputStream, int length) throws IOException {
+        final byte[] bytes = inputStream.readNBytes(length);
+        return bytes.length < length ? null : ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,113 @@
+package com.ionutzbaur.crypto.investment.util;
+
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Crash-safe appender of values to the append log of a single crypto.
+ * Values are buffered until {@link #flush()}, which writes them as a single checksummed frame
+ * and forces it to the storage device, so a frame is either fully recovered after a crash or not at all.
+ * Values not flushed are discarded by {@link #close()}.
+ * <p>
+ * Layout, all values little-endian:
+ * <pre>
+ * header (8 bytes): int magic, short version, short reserved
+ * frames:           int payload length, int CRC32C of the payload,
+ *                   payload of length / {@value #RECORD_SIZE} records:
+ *                   long timestamp, long price scaled by 10^decimals, byte decimals
+ * </pre>
+ * Not thread-safe.
+ */
+public class PriceLogWriter implements PriceAppender {
+
+    static final int MAGIC = 0x43525057; // CRPW
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int FRAME_HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 17;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final CRC32C checksum = new CRC32C();
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    // the file header is written along with the first frame
+    private int frameStart = HEADER_SIZE;
+    private long bytesWritten;
+
+    private PriceLogWriter(FileChannel channel) {
+        this.channel = channel;
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+        buffer.position(frameStart + FRAME_HEADER_SIZE);
+    }
+
+    /**
+     * Creates a new append log, written on the first flush.
+     *
+     * @param logPath the append log, which must not exist yet
+     * @return the writer
+     * @throws IOException if the file cannot be created
+     */
+    public static PriceLogWriter create(Path logPath) throws IOException {
+        return new PriceLogWriter(FileChannel.open(logPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+    }
+
+    /**
+     * @throws com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException if the price is out of range,
+     * then nothing is written
+     */
+    @Override
+    public void write(CsvCrypto csvCrypto) {
+        final int decimals = FixedPoint.decimalsOf(csvCrypto.getPrice());
+        final long price = FixedPoint.toScaled(csvCrypto.getPrice(), decimals);
+        if (buffer.remaining() < RECORD_SIZE) {
+            final ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+            buffer = grown.put(buffer.flip());
+        }
+        buffer.putLong(csvCrypto.getTimestamp()).putLong(price).put((byte) decimals);
+        bytesWritten += RECORD_SIZE;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        final int payloadStart = frameStart + FRAME_HEADER_SIZE;
+        final int payloadLength = buffer.position() - payloadStart;
+        if (payloadLength == 0) {
+            return;
+        }
+        checksum.reset();
+        checksum.update(buffer.slice(payloadStart, payloadLength));
+        buffer.putInt(frameStart, payloadLength).putInt(frameStart + 4, (int) checksum.getValue());
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        bytesWritten += FRAME_HEADER_SIZE;
+        frameStart = 0;
+        buffer.clear();
+        buffer.position(FRAME_HEADER_SIZE);
+    }
+
+    /**
+     * @return the number of bytes of the values and frame headers written so far, flushed or not,
+     * the file header excluded
+     */
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
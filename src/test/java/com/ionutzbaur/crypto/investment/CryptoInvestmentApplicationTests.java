@@ -1,11 +1,33 @@
 package com.ionutzbaur.crypto.investment;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 @SpringBootTest
 class CryptoInvestmentApplicationTests {
 
+	@TempDir
+	static Path dataDirectory;
+
+	// the segments, logs and snapshot are written next to a copy of the price files, not in the sources
+	@DynamicPropertySource
+	static void dataDirectory(DynamicPropertyRegistry registry) throws IOException {
+		try (DirectoryStream<Path> csvPaths = Files.newDirectoryStream(Path.of("src/main/resources/prices"), "*.csv")) {
+			for (Path csvPath : csvPaths) {
+				Files.copy(csvPath, dataDirectory.resolve(csvPath.getFileName()));
+			}
+		}
+		registry.add("crypto.data-dir", dataDirectory::toString);
+	}
+
 	@Test
 	void contextLoads() {
 	}
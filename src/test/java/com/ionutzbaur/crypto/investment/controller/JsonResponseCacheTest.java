@@ -0,0 +1,107 @@
+package com.ionutzbaur.crypto.investment.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ionutzbaur.crypto.investment.metrics.CryptoMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JsonResponseCacheTest {
+
+    private JsonResponseCache responseCache;
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        responseCache = new JsonResponseCache(new ObjectMapper(), CryptoMetrics.noop(), 2);
+    }
+
+    @Test
+    void get() {
+        final ResponseEntity<byte[]> first = responseCache.get(request(null), "key", 1, body("first"));
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertEquals("[\"first\"]", new String(first.getBody(), StandardCharsets.UTF_8));
+        assertEquals("no-cache", first.getHeaders().getCacheControl());
+        final String eTag = first.getHeaders().getETag();
+
+        // same version: served from the cache, or not at all if the client has it
+        final ResponseEntity<byte[]> cached = responseCache.get(request(null), "key", 1, body("other"));
+        assertEquals("[\"first\"]", new String(cached.getBody(), StandardCharsets.UTF_8));
+        assertEquals(eTag, cached.getHeaders().getETag());
+
+        final ServletWebRequest conditionalRequest = request(eTag);
+        assertNull(responseCache.get(conditionalRequest, "key", 1, body("other")));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), ((MockHttpServletResponse) conditionalRequest.getResponse()).getStatus());
+        assertEquals(1, computations.get());
+
+        // new version
+        final ResponseEntity<byte[]> changed = responseCache.get(request(eTag), "key", 2, body("second"));
+        assertEquals("[\"second\"]", new String(changed.getBody(), StandardCharsets.UTF_8));
+        assertNotEquals(eTag, changed.getHeaders().getETag());
+        assertEquals(2, computations.get());
+
+        // other key, same version
+        responseCache.get(request(null), "other key", 2, body("third"));
+        assertEquals(3, computations.get());
+    }
+
+    @Test
+    void get_evictsLeastRecentlyUsed() {
+        responseCache.get(request(null), "first", 1, body("first"));
+        responseCache.get(request(null), "second", 1, body("second"));
+        responseCache.get(request(null), "first", 1, body("first"));
+        assertEquals(2, computations.get());
+
+        // beyond the max number of keys: the least recently used one is evicted
+        responseCache.get(request(null), "third", 1, body("third"));
+        responseCache.get(request(null), "first", 1, body("first"));
+        assertEquals(3, computations.get());
+        responseCache.get(request(null), "second", 1, body("second"));
+        assertEquals(4, computations.get());
+    }
+
+    @Test
+    void tag() {
+        final ResponseEntity<byte[]> first = responseCache.tag(request(null), 1, body("first"));
+        assertEquals("[\"first\"]", new String(first.getBody(), StandardCharsets.UTF_8));
+        final String eTag = first.getHeaders().getETag();
+
+        // same version: computed again, as nothing is kept, unless the client has it
+        final ResponseEntity<byte[]> second = responseCache.tag(request(null), 1, body("second"));
+        assertEquals("[\"second\"]", new String(second.getBody(), StandardCharsets.UTF_8));
+        assertEquals(eTag, second.getHeaders().getETag());
+        assertEquals(2, computations.get());
+
+        assertNull(responseCache.tag(request(eTag), 1, body("other")));
+        assertEquals(2, computations.get());
+    }
+
+    private Supplier<List<String>> body(String value) {
+        return () -> {
+            computations.incrementAndGet();
+            return List.of(value);
+        };
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/normalize-desc");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
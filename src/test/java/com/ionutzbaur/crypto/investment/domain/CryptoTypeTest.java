@@ -0,0 +1,83 @@
+package com.ionutzbaur.crypto.investment.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CryptoTypeTest {
+
+    @Test
+    void register() {
+        final CryptoType cryptoType = CryptoType.register("REGISTER_TEST");
+
+        assertSame(cryptoType, CryptoType.register("register_test"));
+        assertSame(cryptoType, CryptoType.valueOf("Register_Test"));
+        assertSame(cryptoType, CryptoType.ofIndex(cryptoType.index()));
+        assertEquals("REGISTER_TEST", cryptoType.name());
+        assertTrue(CryptoType.values().contains(cryptoType));
+    }
+
+    @Test
+    void json() throws JsonProcessingException {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final CryptoType registered = CryptoType.register("JSON_TEST");
+
+        assertSame(registered, objectMapper.readValue("\"json_test\"", CryptoType.class));
+        assertEquals("\"JSON_TEST\"", objectMapper.writeValueAsString(registered));
+    }
+
+    @Test
+    void parse_unknown() throws JsonProcessingException {
+        final CryptoType cryptoType = new ObjectMapper().readValue("\"parse_test\"", CryptoType.class);
+
+        // only looked up, registered once its values are committed
+        assertFalse(cryptoType.isRegistered());
+        assertEquals("PARSE_TEST", cryptoType.name());
+        assertNull(CryptoType.find("PARSE_TEST"));
+        assertThrows(IllegalStateException.class, cryptoType::index);
+        assertEquals(cryptoType, CryptoType.parse("Parse_Test"));
+        assertThrows(CryptoInvestmentException.class, () -> CryptoType.parse("../BTC"));
+
+        final CryptoType registered = CryptoType.register(cryptoType);
+        assertTrue(registered.isRegistered());
+        assertSame(registered, CryptoType.find("PARSE_TEST"));
+        assertEquals(cryptoType, registered);
+    }
+
+    @Test
+    void register_invalidName() {
+        assertThrows(CryptoInvestmentException.class, () -> CryptoType.register("../BTC"));
+        assertThrows(CryptoInvestmentException.class, () -> CryptoType.register(""));
+        assertThrows(CryptoInvestmentException.class, () -> CryptoType.register((String) null));
+    }
+
+    @Test
+    void valueOf_unknown() {
+        assertNull(CryptoType.find("UNKNOWN_TEST"));
+        assertThrows(IllegalArgumentException.class, () -> CryptoType.valueOf("UNKNOWN_TEST"));
+    }
+
+    @Test
+    void cryptoTypeMap() {
+        final CryptoType first = CryptoType.register("MAP_TEST_1");
+        final CryptoType second = CryptoType.register("MAP_TEST_2");
+        final CryptoTypeMap<String> map = new CryptoTypeMap<>();
+
+        map.put(second, "second");
+        map.computeIfAbsent(first, CryptoType::name);
+
+        final StringBuilder iteration = new StringBuilder();
+        map.forEach((cryptoType, value) -> iteration.append(cryptoType).append('=').append(value).append(';'));
+        assertEquals("MAP_TEST_1=MAP_TEST_1;MAP_TEST_2=second;", iteration.toString());
+        assertEquals("second", map.remove(second));
+        assertEquals(1, map.size());
+    }
+}
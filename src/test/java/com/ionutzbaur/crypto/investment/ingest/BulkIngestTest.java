@@ -0,0 +1,112 @@
+package com.ionutzbaur.crypto.investment.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ionutzbaur.crypto.investment.domain.BulkFormat;
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.IngestSummary;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import com.ionutzbaur.crypto.investment.util.CsvPriceWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BulkIngestTest {
+
+    private static final CryptoType BTC = CryptoType.register("BTC");
+    private static final CryptoType ETH = CryptoType.register("ETH");
+
+    private static final long TIMESTAMP = 1641009600000L;
+
+    @TempDir
+    private Path tempDir;
+
+    private CryptoPriceStore priceStore;
+    private CryptoIngestPipeline ingestPipeline;
+    private BulkIngest bulkIngest;
+
+    @BeforeEach
+    void setUp() {
+        priceStore = new CryptoPriceStore(ZoneOffset.UTC, false);
+        ingestPipeline = new CryptoIngestPipeline(priceStore, this::openWriter, 100, Duration.ofMillis(1));
+        // small chunks with a single one in flight, so the body is read in several rounds
+        bulkIngest = new BulkIngest(ingestPipeline, new ObjectMapper(), 3, 1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ingestPipeline.stop();
+    }
+
+    @Test
+    void ingest_ndjson() throws IOException {
+        final String body = """
+                {"timestamp":%1$d,"symbol":"BTC","price":46813.21}
+                {"timestamp":%2$d,"symbol":"BTC","price":46979.61}
+                not json
+
+                {"timestamp":%1$d,"symbol":"ETH","price":3715.32}
+                {"timestamp":%1$d,"symbol":"ETH"}
+                {"timestamp":%1$d,"symbol":"not a symbol","price":1}
+                {"timestamp":%1$d,"symbol":"BULK_NDJSON","price":0.5}
+                {"timestamp":%3$d,"symbol":"BTC","price":47143.98}
+                """.formatted(TIMESTAMP, TIMESTAMP + 1, TIMESTAMP + 2);
+
+        final IngestSummary summary = bulkIngest.ingest(stream(body), BulkFormat.NDJSON);
+
+        final CryptoType newCrypto = CryptoType.find("BULK_NDJSON");
+        assertEquals(5, summary.getRows());
+        assertEquals(3, summary.getMalformedRows());
+        assertEquals(body.getBytes(StandardCharsets.UTF_8).length, summary.getBytes());
+        assertEquals(Map.of(BTC, 3L, ETH, 1L, newCrypto, 1L), summary.getRowsByCrypto());
+
+        assertEquals(3, priceStore.statistics(BTC).getCount());
+        assertEquals(new BigDecimal("47143.98"), priceStore.statistics(BTC).getNewest().getPrice());
+        assertEquals(1, priceStore.statistics(newCrypto).getCount());
+        assertEquals(List.of("timestamp,symbol,price", TIMESTAMP + ",BULK_NDJSON,0.5"),
+                Files.readAllLines(tempDir.resolve("BULK_NDJSON_values.csv")));
+    }
+
+    @Test
+    void ingest_csv() {
+        final StringBuilder body = new StringBuilder("symbol,timestamp,price\r\n");
+        for (int i = 0; i < 10; i++) {
+            body.append("ETH,").append(TIMESTAMP + i).append(',').append(3000 + i).append(".5\r\n");
+        }
+        body.append("ETH,yesterday,1\r\n");
+        body.append("BULK_CSV,").append(TIMESTAMP).append(",1e-3");
+
+        final IngestSummary summary = bulkIngest.ingest(stream(body.toString()), BulkFormat.CSV);
+
+        final CryptoType newCrypto = CryptoType.find("BULK_CSV");
+        assertEquals(11, summary.getRows());
+        assertEquals(1, summary.getMalformedRows());
+        assertEquals(Map.of(ETH, 10L, newCrypto, 1L), summary.getRowsByCrypto());
+
+        assertEquals(10, priceStore.statistics(ETH).getCount());
+        assertEquals(new BigDecimal("3009.5"), priceStore.statistics(ETH).getMax().getPrice());
+        assertEquals(new BigDecimal("0.001"), priceStore.statistics(newCrypto).getNewest().getPrice());
+    }
+
+    private CsvPriceWriter openWriter(CryptoType cryptoType) throws IOException {
+        return CsvPriceWriter.open(tempDir.resolve(cryptoType + "_values.csv"));
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
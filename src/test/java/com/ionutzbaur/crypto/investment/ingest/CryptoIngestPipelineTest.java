@@ -0,0 +1,215 @@
+package com.ionutzbaur.crypto.investment.ingest;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.DuplicatePolicy;
+import com.ionutzbaur.crypto.investment.exception.DuplicateTimestampException;
+import com.ionutzbaur.crypto.investment.exception.InvalidRequestException;
+import com.ionutzbaur.crypto.investment.metrics.CryptoMetrics;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import com.ionutzbaur.crypto.investment.util.CsvPriceWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CryptoIngestPipelineTest {
+
+    private static final CryptoType BTC = CryptoType.register("BTC");
+    private static final CryptoType ETH = CryptoType.register("ETH");
+    private static final CryptoType XRP = CryptoType.register("XRP");
+    private static final CryptoType NEW_CRYPTO = CryptoType.register("NEW_CRYPTO");
+
+    private static final long TIMESTAMP = 1641009600000L;
+
+    @TempDir
+    private Path tempDir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CryptoPriceStore priceStore;
+    private CryptoIngestPipeline ingestPipeline;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        priceStore = new CryptoPriceStore(ZoneOffset.UTC, false);
+        ingestPipeline = new CryptoIngestPipeline(priceStore, this::openWriter, 100, Duration.ofMillis(5),
+                new CryptoMetrics(meterRegistry));
+        ingestPipeline.bindTo(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ingestPipeline.stop();
+    }
+
+    @Test
+    void submit_concurrentBatches() throws IOException {
+        final List<CompletableFuture<Void>> completions = IntStream.range(0, 50)
+                .parallel()
+                .mapToObj(batch -> ingestPipeline.submit(List.of(
+                        crypto(TIMESTAMP + batch, BTC, 100 + batch),
+                        crypto(TIMESTAMP + batch, ETH, 10 + batch))))
+                .toList();
+        completions.forEach(CompletableFuture::join);
+
+        assertEquals(50, priceStore.statistics(BTC).getCount());
+        assertEquals(50, priceStore.statistics(ETH).getCount());
+
+        final List<String> btcLines = Files.readAllLines(tempDir.resolve("BTC_values.csv"));
+        assertEquals(51, btcLines.size());
+        assertEquals("timestamp,symbol,price", btcLines.get(0));
+        for (int i = 0; i < 50; i++) {
+            assertTrue(btcLines.contains((TIMESTAMP + i) + ",BTC," + (100 + i)));
+        }
+
+        assertEquals(50, meterRegistry.get("crypto.csv.rows.written").tag(CryptoMetrics.CRYPTO_TAG, "BTC").counter().count());
+        assertEquals(Files.size(tempDir.resolve("BTC_values.csv")) - "timestamp,symbol,price\n".length(),
+                meterRegistry.get("crypto.csv.bytes.written").tag(CryptoMetrics.CRYPTO_TAG, "BTC").counter().count());
+        assertEquals(100, meterRegistry.get("crypto.ingest.commit.rows").summary().totalAmount());
+        assertEquals(0, meterRegistry.get("crypto.ingest.queue.depth").gauge().value());
+    }
+
+    @Test
+    void submit_missingField() {
+        final InvalidRequestException exception = assertThrows(InvalidRequestException.class,
+                () -> ingestPipeline.submit(List.of(crypto(TIMESTAMP, BTC, 1), new CsvCrypto(TIMESTAMP, BTC, null))));
+
+        assertEquals(HttpStatus.BAD_REQUEST,
+                AnnotatedElementUtils.findMergedAnnotation(exception.getClass(), ResponseStatus.class).code());
+        assertTrue(priceStore.statistics(BTC).isEmpty());
+    }
+
+    @Test
+    void submit_writeFailure() {
+        final CompletableFuture<Void> failed = ingestPipeline.submit(List.of(crypto(TIMESTAMP, NEW_CRYPTO, 1)));
+        final CompletableFuture<Void> succeeded = ingestPipeline.submit(List.of(crypto(TIMESTAMP, XRP, 1)));
+
+        final CompletionException exception = assertThrows(CompletionException.class, failed::join);
+        assertTrue(exception.getCause().getCause() instanceof IOException);
+        succeeded.join();
+
+        assertTrue(priceStore.statistics(NEW_CRYPTO).isEmpty());
+        assertEquals(1, priceStore.statistics(XRP).getCount());
+        assertEquals(1, meterRegistry.get("crypto.ingest.failures").tag(CryptoMetrics.CRYPTO_TAG, "NEW_CRYPTO").counter().count());
+    }
+
+    @Test
+    void submit_writeFailure_otherCryptoCommitted() {
+        final CompletableFuture<Void> failed = ingestPipeline.submit(List.of(
+                crypto(TIMESTAMP, BTC, 1),
+                crypto(TIMESTAMP, NEW_CRYPTO, 1)));
+
+        final CompletionException exception = assertThrows(CompletionException.class, failed::join);
+        assertTrue(exception.getCause().getCause() instanceof IOException);
+        // the cryptos of a batch are committed independently
+        assertEquals(1, priceStore.statistics(BTC).getCount());
+        assertTrue(priceStore.statistics(NEW_CRYPTO).isEmpty());
+    }
+
+    @Test
+    void submit_priceOutOfRange() throws IOException {
+        ingestPipeline.submit(List.of(crypto(TIMESTAMP, BTC, new BigDecimal("100000000000000000")))).join();
+
+        // the history cannot be rescaled to 3 decimals
+        final CompletableFuture<Void> failed = ingestPipeline.submit(List.of(
+                crypto(TIMESTAMP + 1, BTC, new BigDecimal("0.001"))));
+
+        final CompletionException exception = assertThrows(CompletionException.class, failed::join);
+        assertTrue(exception.getCause() instanceof InvalidRequestException);
+        assertEquals(1, priceStore.statistics(BTC).getCount());
+        assertEquals(List.of("timestamp,symbol,price", TIMESTAMP + ",BTC,100000000000000000"),
+                Files.readAllLines(tempDir.resolve("BTC_values.csv")));
+    }
+
+    @Test
+    void submit_rejectDuplicates() throws IOException, InterruptedException {
+        final CryptoPriceStore rejectingStore = new CryptoPriceStore(ZoneOffset.UTC, false, DuplicatePolicy.REJECT);
+        final CryptoIngestPipeline rejectingPipeline = new CryptoIngestPipeline(rejectingStore, this::openWriter, 100,
+                Duration.ofMillis(5));
+        try {
+            rejectingPipeline.submit(List.of(crypto(TIMESTAMP, BTC, 1))).join();
+
+            final CompletableFuture<Void> takenByHistory = rejectingPipeline.submit(List.of(crypto(TIMESTAMP, BTC, 2)));
+            final CompletableFuture<Void> takenInBatch = rejectingPipeline.submit(List.of(
+                    crypto(TIMESTAMP + 1, BTC, 3),
+                    crypto(TIMESTAMP + 1, BTC, 4)));
+            final CompletableFuture<Void> accepted = rejectingPipeline.submit(List.of(
+                    crypto(TIMESTAMP + 2, BTC, 5),
+                    crypto(TIMESTAMP, ETH, 5)));
+            final CompletableFuture<Void> takenInGroup = rejectingPipeline.submit(List.of(crypto(TIMESTAMP + 2, BTC, 6)));
+
+            for (CompletableFuture<Void> rejected : List.of(takenByHistory, takenInBatch, takenInGroup)) {
+                final CompletionException exception = assertThrows(CompletionException.class, rejected::join);
+                assertTrue(exception.getCause() instanceof DuplicateTimestampException);
+            }
+            accepted.join();
+        } finally {
+            rejectingPipeline.stop();
+        }
+
+        assertEquals(2, rejectingStore.statistics(BTC).getCount());
+        assertEquals(new BigDecimal("1"), rejectingStore.statistics(BTC).getOldest().getPrice());
+        assertEquals(List.of("timestamp,symbol,price", TIMESTAMP + ",BTC,1", (TIMESTAMP + 2) + ",BTC,5"),
+                Files.readAllLines(tempDir.resolve("BTC_values.csv")));
+    }
+
+    @Test
+    void submit_registersCommittedCryptos() throws InterruptedException {
+        final CryptoPriceStore rejectingStore = new CryptoPriceStore(ZoneOffset.UTC, false, DuplicatePolicy.REJECT);
+        final CryptoIngestPipeline rejectingPipeline = new CryptoIngestPipeline(rejectingStore, this::openWriter, 100,
+                Duration.ofMillis(5));
+        try {
+            final CompletableFuture<Void> rejected = rejectingPipeline.submit(List.of(
+                    crypto(TIMESTAMP, CryptoType.parse("REJECTED_CRYPTO"), 1),
+                    crypto(TIMESTAMP, CryptoType.parse("REJECTED_CRYPTO"), 2)));
+            final CompletionException exception = assertThrows(CompletionException.class, rejected::join);
+            assertTrue(exception.getCause() instanceof DuplicateTimestampException);
+            assertNull(CryptoType.find("REJECTED_CRYPTO"));
+
+            rejectingPipeline.submit(List.of(crypto(TIMESTAMP, CryptoType.parse("COMMITTED_CRYPTO"), 1))).join();
+        } finally {
+            rejectingPipeline.stop();
+        }
+
+        final CryptoType committed = CryptoType.find("COMMITTED_CRYPTO");
+        assertNotNull(committed);
+        assertEquals(1, rejectingStore.statistics(committed).getCount());
+    }
+
+    private CsvPriceWriter openWriter(CryptoType cryptoType) throws IOException {
+        if (cryptoType == NEW_CRYPTO) {
+            throw new IOException("Cannot open file");
+        }
+        return CsvPriceWriter.open(tempDir.resolve(cryptoType + "_values.csv"));
+    }
+
+    private static CsvCrypto crypto(long timestamp, CryptoType cryptoType, int price) {
+        return new CsvCrypto(timestamp, cryptoType, BigDecimal.valueOf(price));
+    }
+
+    private static CsvCrypto crypto(long timestamp, CryptoType cryptoType, BigDecimal price) {
+        return new CsvCrypto(timestamp, cryptoType, price);
+    }
+}
@@ -1,39 +1,76 @@
 package com.ionutzbaur.crypto.investment.service.impl;
 
+import com.ionutzbaur.crypto.investment.domain.BatchQuery;
+import com.ionutzbaur.crypto.investment.domain.BatchResult;
+import com.ionutzbaur.crypto.investment.domain.Candle;
+import com.ionutzbaur.crypto.investment.domain.CandleInterval;
+import com.ionutzbaur.crypto.investment.domain.CorrelationMatrix;
 import com.ionutzbaur.crypto.investment.domain.CryptoType;
 import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.DayRanking;
+import com.ionutzbaur.crypto.investment.domain.DuplicatePolicy;
+import com.ionutzbaur.crypto.investment.domain.NormalizedRange;
+import com.ionutzbaur.crypto.investment.domain.RangeRanking;
+import com.ionutzbaur.crypto.investment.domain.RollingWindow;
+import com.ionutzbaur.crypto.investment.domain.StatisticQuery;
+import com.ionutzbaur.crypto.investment.domain.StatisticResult;
 import com.ionutzbaur.crypto.investment.domain.StatisticType;
+import com.ionutzbaur.crypto.investment.domain.SymbolPerformance;
+import com.ionutzbaur.crypto.investment.domain.WindowStatistics;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import com.ionutzbaur.crypto.investment.exception.InvalidRequestException;
+import com.ionutzbaur.crypto.investment.ingest.CryptoIngestPipeline;
+import com.ionutzbaur.crypto.investment.metrics.CryptoMetrics;
 import com.ionutzbaur.crypto.investment.service.CryptoService;
-import com.ionutzbaur.crypto.investment.util.CsvCryptoUtil;
-import com.opencsv.bean.CsvToBean;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import com.ionutzbaur.crypto.investment.util.CsvPriceReader;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import org.apache.commons.lang3.tuple.Pair;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.Mockito.mockStatic;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith({MockitoExtension.class})
 class CryptoServiceImplTest {
 
+    private static final CryptoType BTC = CryptoType.register("BTC");
+    private static final CryptoType DOGE = CryptoType.register("DOGE");
+    private static final CryptoType ETH = CryptoType.register("ETH");
+    private static final CryptoType XRP = CryptoType.register("XRP");
+
     private static final double MAX_PRICE = 46813.21d;
     private static final double MIN_PRICE = 0.1702d;
     private static final double MID_PRICE = 3715.32d;
@@ -42,162 +79,295 @@ class CryptoServiceImplTest {
     private static final long OLDEST_CRYPTO = LocalDateTime.now().minusDays(10).toInstant(ZoneOffset.UTC).toEpochMilli();
 
     @Mock
-    private CsvCrypto btcCsvCrypto;
-
-    @Mock
-    private CsvCrypto otherBtcCsvCrypto;
+    private CryptoIngestPipeline ingestPipeline;
 
-    @Mock
-    private CsvCrypto ethCsvCrypto;
-
-    @Mock
-    private CsvCrypto dogeCsvCrypto;
-
-    @Mock
-    private CsvToBean<CsvCrypto> btcCsvCryptoBean;
-
-    @Mock
-    private CsvToBean<CsvCrypto> ethCsvCryptoBean;
-
-    @Mock
-    private CsvToBean<CsvCrypto> dogeCsvCryptoBean;
-
-    private MockedStatic<CsvCryptoUtil> csvCryptoUtilMockedStatic;
-
-    private List<CsvCrypto> btcCryptoList;
-    private List<CsvCrypto> ethCryptoList;
-    private List<CsvCrypto> dogeCsvCryptoList;
-
-    private final CryptoService cryptoService = new CryptoServiceImpl();
+    private CryptoPriceStore priceStore;
+    private CryptoService cryptoService;
 
     @BeforeEach
     void setUp() {
-        btcCryptoList = List.of(btcCsvCrypto);
-        ethCryptoList = List.of(ethCsvCrypto);
-        dogeCsvCryptoList = List.of(dogeCsvCrypto);
-        csvCryptoUtilMockedStatic = mockStatic(CsvCryptoUtil.class);
-    }
-
-    @AfterEach
-    void tearDown() {
-        csvCryptoUtilMockedStatic.close();
+        priceStore = new CryptoPriceStore(ZoneId.systemDefault(), false);
+        cryptoService = new CryptoServiceImpl(priceStore, ingestPipeline);
     }
 
     @Test
     void getAllCryptos() {
-        final List<CsvCrypto> btcCryptoList = List.of(btcCsvCrypto);
-        final List<CsvCrypto> ethCryptoList = List.of(ethCsvCrypto);
+        final List<CsvCrypto> btcCryptoList = List.of(crypto(NEWEST_CRYPTO, BTC, MAX_PRICE));
+        final List<CsvCrypto> ethCryptoList = List.of(crypto(NEWEST_CRYPTO, ETH, MID_PRICE));
 
-        when(btcCsvCryptoBean.parse()).thenReturn(btcCryptoList);
-        when(ethCsvCryptoBean.parse()).thenReturn(ethCryptoList);
+        priceStore.append(BTC, btcCryptoList);
+        priceStore.append(ETH, ethCryptoList);
 
         final List<CsvCrypto> expectedList = new ArrayList<>();
         expectedList.addAll(btcCryptoList);
         expectedList.addAll(ethCryptoList);
 
-        csvCryptoUtilMockedStatic.when(() -> CsvCryptoUtil.readCryptoFromCsv(CryptoType.BTC))
-                .thenReturn(btcCsvCryptoBean);
-        csvCryptoUtilMockedStatic.when(() -> CsvCryptoUtil.readCryptoFromCsv(CryptoType.ETH))
-                .thenReturn(ethCsvCryptoBean);
-
         List<CsvCrypto> result = cryptoService.getAllCryptos();
         assertEquals(expectedList, result);
     }
 
     @Test
     void getNormalizedDesc() {
-        when(btcCsvCryptoBean.parse()).thenReturn(btcCryptoList);
-        when(ethCsvCryptoBean.parse()).thenReturn(ethCryptoList);
-        when(dogeCsvCryptoBean.parse()).thenReturn(dogeCsvCryptoList);
-
-        when(btcCsvCrypto.getPrice()).thenReturn(BigDecimal.valueOf(MAX_PRICE));
-        when(ethCsvCrypto.getPrice()).thenReturn(BigDecimal.valueOf(MID_PRICE));
-        when(dogeCsvCrypto.getPrice()).thenReturn(BigDecimal.valueOf(MIN_PRICE));
-
-        csvCryptoUtilMockedStatic.when(() -> CsvCryptoUtil.readCryptoFromCsv(CryptoType.BTC))
-                .thenReturn(btcCsvCryptoBean);
-        csvCryptoUtilMockedStatic.when(() -> CsvCryptoUtil.readCryptoFromCsv(CryptoType.ETH))
-                .thenReturn(ethCsvCryptoBean);
-        csvCryptoUtilMockedStatic.when(() -> CsvCryptoUtil.readCryptoFromCsv(CryptoType.DOGE))
-                .thenReturn(dogeCsvCryptoBean);
-
-        List<CsvCrypto> result = cryptoService.getNormalizedDesc();
-
-        final double normalizedRange = (MAX_PRICE - MIN_PRICE) / MIN_PRICE;
-        final Comparator<CsvCrypto> comparator = Comparator.comparing(CsvCrypto::getPrice)
-                .thenComparing((o1, o2) -> o1.getPrice().compareTo(BigDecimal.valueOf(normalizedRange)));
-
-        List<CsvCrypto> expectedList = Stream.of(btcCsvCrypto, ethCsvCrypto, dogeCsvCrypto)
-                .sorted(comparator.reversed())
-                .collect(Collectors.toList());
+        priceStore.append(BTC, List.of(
+                crypto(OLDEST_CRYPTO, BTC, MID_PRICE),
+                crypto(NEWEST_CRYPTO, BTC, MAX_PRICE)));
+        priceStore.append(ETH, List.of(
+                crypto(NEWEST_CRYPTO, ETH, MID_PRICE)));
+        priceStore.append(DOGE, List.of(
+                crypto(OLDEST_CRYPTO, DOGE, MIN_PRICE),
+                crypto(NEWEST_CRYPTO, DOGE, MID_PRICE)));
+
+        List<NormalizedRange> result = cryptoService.getNormalizedDesc();
+
+        List<NormalizedRange> expectedList = List.of(
+                normalizedRange(DOGE, MIN_PRICE, MID_PRICE),
+                normalizedRange(BTC, MID_PRICE, MAX_PRICE),
+                normalizedRange(ETH, MID_PRICE, MID_PRICE));
         assertEquals(expectedList, result);
+        assertSame(result, cryptoService.getNormalizedDesc()); // cached until new values are added
+
+        stubIngest();
+        cryptoService.addCrypto(List.of(crypto(OLDEST_CRYPTO, ETH, MIN_PRICE)));
+
+        expectedList = List.of( // ties keep the symbols order
+                normalizedRange(DOGE, MIN_PRICE, MID_PRICE),
+                normalizedRange(ETH, MIN_PRICE, MID_PRICE),
+                normalizedRange(BTC, MID_PRICE, MAX_PRICE));
+        assertEquals(expectedList, cryptoService.getNormalizedDesc());
     }
 
     @Test
     void getStatistic_max() {
-        assertEquals(btcCsvCrypto, getPriceStatistic(StatisticType.MAX));
+        assertEquals(crypto(NEWEST_CRYPTO, BTC, MAX_PRICE), getPriceStatistic(StatisticType.MAX));
     }
 
     @Test
     void getStatistic_min() {
-        assertEquals(otherBtcCsvCrypto, getPriceStatistic(StatisticType.MIN));
+        assertEquals(crypto(OLDEST_CRYPTO, BTC, MIN_PRICE), getPriceStatistic(StatisticType.MIN));
     }
 
     private CsvCrypto getPriceStatistic(StatisticType statisticType) {
-        when(btcCsvCrypto.getPrice()).thenReturn(BigDecimal.valueOf(MAX_PRICE));
-        when(otherBtcCsvCrypto.getPrice()).thenReturn(BigDecimal.valueOf(MIN_PRICE));
-
-        when(btcCsvCryptoBean.stream()).thenReturn(Stream.of(btcCsvCrypto, otherBtcCsvCrypto));
-
-        csvCryptoUtilMockedStatic.when(() -> CsvCryptoUtil.readCryptoFromCsv(CryptoType.BTC))
-                .thenReturn(btcCsvCryptoBean);
-
-        return cryptoService.getStatistic(CryptoType.BTC, statisticType);
+        priceStore.append(BTC, List.of(
+                crypto(NEWEST_CRYPTO, BTC, MAX_PRICE),
+                crypto(OLDEST_CRYPTO, BTC, MIN_PRICE)));
+        return cryptoService.getStatistic(BTC, statisticType);
     }
 
     @Test
     void getStatistic_newest() {
-        assertEquals(btcCsvCrypto, getTimestampStatistic(StatisticType.NEWEST));
+        assertEquals(crypto(NEWEST_CRYPTO, BTC, MID_PRICE), getTimestampStatistic(StatisticType.NEWEST));
     }
 
     @Test
     void getStatistic_oldest() {
-        assertEquals(otherBtcCsvCrypto, getTimestampStatistic(StatisticType.OLDEST));
+        assertEquals(crypto(OLDEST_CRYPTO, BTC, MAX_PRICE), getTimestampStatistic(StatisticType.OLDEST));
     }
 
     private CsvCrypto getTimestampStatistic(StatisticType statisticType) {
-        when(btcCsvCrypto.getTimestamp()).thenReturn(NEWEST_CRYPTO);
-        when(otherBtcCsvCrypto.getTimestamp()).thenReturn(OLDEST_CRYPTO);
+        priceStore.append(BTC, List.of(
+                crypto(NEWEST_CRYPTO, BTC, MID_PRICE),
+                crypto(OLDEST_CRYPTO, BTC, MAX_PRICE)));
+        return cryptoService.getStatistic(BTC, statisticType);
+    }
 
-        when(btcCsvCryptoBean.stream()).thenReturn(Stream.of(btcCsvCrypto, otherBtcCsvCrypto));
+    @Test
+    void getStatistic_increasingDecimals() {
+        final long day = LocalDate.of(2022, 1, 1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        priceStore.append(BTC, List.of(crypto(day, BTC, 100)));
+        priceStore.append(BTC, List.of(
+                crypto(day + 2, BTC, 5.5),
+                crypto(day + 1, BTC, 0.123456)));
+
+        assertEquals(crypto(day + 1, BTC, 0.123456), cryptoService.getStatistic(BTC, StatisticType.MIN));
+        assertEquals(crypto(day, BTC, 100), cryptoService.getStatistic(BTC, StatisticType.MAX));
+        assertEquals(List.of(crypto(day, BTC, 100), crypto(day + 1, BTC, 0.123456), crypto(day + 2, BTC, 5.5)),
+                cryptoService.getPrices(BTC, null, null));
+        assertEquals(List.of(normalizedRange(BTC, 0.123456, 100)), cryptoService.getNormalizedDesc());
+        assertEquals(BTC, cryptoService.getHighestNormalizedRange(LocalDate.of(2022, 1, 1)));
+    }
 
-        csvCryptoUtilMockedStatic.when(() -> CsvCryptoUtil.readCryptoFromCsv(CryptoType.BTC))
-                .thenReturn(btcCsvCryptoBean);
+    @Test
+    void getStatistic_whileLoading(@TempDir Path tempDir) throws Exception {
+        writeXrpHistory(tempDir);
+        takeSnapshot(tempDir);
+
+        final CountDownLatch released = new CountDownLatch(1);
+        loadUntilReleased(tempDir, released);
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                cryptoService.getDataVersion(XRP);
+                assertEquals(crypto(2000, XRP, 0.6), cryptoService.getStatistic(XRP, StatisticType.MAX));
+            });
+        } finally {
+            released.countDown();
+        }
+        priceStore.awaitLoaded();
+        assertEquals(crypto(2000, XRP, 0.6), cryptoService.getStatistic(XRP, StatisticType.NEWEST));
+    }
 
-        return cryptoService.getStatistic(CryptoType.BTC, statisticType);
+    @Test
+    void getHighestNormalizedRange_whileLoading(@TempDir Path tempDir) throws Exception {
+        writeXrpHistory(tempDir);
+        final CountDownLatch released = new CountDownLatch(1);
+        loadUntilReleased(tempDir, released);
+
+        final CompletableFuture<CryptoType> highest = CompletableFuture.supplyAsync(
+                () -> cryptoService.getHighestNormalizedRange(LocalDate.of(1970, 1, 1)));
+        Thread.sleep(200);
+        assertFalse(highest.isDone()); // waits for the history, instead of answering from a partial day index
+        released.countDown();
+        assertEquals(XRP, highest.get());
     }
 
     @Test
-    void getHighestNormalizedRange() {
-        when(btcCsvCrypto.getPrettyTimestamp()).thenReturn(Instant.now());
-        when(btcCsvCrypto.getSymbol()).thenReturn(CryptoType.BTC);
-        when(btcCsvCrypto.getPrice()).thenReturn(BigDecimal.valueOf(MAX_PRICE));
+    void getHighestNormalizedRange_restoredWhileLoading(@TempDir Path tempDir) throws Exception {
+        writeXrpHistory(tempDir);
+        takeSnapshot(tempDir);
+
+        final CountDownLatch released = new CountDownLatch(1);
+        loadUntilReleased(tempDir, released);
+        try {
+            // answered from the day ranges of the snapshot
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+                    assertEquals(XRP, cryptoService.getHighestNormalizedRange(LocalDate.of(1970, 1, 1))));
+        } finally {
+            released.countDown();
+        }
+        priceStore.awaitLoaded();
+        assertEquals(XRP, cryptoService.getHighestNormalizedRange(LocalDate.of(1970, 1, 1)));
+    }
 
-        when(otherBtcCsvCrypto.getPrettyTimestamp()).thenReturn(Instant.now());
-        when(otherBtcCsvCrypto.getSymbol()).thenReturn(CryptoType.BTC);
-        when(otherBtcCsvCrypto.getPrice()).thenReturn(BigDecimal.valueOf(MID_PRICE));
+    private static void takeSnapshot(Path dataDirectory) {
+        final CryptoPriceStore previousStore = new CryptoPriceStore(ZoneOffset.UTC, dataDirectory, false, 1,
+                DuplicatePolicy.LAST_WRITE_WINS, true, Duration.ZERO, CryptoMetrics.noop());
+        previousStore.load();
+        previousStore.awaitLoaded();
+        previousStore.close(); // takes the snapshot
+    }
+
+    private static void writeXrpHistory(Path dataDirectory) throws IOException {
+        Files.writeString(dataDirectory.resolve("XRP_values.csv"), """
+                timestamp,symbol,price
+                1000,XRP,0.5
+                2000,XRP,0.6
+                """);
+    }
+
+    /**
+     * Starts loading the given directory into a new store, whose histories are read but not loaded until released.
+     */
+    private void loadUntilReleased(Path dataDirectory, CountDownLatch released) {
+        final CryptoMetrics blockingMetrics = new CryptoMetrics(new CompositeMeterRegistry()) {
+            @Override
+            public void csvRead(CryptoType cryptoType, CsvPriceReader.Result result) {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        priceStore = new CryptoPriceStore(ZoneOffset.UTC, dataDirectory, false, 1, DuplicatePolicy.LAST_WRITE_WINS,
+                true, Duration.ZERO, blockingMetrics);
+        cryptoService = new CryptoServiceImpl(priceStore, ingestPipeline);
+        priceStore.load();
+    }
 
-        when(ethCsvCrypto.getPrettyTimestamp()).thenReturn(Instant.now());
-        when(ethCsvCrypto.getSymbol()).thenReturn(CryptoType.ETH);
-        when(ethCsvCrypto.getPrice()).thenReturn(BigDecimal.valueOf(MIN_PRICE));
+    @Test
+    void getStatistic_distribution() {
+        priceStore = new CryptoPriceStore(ZoneOffset.UTC, false); // days of UTC
+        cryptoService = new CryptoServiceImpl(priceStore, ingestPipeline);
+        final Instant firstDay = Instant.parse("2022-01-01T00:00:00Z");
+        final Instant secondDay = Instant.parse("2022-01-02T00:00:00Z");
+        priceStore.append(BTC, List.of(
+                crypto(firstDay.toEpochMilli(), BTC, 10),
+                crypto(firstDay.plus(Duration.ofHours(12)).toEpochMilli(), BTC, 30),
+                crypto(secondDay.toEpochMilli(), BTC, 40)));
+        priceStore.append(BTC, List.of(crypto(secondDay.plus(Duration.ofHours(12)).toEpochMilli(), BTC, 50)));
+        priceStore.append(BTC, List.of(crypto(firstDay.plus(Duration.ofHours(6)).toEpochMilli(), BTC, 20)));
+
+        final long newest = secondDay.plus(Duration.ofHours(12)).toEpochMilli();
+        assertEquals(crypto(newest, BTC, 30), cryptoService.getStatistic(BTC, StatisticType.MEAN));
+        assertEquals(Math.sqrt(200), getStatistic(StatisticType.STDDEV, null, null), 1e-9);
+        // 10 for 6h, 20 for 6h, 30 for 12h and 40 for 12h
+        assertEquals(1020d / 36, getStatistic(StatisticType.TWAP, null, null), 1e-9);
+        assertEquals(30, getStatistic(StatisticType.MEDIAN, null, null), 30 * 0.005);
+        assertEquals(10, getStatistic(StatisticType.P5, null, null), 10 * 0.005);
+        assertEquals(50, getStatistic(StatisticType.P95, null, null), 50 * 0.005);
+        assertEquals(newest, cryptoService.getStatistic(BTC, StatisticType.MEDIAN).getTimestamp());
+
+        final LocalDate first = LocalDate.of(2022, 1, 1);
+        final LocalDate second = LocalDate.of(2022, 1, 2);
+        assertEquals(45, getStatistic(StatisticType.MEAN, second, null));
+        assertEquals(crypto(secondDay.toEpochMilli(), BTC, 40),
+                cryptoService.getStatistic(BTC, StatisticType.OLDEST, second, second));
+        assertEquals(crypto(firstDay.plus(Duration.ofHours(12)).toEpochMilli(), BTC, 30),
+                cryptoService.getStatistic(BTC, StatisticType.MAX, null, first));
+
+        // replacing a value summarizes its day again
+        priceStore.append(BTC, List.of(crypto(firstDay.plus(Duration.ofHours(6)).toEpochMilli(), BTC, 26)));
+        assertEquals(22, getStatistic(StatisticType.MEAN, first, first));
+        assertEquals(31.2, getStatistic(StatisticType.MEAN, first, second), 1e-9);
+
+        assertThrows(InvalidRequestException.class, () -> cryptoService.getStatistic(BTC, StatisticType.MEAN, second, first));
+        assertThrows(CryptoInvestmentException.class,
+                () -> cryptoService.getStatistic(BTC, StatisticType.MEDIAN, LocalDate.of(2022, 2, 1), null));
+    }
 
-        when(btcCsvCryptoBean.parse()).thenReturn(List.of(btcCsvCrypto, otherBtcCsvCrypto));
-        when(ethCsvCryptoBean.parse()).thenReturn(ethCryptoList);
+    private double getStatistic(StatisticType statisticType, LocalDate from, LocalDate to) {
+        return cryptoService.getStatistic(BTC, statisticType, from, to).getPrice().doubleValue();
+    }
 
-        csvCryptoUtilMockedStatic.when(() -> CsvCryptoUtil.readCryptoFromCsv(CryptoType.BTC))
-                .thenReturn(btcCsvCryptoBean);
-        csvCryptoUtilMockedStatic.when(() -> CsvCryptoUtil.readCryptoFromCsv(CryptoType.ETH))
-                .thenReturn(ethCsvCryptoBean);
+    @Test
+    void getBatch() {
+        priceStore = new CryptoPriceStore(ZoneOffset.UTC, false); // days of UTC
+        cryptoService = new CryptoServiceImpl(priceStore, ingestPipeline);
+        final Instant firstDay = Instant.parse("2022-01-01T00:00:00Z");
+        priceStore.append(BTC, List.of(
+                crypto(firstDay.toEpochMilli(), BTC, 10),
+                crypto(firstDay.plus(Duration.ofHours(12)).toEpochMilli(), BTC, 30)));
+        priceStore.append(ETH, List.of(
+                crypto(firstDay.toEpochMilli(), ETH, 10),
+                crypto(firstDay.plus(Duration.ofHours(12)).toEpochMilli(), ETH, 40)));
+
+        final LocalDate first = LocalDate.of(2022, 1, 1);
+        final LocalDate second = LocalDate.of(2022, 1, 2);
+        final List<StatisticQuery> queries = List.of(
+                new StatisticQuery("BTC", StatisticType.MAX, null, null),
+                new StatisticQuery("eth", null, null, null),
+                new StatisticQuery("BTC", StatisticType.MEAN, first, first),
+                new StatisticQuery("BTC", StatisticType.MIN, first, first),
+                new StatisticQuery("BTC", StatisticType.MEAN, second, first),
+                new StatisticQuery("UNKNOWN", StatisticType.MAX, null, null));
+        final BatchResult result = cryptoService.getBatch(new BatchQuery(queries, List.of(second, first, first)));
+
+        assertEquals(List.of(
+                new StatisticResult(queries.get(0), cryptoService.getStatistic(BTC, StatisticType.MAX), null),
+                new StatisticResult(queries.get(1), cryptoService.getStatistic(ETH, StatisticType.NEWEST), null),
+                new StatisticResult(queries.get(2), cryptoService.getStatistic(BTC, StatisticType.MEAN, first, first), null),
+                new StatisticResult(queries.get(3), crypto(firstDay.toEpochMilli(), BTC, 10), null),
+                new StatisticResult(queries.get(4), null, "The first day of the range is after the last one"),
+                new StatisticResult(queries.get(5), null, "Unknown crypto: UNKNOWN")), result.getStatistics());
+        // distinct days, in the order of the query
+        assertEquals(List.of(second, first), List.copyOf(result.getHighestNormalizedRanges().keySet()));
+        assertNull(result.getHighestNormalizedRanges().get(second));
+        assertEquals(ETH, result.getHighestNormalizedRanges().get(first));
+        assertNull(CryptoType.find("UNKNOWN")); // not registered by the query
+
+        assertThrows(InvalidRequestException.class, () -> new CryptoServiceImpl(priceStore, ingestPipeline,
+                CryptoMetrics.noop(), 24, 2, 3660).getBatch(new BatchQuery(queries, List.of())));
+        assertEquals(Map.of(), cryptoService.getBatch(new BatchQuery()).getHighestNormalizedRanges());
+    }
+
+    @Test
+    void getHighestNormalizedRange() {
+        final long now = Instant.now().toEpochMilli();
+        final CsvCrypto btcCsvCrypto = crypto(now, BTC, MAX_PRICE);
+        final CsvCrypto otherBtcCsvCrypto = crypto(now + 1, BTC, MID_PRICE);
+        final CsvCrypto ethCsvCrypto = crypto(now, ETH, MIN_PRICE);
+
+        priceStore.append(BTC, List.of(btcCsvCrypto, otherBtcCsvCrypto));
+        priceStore.append(ETH, List.of(ethCsvCrypto));
 
         var todayBtcMax = Stream.of(btcCsvCrypto, otherBtcCsvCrypto)
                 .max(Comparator.comparing(CsvCrypto::getPrice))
@@ -219,8 +389,8 @@ class CryptoServiceImplTest {
         BigDecimal normalizedTodayEthRange = BigDecimal.valueOf((todayEthMax - todayEthMin) / todayEthMin)
                 .setScale(2, RoundingMode.HALF_UP);
 
-        final Pair<CryptoType, BigDecimal> btcPair = Pair.of(CryptoType.BTC, normalizedTodayBtcRange);
-        final Pair<CryptoType, BigDecimal> ethPair = Pair.of(CryptoType.ETH, normalizedTodayEthRange);
+        final Pair<CryptoType, BigDecimal> btcPair = Pair.of(BTC, normalizedTodayBtcRange);
+        final Pair<CryptoType, BigDecimal> ethPair = Pair.of(ETH, normalizedTodayEthRange);
 
         CryptoType expectedCryptoType = Stream.of(btcPair, ethPair)
                 .max(Comparator.comparing(Pair::getRight))
@@ -231,16 +401,252 @@ class CryptoServiceImplTest {
         assertEquals(expectedCryptoType, result); // BTC
     }
 
+    @Test
+    void getHighestNormalizedRange_replacedValue() {
+        final long day = LocalDate.of(2022, 1, 1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        priceStore.append(BTC, List.of(crypto(day, BTC, 10), crypto(day + 1, BTC, 20)));
+        priceStore.append(ETH, List.of(crypto(day, ETH, 10), crypto(day + 1, ETH, 15)));
+        assertEquals(BTC, cryptoService.getHighestNormalizedRange(LocalDate.of(2022, 1, 1)));
+
+        // the last write wins, so the range of the day shrinks
+        priceStore.append(BTC, List.of(crypto(day + 1, BTC, 11)));
+
+        assertEquals(ETH, cryptoService.getHighestNormalizedRange(LocalDate.of(2022, 1, 1)));
+        assertEquals(List.of(crypto(day, BTC, 10), crypto(day + 1, BTC, 11)), cryptoService.getPrices(BTC, null, null));
+    }
+
+    @Test
+    void getPrices() {
+        final Instant start = Instant.parse("2022-01-01T10:00:00Z");
+        final CsvCrypto first = crypto(start.toEpochMilli(), BTC, MID_PRICE);
+        final CsvCrypto second = crypto(start.plusSeconds(60).toEpochMilli(), BTC, MAX_PRICE);
+        final CsvCrypto third = crypto(start.plusSeconds(120).toEpochMilli(), BTC, MIN_PRICE);
+
+        // out of order, also across appends
+        priceStore.append(BTC, List.of(third, first));
+        priceStore.append(BTC, List.of(second));
+
+        assertEquals(List.of(first, second, third), cryptoService.getPrices(BTC, null, null));
+        assertEquals(List.of(second), cryptoService.getPrices(BTC, start.plusSeconds(1), start.plusSeconds(120)));
+        assertEquals(List.of(), cryptoService.getPrices(BTC, start.plusSeconds(121), null));
+        assertEquals(List.of(), cryptoService.getPrices(ETH, null, null));
+    }
+
+    @Test
+    void getNormalizedRangeRanking() {
+        priceStore = new CryptoPriceStore(ZoneOffset.UTC, false); // days of UTC
+        cryptoService = new CryptoServiceImpl(priceStore, ingestPipeline);
+        final long firstDay = Instant.parse("2022-01-01T00:00:00Z").toEpochMilli();
+        final long secondDay = Instant.parse("2022-01-02T00:00:00Z").toEpochMilli();
+        priceStore.append(BTC, List.of(crypto(firstDay, BTC, 10), crypto(firstDay + 1, BTC, 30),
+                crypto(secondDay, BTC, 20), crypto(secondDay + 1, BTC, 25)));
+        priceStore.append(ETH, List.of(crypto(firstDay, ETH, 10), crypto(firstDay + 1, ETH, 40),
+                crypto(secondDay, ETH, 40), crypto(secondDay + 1, ETH, 44)));
+        priceStore.append(DOGE, List.of(crypto(firstDay, DOGE, 1), crypto(firstDay + 1, DOGE, 1.5)));
+
+        final LocalDate first = LocalDate.of(2022, 1, 1);
+        final LocalDate second = LocalDate.of(2022, 1, 2);
+        final LocalDate third = LocalDate.of(2022, 1, 3);
+        assertEquals(new RangeRanking(first, third,
+                        List.of(normalizedRange(ETH, 10, 44), normalizedRange(BTC, 10, 30)),
+                        List.of(new DayRanking(first, List.of(normalizedRange(ETH, 10, 40), normalizedRange(BTC, 10, 30))),
+                                new DayRanking(second, List.of(normalizedRange(BTC, 20, 25), normalizedRange(ETH, 40, 44))))),
+                cryptoService.getNormalizedRangeRanking(first, third, 2));
+        assertEquals(List.of(normalizedRange(ETH, 10, 40), normalizedRange(BTC, 10, 30), normalizedRange(DOGE, 1, 1.5)),
+                cryptoService.getNormalizedRangeRanking(first, first, 5).getRanking());
+        assertEquals(ETH, cryptoService.getHighestNormalizedRange(first));
+        assertEquals(List.of(), cryptoService.getNormalizedRangeRanking(third, third, 1).getRanking());
+
+        assertThrows(InvalidRequestException.class, () -> cryptoService.getNormalizedRangeRanking(second, first, 1));
+        assertThrows(InvalidRequestException.class, () -> cryptoService.getNormalizedRangeRanking(first, first, 0));
+        assertThrows(InvalidRequestException.class,
+                () -> cryptoService.getNormalizedRangeRanking(LocalDate.of(2000, 1, 1), first, 1));
+    }
+
+    @Test
+    void getCandles() {
+        priceStore = new CryptoPriceStore(ZoneOffset.UTC, false); // days and weeks of UTC
+        cryptoService = new CryptoServiceImpl(priceStore, ingestPipeline);
+
+        final Instant monday = Instant.parse("2022-01-03T00:00:00Z");
+        priceStore.append(BTC, List.of(
+                crypto(monday.plusSeconds(90 * 60).toEpochMilli(), BTC, 12),
+                crypto(monday.plusSeconds(30 * 60).toEpochMilli(), BTC, 10),
+                crypto(monday.plusSeconds(45 * 60).toEpochMilli(), BTC, 8),
+                crypto(monday.plusSeconds(26 * 3600).toEpochMilli(), BTC, 15),
+                crypto(monday.plusSeconds(8 * 24 * 3600).toEpochMilli(), BTC, 20)));
+        priceStore.append(BTC, List.of(
+                crypto(monday.plusSeconds(10 * 60).toEpochMilli(), BTC, 9)));
+
+        assertEquals(List.of(
+                        candle(monday, 9, 10, 8, 8, 3),
+                        candle(monday.plusSeconds(3600), 12, 12, 12, 12, 1),
+                        candle(monday.plusSeconds(26 * 3600), 15, 15, 15, 15, 1),
+                        candle(monday.plusSeconds(8 * 24 * 3600), 20, 20, 20, 20, 1)),
+                cryptoService.getCandles(BTC, CandleInterval.HOUR, null, null));
+        assertEquals(List.of(
+                        candle(monday, 9, 12, 8, 12, 4),
+                        candle(monday.plusSeconds(24 * 3600), 15, 15, 15, 15, 1),
+                        candle(monday.plusSeconds(8 * 24 * 3600), 20, 20, 20, 20, 1)),
+                cryptoService.getCandles(BTC, CandleInterval.DAY, null, null));
+        assertEquals(List.of(
+                        candle(monday, 9, 15, 8, 15, 5),
+                        candle(monday.plusSeconds(7 * 24 * 3600), 20, 20, 20, 20, 1)),
+                cryptoService.getCandles(BTC, CandleInterval.WEEK, null, null));
+        assertEquals(List.of(
+                        candle(monday.plusSeconds(3600), 12, 12, 12, 12, 1),
+                        candle(monday.plusSeconds(26 * 3600), 15, 15, 15, 15, 1)),
+                cryptoService.getCandles(BTC, CandleInterval.HOUR,
+                        monday.plusSeconds(3600 + 1), monday.plusSeconds(2 * 24 * 3600)));
+    }
+
+    @Test
+    void getWindowStatistics() {
+        final Instant now = Instant.parse("2022-02-01T00:00:00Z");
+        priceStore.append(BTC, List.of(
+                crypto(now.minus(Duration.ofDays(40)).toEpochMilli(), BTC, 50),
+                crypto(now.minus(Duration.ofDays(10)).toEpochMilli(), BTC, 10),
+                crypto(now.minus(Duration.ofDays(3)).toEpochMilli(), BTC, 18),
+                crypto(now.minus(Duration.ofHours(2)).toEpochMilli(), BTC, 16)));
+        priceStore.append(BTC, List.of(crypto(now.toEpochMilli(), BTC, 14)));
+
+        final List<WindowStatistics> windows = cryptoService.getWindowStatistics(BTC, null);
+        assertEquals(3, windows.size());
+        assertWindow(windows.get(0), "24h", now.minus(Duration.ofHours(2)), 2, 14, 16, "0.14", 15, 1);
+        assertWindow(windows.get(1), "7d", now.minus(Duration.ofDays(3)), 3, 14, 18, "0.29", 16, Math.sqrt(8 / 3d));
+        assertWindow(windows.get(2), "30d", now.minus(Duration.ofDays(10)), 4, 10, 18, "0.80", 14.5, Math.sqrt(8.75));
+
+        // merged into the windows, then expired from the 24h one
+        priceStore.append(BTC, List.of(crypto(now.minus(Duration.ofHours(5)).toEpochMilli(), BTC, 30)));
+        assertWindow(cryptoService.getWindowStatistics(BTC, RollingWindow.DAY).get(0),
+                "24h", now.minus(Duration.ofHours(5)), 3, 14, 30, "1.14", 20, Math.sqrt(152 / 3d));
+
+        priceStore.append(BTC, List.of(crypto(now.plus(Duration.ofHours(23)).toEpochMilli(), BTC, 15)));
+        assertWindow(cryptoService.getWindowStatistics(BTC, RollingWindow.DAY).get(0),
+                "24h", now, 2, 14, 15, "0.07", 14.5, 0.5);
+
+        assertEquals(List.of(), cryptoService.getWindowStatistics(ETH, null));
+    }
+
+    @Test
+    void getCorrelations() {
+        final Instant start = Instant.parse("2022-01-01T10:00:00Z");
+        final double[] btcPrices = {1, 2, 0.5, 4, 1};
+        for (int hour = 0; hour < btcPrices.length; hour++) {
+            final long timestamp = start.plus(Duration.ofHours(hour)).toEpochMilli();
+            priceStore.append(BTC, List.of(crypto(timestamp, BTC, btcPrices[hour])));
+            priceStore.append(ETH, List.of(crypto(timestamp + 60_000, ETH, 2 * btcPrices[hour])));
+            priceStore.append(XRP, List.of(crypto(timestamp, XRP, 1 / btcPrices[hour])));
+        }
+        // no value in the 2 hours in between, the first close is carried forward
+        priceStore.append(DOGE, List.of(
+                crypto(start.toEpochMilli(), DOGE, 10),
+                crypto(start.plus(Duration.ofHours(3)).toEpochMilli(), DOGE, 20)));
+
+        final CorrelationMatrix matrix = cryptoService.getCorrelations(null, CandleInterval.HOUR, null, null);
+
+        assertEquals(5, matrix.getPoints());
+        assertEquals(start.toEpochMilli(), matrix.getFromTimestamp());
+        assertEquals(start.plus(Duration.ofHours(5)).toEpochMilli(), matrix.getToTimestamp());
+        assertEquals(List.of(BTC, DOGE, ETH, XRP), matrix.getPerformances().stream().map(SymbolPerformance::getSymbol).toList());
+        final SymbolPerformance doge = matrix.getPerformances().get(1);
+        assertEquals(new BigDecimal("1.0000"), doge.getTotalReturn());
+        assertEquals(new BigDecimal("0.7500"), doge.getExcessReturn());
+        assertEquals(3, doge.getReturnCount());
+        assertEquals(new BigDecimal("-0.2500"), matrix.getPerformances().get(0).getExcessReturn());
+
+        final BigDecimal[][] correlations = matrix.getCorrelations();
+        assertEquals(new BigDecimal("1.0000"), correlations[0][0]);
+        assertEquals(new BigDecimal("1.0000"), correlations[0][2]);
+        assertEquals(new BigDecimal("-1.0000"), correlations[0][3]);
+        assertEquals(new BigDecimal("-1.0000"), correlations[3][2]);
+        assertEquals(correlations[1][0], correlations[0][1]);
+
+        // DOGE has a single value within the range, so no return
+        final CorrelationMatrix partial = cryptoService.getCorrelations(List.of(DOGE, BTC), CandleInterval.HOUR,
+                start.plus(Duration.ofHours(2)), null);
+        assertEquals(3, partial.getPoints());
+        assertEquals(new BigDecimal("0.5"), partial.getPerformances().get(0).getFirstPrice());
+        assertEquals(0, partial.getPerformances().get(1).getReturnCount());
+        assertNull(partial.getCorrelations()[0][1]);
+        assertNull(partial.getCorrelations()[1][1]);
+    }
+
+    @Test
+    void getCorrelations_tooManyPoints() {
+        cryptoService = new CryptoServiceImpl(priceStore, ingestPipeline, CryptoMetrics.noop(), 24, 100_000, 3660);
+        final Instant start = Instant.parse("2022-01-01T00:00:00Z");
+        priceStore.append(BTC, List.of(
+                crypto(start.toEpochMilli(), BTC, 1),
+                crypto(start.plus(Duration.ofDays(1)).toEpochMilli(), BTC, 2)));
+
+        assertThrows(InvalidRequestException.class,
+                () -> cryptoService.getCorrelations(null, CandleInterval.HOUR, null, null));
+        assertEquals(2, cryptoService.getCorrelations(null, CandleInterval.DAY, null, null).getPoints());
+    }
+
     @Test
     void addCrypto() {
-        when(btcCsvCrypto.getSymbol()).thenReturn(CryptoType.BTC);
-        when(ethCsvCrypto.getSymbol()).thenReturn(CryptoType.ETH);
+        final CsvCrypto btcCsvCrypto = crypto(NEWEST_CRYPTO, BTC, MAX_PRICE);
+        final CsvCrypto ethCsvCrypto = crypto(NEWEST_CRYPTO, ETH, MID_PRICE);
+        stubIngest();
 
         List<CsvCrypto> csvCryptoList = List.of(btcCsvCrypto, ethCsvCrypto);
         cryptoService.addCrypto(csvCryptoList);
 
-        csvCryptoUtilMockedStatic.verify(() -> CsvCryptoUtil.writeCryptoToCsv(List.of(btcCsvCrypto), CryptoType.BTC));
-        csvCryptoUtilMockedStatic.verify(() -> CsvCryptoUtil.writeCryptoToCsv(List.of(ethCsvCrypto), CryptoType.ETH));
+        verify(ingestPipeline).submit(csvCryptoList);
+        assertEquals(btcCsvCrypto, cryptoService.getStatistic(BTC, StatisticType.NEWEST));
+        assertEquals(ethCsvCrypto, cryptoService.getStatistic(ETH, StatisticType.NEWEST));
+    }
+
+    @Test
+    void addCrypto_failure() {
+        final IOException failure = new IOException("disk full");
+        when(ingestPipeline.submit(anyList())).thenReturn(CompletableFuture.failedFuture(failure));
+
+        final List<CsvCrypto> csvCryptoList = List.of(crypto(NEWEST_CRYPTO, BTC, MAX_PRICE));
+        final CryptoInvestmentException exception = assertThrows(CryptoInvestmentException.class,
+                () -> cryptoService.addCrypto(csvCryptoList));
+        assertSame(failure, exception.getCause());
+    }
+
+    private void stubIngest() {
+        when(ingestPipeline.submit(anyList())).thenAnswer(invocation -> {
+            final List<CsvCrypto> cryptoValues = invocation.getArgument(0);
+            cryptoValues.stream()
+                    .collect(Collectors.groupingBy(CsvCrypto::getSymbol))
+                    .forEach(priceStore::append);
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    private static Candle candle(Instant timestamp, double open, double high, double low, double close, long count) {
+        return new Candle(timestamp.toEpochMilli(), BigDecimal.valueOf(open), BigDecimal.valueOf(high),
+                BigDecimal.valueOf(low), BigDecimal.valueOf(close), count);
+    }
+
+    private static NormalizedRange normalizedRange(CryptoType cryptoType, double minPrice, double maxPrice) {
+        return new NormalizedRange(cryptoType,
+                BigDecimal.valueOf((maxPrice - minPrice) / minPrice).setScale(2, RoundingMode.HALF_UP),
+                BigDecimal.valueOf(minPrice),
+                BigDecimal.valueOf(maxPrice));
+    }
+
+    private static void assertWindow(WindowStatistics windowStatistics, String window, Instant from, long count,
+                                     double min, double max, String normalizedRange,
+                                     double mean, double standardDeviation) {
+        assertEquals(window, windowStatistics.getWindow());
+        assertEquals(from.toEpochMilli(), windowStatistics.getFromTimestamp());
+        assertEquals(count, windowStatistics.getCount());
+        assertEquals(0, BigDecimal.valueOf(min).compareTo(windowStatistics.getMinPrice()));
+        assertEquals(0, BigDecimal.valueOf(max).compareTo(windowStatistics.getMaxPrice()));
+        assertEquals(new BigDecimal(normalizedRange), windowStatistics.getNormalizedRange());
+        assertEquals(mean, windowStatistics.getMean().doubleValue(), 1e-9);
+        assertEquals(standardDeviation, windowStatistics.getStandardDeviation().doubleValue(), 1e-9);
+    }
+
+    private static CsvCrypto crypto(long timestamp, CryptoType cryptoType, double price) {
+        return new CsvCrypto(timestamp, cryptoType, BigDecimal.valueOf(price));
     }
 
-}
\ No newline at end of file
+}
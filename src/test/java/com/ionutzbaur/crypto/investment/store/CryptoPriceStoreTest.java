@@ -0,0 +1,174 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.DuplicatePolicy;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import com.ionutzbaur.crypto.investment.metrics.CryptoMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CryptoPriceStoreTest {
+
+    private static final CryptoType XRP = CryptoType.register("XRP");
+
+    @TempDir
+    private Path tempDir;
+
+    private Path csvPath;
+    private CryptoPriceStore priceStore;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        csvPath = Files.writeString(tempDir.resolve("XRP_values.csv"), """
+                timestamp,symbol,price
+                1000,XRP,0.5
+                2000,XRP,0.6
+                """);
+        priceStore = newStore();
+        priceStore.load();
+        priceStore.awaitLoaded();
+    }
+
+    @Test
+    void ingestCsvTail() throws IOException {
+        final List<CryptoType> updated = new ArrayList<>();
+        priceStore.addUpdateListener(updated::add);
+        final long version = priceStore.version();
+
+        // the exporter is still writing the last line
+        append("3000,XRP,0.7\n4000,XR");
+        assertEquals(1, priceStore.ingestCsvTail(XRP));
+        assertEquals(3, priceStore.statistics(XRP).getCount());
+        assertEquals(new BigDecimal("0.7"), priceStore.statistics(XRP).getNewest().getPrice());
+
+        append("P,0.4\n");
+        assertEquals(1, priceStore.ingestCsvTail(XRP));
+        assertEquals(0, priceStore.ingestCsvTail(XRP));
+
+        final PriceStatistics statistics = priceStore.statistics(XRP);
+        assertEquals(4, statistics.getCount());
+        assertEquals(4000L, statistics.getNewest().getTimestamp());
+        assertEquals(new BigDecimal("0.4"), statistics.getMin().getPrice());
+        assertEquals(List.of(XRP, XRP), updated);
+        assertEquals(version + 2, priceStore.version());
+    }
+
+    @Test
+    void ingestCsvTail_replacedFile() throws IOException {
+        // rewritten with a corrected value, shorter than what was already read
+        Files.writeString(csvPath, """
+                timestamp,symbol,price
+                2000,XRP,0.9
+                """);
+
+        assertEquals(1, priceStore.ingestCsvTail(XRP));
+
+        final PriceStatistics statistics = priceStore.statistics(XRP);
+        assertEquals(2, statistics.getCount());
+        assertEquals(new BigDecimal("0.9"), statistics.getMax().getPrice());
+    }
+
+    @Test
+    void writeSnapshot() throws IOException {
+        priceStore.writeSnapshot();
+
+        final Path snapshotPath = tempDir.resolve(StoreSnapshot.FILE_NAME);
+        final StoreSnapshot.Entry entry = StoreSnapshot.read(snapshotPath, ZoneOffset.UTC, DuplicatePolicy.LAST_WRITE_WINS)
+                .get(XRP);
+        assertTrue(entry.isUpToDate(csvPath));
+        assertEquals(2, entry.statistics().getCount());
+        assertEquals(new BigDecimal("0.6"), entry.statistics().getNewest().getPrice());
+        assertEquals(List.of(new DayIndex.DayRange(0, 1, 5, 6)), entry.days());
+        // days of another time zone
+        assertTrue(StoreSnapshot.read(snapshotPath, ZoneOffset.ofHours(2), DuplicatePolicy.LAST_WRITE_WINS).isEmpty());
+
+        append("3000,XRP,0.7\n");
+        assertFalse(entry.isUpToDate(csvPath));
+
+        final CryptoPriceStore restartedStore = newStore();
+        restartedStore.load();
+        assertEquals(3, restartedStore.statistics(XRP).getCount());
+        assertEquals(3, restartedStore.columns(XRP).size());
+    }
+
+    @Test
+    void writeSnapshot_removedCsvFile() throws IOException {
+        priceStore.writeSnapshot();
+        final Path snapshotPath = tempDir.resolve(StoreSnapshot.FILE_NAME);
+        final StoreSnapshot.Entry entry = StoreSnapshot.read(snapshotPath, ZoneOffset.UTC, DuplicatePolicy.LAST_WRITE_WINS)
+                .get(XRP);
+        // the entry of a crypto whose CSV file was removed since
+        final StoreSnapshot.Entry removed = new StoreSnapshot.Entry(CryptoType.parse("SNAPSHOT_REMOVED"),
+                entry.sourceSize(), entry.sourceLastModified(), entry.statistics(), entry.days());
+        StoreSnapshot.write(snapshotPath, ZoneOffset.UTC, DuplicatePolicy.LAST_WRITE_WINS, List.of(entry, removed));
+
+        assertEquals(Set.of(XRP), StoreSnapshot.read(snapshotPath, ZoneOffset.UTC, DuplicatePolicy.LAST_WRITE_WINS)
+                .keySet());
+        assertNull(CryptoType.find("SNAPSHOT_REMOVED"));
+    }
+
+    @Test
+    void readConsistent() throws Exception {
+        final PriceColumns columns = priceStore.columns(XRP);
+        assertEquals(2, priceStore.readConsistent(() -> priceStore.columns(XRP).size()));
+
+        // an append overlapping every optimistic attempt, the last attempt holding the appends off
+        final List<Integer> sizes = new ArrayList<>();
+        final Thread[] appender = new Thread[1];
+        final int size = priceStore.readConsistent(() -> {
+            sizes.add(priceStore.columns(XRP).size());
+            if (appender[0] == null) {
+                appender[0] = new Thread(() -> priceStore.append(XRP,
+                        List.of(new CsvCrypto(3000L, XRP, new BigDecimal("0.7")))));
+                appender[0].start();
+                while (priceStore.columns(XRP) == columns) {
+                    Thread.onSpinWait();
+                }
+            }
+            return priceStore.columns(XRP).size();
+        });
+        appender[0].join();
+
+        assertEquals(3, size);
+        assertEquals(3, sizes.get(sizes.size() - 1));
+        assertTrue(sizes.size() > 1);
+    }
+
+    private CryptoPriceStore newStore() {
+        return new CryptoPriceStore(ZoneOffset.UTC, tempDir, false, 1, DuplicatePolicy.LAST_WRITE_WINS, true,
+                Duration.ZERO, CryptoMetrics.noop());
+    }
+
+    @Test
+    void zoneNotHourAligned() {
+        assertThrows(CryptoInvestmentException.class, () -> new CryptoPriceStore(ZoneId.of("Asia/Kolkata"), false));
+        // half an hour of daylight saving time
+        assertThrows(CryptoInvestmentException.class, () -> new CryptoPriceStore(ZoneId.of("Australia/Lord_Howe"), false));
+        // local mean time until 1891
+        new CryptoPriceStore(ZoneId.of("Europe/Paris"), false);
+    }
+
+    private void append(String lines) throws IOException {
+        Files.writeString(csvPath, lines, StandardOpenOption.APPEND);
+    }
+}
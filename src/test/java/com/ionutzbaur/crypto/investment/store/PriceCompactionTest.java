@@ -0,0 +1,134 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.domain.DuplicatePolicy;
+import com.ionutzbaur.crypto.investment.util.PriceLogWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class PriceCompactionTest {
+
+    private static final CryptoType BTC = CryptoType.register("BTC");
+    private static final CryptoType ETH = CryptoType.register("ETH");
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void compact() throws IOException {
+        // the last line was cut by a crash of a previous version writing to the CSV file directly
+        final Path csvPath = Files.writeString(tempDir.resolve("BTC_values.csv"), """
+                timestamp,symbol,price
+                1000,BTC,10.5
+                3000,BTC,30
+                4000,BT""");
+
+        final Path firstLog = tempDir.resolve("BTC_values.1.log");
+        try (PriceLogWriter writer = PriceLogWriter.create(firstLog)) {
+            writer.write(crypto(2000, "20.25"));
+            writer.write(crypto(3000, "30")); // sent again by a retrying client
+            writer.flush();
+            writer.write(crypto(3000, "31")); // same timestamp, other price
+            writer.flush();
+        }
+        final Path secondLog = tempDir.resolve("BTC_values.2.log");
+        try (PriceLogWriter writer = PriceLogWriter.create(secondLog)) {
+            writer.write(crypto(5000, "50"));
+            writer.flush();
+            writer.write(crypto(6000, "60"));
+            writer.flush();
+        }
+        // the last frame was only partially written before a crash
+        final long size = Files.size(secondLog);
+        try (var channel = Files.newByteChannel(secondLog, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 5);
+        }
+
+        final PriceCompaction.Result result = PriceCompaction.compact(BTC, csvPath, List.of(firstLog, secondLog),
+                DuplicatePolicy.KEEP, true);
+
+        assertEquals(4, result.logRecords());
+        assertEquals(1, result.duplicates());
+        assertEquals(8 + 17 - 5, result.discardedLogBytes());
+        assertEquals(List.of(
+                "timestamp,symbol,price",
+                "1000,BTC,10.5",
+                "2000,BTC,20.25",
+                "3000,BTC,30",
+                "3000,BTC,31",
+                "5000,BTC,50"), Files.readAllLines(csvPath));
+        assertFalse(Files.exists(firstLog));
+        assertFalse(Files.exists(secondLog));
+
+        final PriceColumns columns = result.columns();
+        assertEquals(5, columns.size());
+        assertEquals(new BigDecimal("50"), columns.getStatistics().getNewest().getPrice());
+        final PriceSegment segment = PriceSegment.openIfUpToDate(csvPath, DuplicatePolicy.KEEP);
+        assertNotNull(segment);
+        assertEquals(5, segment.size());
+    }
+
+    @Test
+    void compact_onlyLogs() throws IOException {
+        final Path csvPath = tempDir.resolve("ETH_values.csv");
+        final Path log = tempDir.resolve("ETH_values.1.log");
+        try (PriceLogWriter writer = PriceLogWriter.create(log)) {
+            writer.write(new CsvCrypto(2000L, ETH, new BigDecimal("2.5")));
+            writer.write(new CsvCrypto(1000L, ETH, new BigDecimal("1")));
+            writer.flush();
+            writer.write(new CsvCrypto(3000L, ETH, new BigDecimal("3"))); // never flushed
+        }
+
+        // already folded logs are skipped
+        final PriceCompaction.Result result = PriceCompaction.compact(ETH, csvPath,
+                List.of(tempDir.resolve("ETH_values.0.log"), log), DuplicatePolicy.LAST_WRITE_WINS, false);
+
+        assertEquals(2, result.logRecords());
+        assertEquals(0, result.discardedLogBytes());
+        assertEquals(List.of("timestamp,symbol,price", "1000,ETH,1", "2000,ETH,2.5"), Files.readAllLines(csvPath));
+    }
+
+    @Test
+    void compact_lastWriteWins() throws IOException {
+        final Path csvPath = Files.writeString(tempDir.resolve("BTC_values.csv"), """
+                timestamp,symbol,price
+                1000,BTC,10
+                2000,BTC,20
+                """);
+        final Path firstLog = tempDir.resolve("BTC_values.1.log");
+        try (PriceLogWriter writer = PriceLogWriter.create(firstLog)) {
+            writer.write(crypto(2000, "21"));
+            writer.write(crypto(3000, "30"));
+            writer.flush();
+        }
+        final Path secondLog = tempDir.resolve("BTC_values.2.log");
+        try (PriceLogWriter writer = PriceLogWriter.create(secondLog)) {
+            writer.write(crypto(3000, "31"));
+            writer.write(crypto(3000, "32"));
+            writer.flush();
+        }
+
+        final PriceCompaction.Result result = PriceCompaction.compact(BTC, csvPath, List.of(firstLog, secondLog),
+                DuplicatePolicy.LAST_WRITE_WINS, false);
+
+        assertEquals(3, result.duplicates());
+        assertEquals(List.of("timestamp,symbol,price", "1000,BTC,10", "2000,BTC,21", "3000,BTC,32"),
+                Files.readAllLines(csvPath));
+    }
+
+    private static CsvCrypto crypto(long timestamp, String price) {
+        return new CsvCrypto(timestamp, BTC, new BigDecimal(price));
+    }
+}
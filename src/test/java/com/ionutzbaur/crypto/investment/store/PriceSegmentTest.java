@@ -0,0 +1,99 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.DuplicatePolicy;
+import com.ionutzbaur.crypto.investment.exception.CryptoInvestmentException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PriceSegmentTest {
+
+    private static final CryptoType BTC = CryptoType.register("BTC");
+    private static final CryptoType ETH = CryptoType.register("ETH");
+
+    private static final long[] TIMESTAMPS = {1641009600000L, 1641020400000L, 1641031200000L};
+    private static final long[] PRICES = {468132100L, 1702L, 37153200L}; // 4 decimals
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void writeAndOpen() throws IOException {
+        final Path csvPath = Files.writeString(tempDir.resolve("BTC_values.csv"), "csv content");
+        final PriceSeries series = new PriceSeries(BTC);
+        series.appendAll(TIMESTAMPS, PRICES, 4, TIMESTAMPS.length);
+
+        PriceSegment.write(series.columns(), DuplicatePolicy.LAST_WRITE_WINS, csvPath);
+
+        assertEquals(tempDir.resolve("BTC_values.seg"), PriceSegment.segmentPath(csvPath));
+        final PriceSegment segment = PriceSegment.openIfUpToDate(csvPath, DuplicatePolicy.LAST_WRITE_WINS);
+        assertNotNull(segment);
+        assertEquals(3, segment.size());
+        assertEquals(4, segment.getDecimals());
+        assertEquals(1641009600000L, segment.getMinTimestamp());
+        assertEquals(1641031200000L, segment.getMaxTimestamp());
+        assertEquals(1702L, segment.getMinPrice());
+        assertEquals(468132100L, segment.getMaxPrice());
+
+        final long[] timestamps = new long[3];
+        final long[] prices = new long[3];
+        segment.copyTo(0, timestamps, prices, 3);
+        assertArrayEquals(TIMESTAMPS, timestamps);
+        assertArrayEquals(PRICES, prices);
+    }
+
+    @Test
+    void openIfUpToDate_staleSource() throws IOException {
+        final Path csvPath = Files.writeString(tempDir.resolve("ETH_values.csv"), "csv content");
+        final PriceSeries series = new PriceSeries(ETH);
+        series.appendAll(TIMESTAMPS, PRICES, 4, TIMESTAMPS.length);
+        PriceSegment.write(series.columns(), DuplicatePolicy.LAST_WRITE_WINS, csvPath);
+
+        Files.writeString(csvPath, "\nappended", StandardOpenOption.APPEND);
+
+        assertNull(PriceSegment.openIfUpToDate(csvPath, DuplicatePolicy.LAST_WRITE_WINS));
+    }
+
+    @Test
+    void openIfUpToDate_otherDuplicatePolicy() throws IOException {
+        final Path csvPath = Files.writeString(tempDir.resolve("ETH_values.csv"), "csv content");
+        final PriceSeries series = new PriceSeries(ETH);
+        series.appendAll(TIMESTAMPS, PRICES, 4, TIMESTAMPS.length);
+        PriceSegment.write(series.columns(), DuplicatePolicy.LAST_WRITE_WINS, csvPath);
+
+        // the values sharing a timestamp were dropped, the store now keeping them
+        assertNull(PriceSegment.openIfUpToDate(csvPath, DuplicatePolicy.KEEP));
+        assertNotNull(PriceSegment.openIfUpToDate(csvPath, DuplicatePolicy.LAST_WRITE_WINS));
+    }
+
+    @Test
+    void open_countTooLarge() throws IOException {
+        final Path csvPath = Files.writeString(tempDir.resolve("BTC_values.csv"), "csv content");
+        final PriceSeries series = new PriceSeries(BTC);
+        series.appendAll(TIMESTAMPS, PRICES, 4, TIMESTAMPS.length);
+        PriceSegment.write(series.columns(), DuplicatePolicy.LAST_WRITE_WINS, csvPath);
+
+        // a count whose columns cannot be mapped as a single buffer
+        final Path segmentPath = PriceSegment.segmentPath(csvPath);
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, 3_000_000_000L), 8);
+        }
+
+        assertThrows(CryptoInvestmentException.class, () -> PriceSegment.open(segmentPath));
+        assertNull(PriceSegment.openIfUpToDate(csvPath, DuplicatePolicy.LAST_WRITE_WINS));
+    }
+}
@@ -0,0 +1,78 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.DuplicatePolicy;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PriceSeriesTest {
+
+    private static final CryptoType BTC = CryptoType.register("BTC");
+
+    private static final long[] TIMESTAMPS = {3000L, 1000L, 2000L};
+    private static final long[] PRICES = {30L, 10L, 20L};
+
+    @Test
+    void appendAll_keep() {
+        final PriceSeries series = seriesOf(DuplicatePolicy.KEEP);
+
+        final PriceColumns columns = series.appendAll(new long[]{2000L, 3000L, 2000L}, new long[]{21L, 31L, 22L}, 0, 3);
+
+        assertArrayEquals(new long[]{1000L, 2000L, 2000L, 2000L, 3000L, 3000L}, timestamps(columns));
+        assertArrayEquals(new long[]{10L, 20L, 21L, 22L, 30L, 31L}, prices(columns));
+        assertEquals(6, columns.getStatistics().getCount());
+    }
+
+    @Test
+    void appendAll_lastWriteWins() {
+        final PriceSeries series = seriesOf(DuplicatePolicy.LAST_WRITE_WINS);
+
+        // late and duplicate values, the newest and max price being replaced by a lower one
+        final PriceColumns columns = series.appendAll(new long[]{3000L, 500L, 2000L, 2000L}, new long[]{5L, 1L, 21L, 22L}, 0, 4);
+
+        assertArrayEquals(new long[]{500L, 1000L, 2000L, 3000L}, timestamps(columns));
+        assertArrayEquals(new long[]{1L, 10L, 22L, 5L}, prices(columns));
+        final PriceStatistics statistics = columns.getStatistics();
+        assertEquals(4, statistics.getCount());
+        assertEquals(new BigDecimal("22"), statistics.getMax().getPrice());
+        assertEquals(new BigDecimal("5"), statistics.getNewest().getPrice());
+        assertEquals(500L, statistics.getOldest().getTimestamp());
+    }
+
+    @Test
+    void appendAll_reject() {
+        final PriceSeries series = seriesOf(DuplicatePolicy.REJECT);
+
+        final PriceColumns columns = series.appendAll(new long[]{4000L, 3000L, 4000L}, new long[]{40L, 31L, 41L}, 0, 3);
+
+        assertArrayEquals(new long[]{1000L, 2000L, 3000L, 4000L}, timestamps(columns));
+        assertArrayEquals(new long[]{10L, 20L, 30L, 40L}, prices(columns));
+        assertEquals(new BigDecimal("40"), columns.getStatistics().getMax().getPrice());
+    }
+
+    private static PriceSeries seriesOf(DuplicatePolicy duplicatePolicy) {
+        final PriceSeries series = new PriceSeries(BTC, duplicatePolicy);
+        series.appendAll(TIMESTAMPS, PRICES, 0, TIMESTAMPS.length);
+        return series;
+    }
+
+    private static long[] timestamps(PriceColumns columns) {
+        final long[] timestamps = new long[columns.size()];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = columns.timestampAt(i);
+        }
+        return timestamps;
+    }
+
+    private static long[] prices(PriceColumns columns) {
+        final long[] prices = new long[columns.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = columns.priceAt(i);
+        }
+        return prices;
+    }
+}
@@ -0,0 +1,60 @@
+package com.ionutzbaur.crypto.investment.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QuantileSketchTest {
+
+    private static final double[] QUANTILES = {0, 0.05, 0.25, 0.5, 0.75, 0.95, 1};
+
+    @Test
+    void quantile() {
+        // a random walk of a year of hourly prices
+        final Random random = new Random(42);
+        final double[] values = new double[24 * 365];
+        double price = 100;
+        for (int i = 0; i < values.length; i++) {
+            price *= Math.exp(random.nextGaussian() * 0.01);
+            values[i] = price;
+        }
+
+        final int half = values.length / 2;
+        final QuantileSketch merged = QuantileSketch.of(values, half)
+                .merge(QuantileSketch.of(Arrays.copyOfRange(values, half, values.length), values.length - half));
+
+        final double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double quantile : QUANTILES) {
+            final double exact = sorted[Math.max(0, (int) Math.ceil(quantile * sorted.length) - 1)];
+            assertEquals(exact, merged.quantile(quantile), exact * QuantileSketch.RELATIVE_ACCURACY);
+        }
+        assertEquals(values.length, merged.getCount());
+    }
+
+    @Test
+    void quantile_nearestRank() {
+        final QuantileSketch sketch = QuantileSketch.of(new double[]{50, 10, 40, 20, 30}, 5);
+
+        assertEquals(10, sketch.quantile(0), 10 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(10, sketch.quantile(0.05), 10 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(20, sketch.quantile(0.4), 20 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(30, sketch.quantile(0.41), 30 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(30, sketch.quantile(0.5), 30 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(50, sketch.quantile(0.95), 50 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(50, sketch.quantile(1), 50 * QuantileSketch.RELATIVE_ACCURACY);
+    }
+
+    @Test
+    void quantile_nonPositive() {
+        final QuantileSketch sketch = QuantileSketch.of(new double[]{0, 0, 5, 10}, 4)
+                .merge(QuantileSketch.empty());
+
+        assertEquals(0, sketch.quantile(0.5));
+        assertEquals(10, sketch.quantile(1), 10 * QuantileSketch.RELATIVE_ACCURACY);
+        assertEquals(Double.NaN, QuantileSketch.empty().quantile(0.5));
+    }
+}
@@ -0,0 +1,141 @@
+package com.ionutzbaur.crypto.investment.stream;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoStatistics;
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import com.ionutzbaur.crypto.investment.domain.CsvCrypto;
+import com.ionutzbaur.crypto.investment.service.CryptoService;
+import com.ionutzbaur.crypto.investment.store.CryptoPriceStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class StatisticsStreamTest {
+
+    private static final CryptoType BTC = CryptoType.register("BTC");
+    private static final CryptoType ETH = CryptoType.register("ETH");
+
+    private CryptoPriceStore priceStore;
+    private StatisticsStream statisticsStream;
+
+    @BeforeEach
+    void setUp() {
+        priceStore = new CryptoPriceStore(ZoneOffset.UTC, false);
+        // the ranking is not under test, the mock returns an empty one
+        statisticsStream = new StatisticsStream(priceStore, mock(CryptoService.class), Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        statisticsStream.stop();
+    }
+
+    @Test
+    void subscribe() throws InterruptedException {
+        priceStore.append(BTC, List.of(crypto(1, BTC, 10)));
+        priceStore.append(ETH, List.of(crypto(1, ETH, 20)));
+        final RecordingEmitter emitter = new RecordingEmitter(null);
+        statisticsStream.subscribe(emitter, List.of(BTC));
+
+        // current values first
+        assertStatistics(emitter.next(), crypto(1, BTC, 10));
+        assertEquals(List.of(), emitter.next());
+        assertEquals(1, statisticsStream.subscriberCount());
+
+        priceStore.append(BTC, List.of(crypto(2, BTC, 12)));
+        assertStatistics(emitter.next(), crypto(2, BTC, 12));
+        assertEquals(List.of(), emitter.next());
+
+        // not subscribed, only the ranking changes
+        priceStore.append(ETH, List.of(crypto(2, ETH, 25)));
+        assertEquals(List.of(), emitter.next());
+        assertNull(emitter.events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void subscribe_slowClient() throws InterruptedException {
+        priceStore.append(BTC, List.of(crypto(0, BTC, 10)));
+        final CountDownLatch sendBlocked = new CountDownLatch(1);
+        final RecordingEmitter emitter = new RecordingEmitter(sendBlocked);
+        statisticsStream.subscribe(emitter, null);
+
+        // the first event is stuck in the network meanwhile
+        assertTrue(emitter.firstSendStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 100; i++) {
+            priceStore.append(BTC, List.of(crypto(i, BTC, 10 + i)));
+        }
+        sendBlocked.countDown();
+
+        // the ranking is read once released, the statistics once more, both with all the values
+        assertStatistics(emitter.next(), crypto(0, BTC, 10));
+        assertEquals(List.of(), emitter.next());
+        assertStatistics(emitter.next(), crypto(100, BTC, 110));
+        assertNull(emitter.events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    private static void assertStatistics(Object event, CsvCrypto newest) {
+        final CryptoStatistics statistics = assertInstanceOf(CryptoStatistics.class, event);
+        assertEquals(newest.getSymbol(), statistics.getSymbol());
+        assertEquals(newest, statistics.getNewest());
+    }
+
+    private static CsvCrypto crypto(long timestamp, CryptoType cryptoType, double price) {
+        return new CsvCrypto(timestamp, cryptoType, BigDecimal.valueOf(price));
+    }
+
+    /**
+     * Records the data of the sent events, optionally blocking the first send until released.
+     * The first send having started is signaled, as the events are sent on another thread.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch firstSendStarted = new CountDownLatch(1);
+        private final CountDownLatch firstSendBlocked;
+
+        private RecordingEmitter(CountDownLatch firstSendBlocked) {
+            this.firstSendBlocked = firstSendBlocked;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            for (DataWithMediaType dataWithMediaType : builder.build()) {
+                if (!(dataWithMediaType.getData() instanceof String)) {
+                    events.add(dataWithMediaType.getData());
+                }
+            }
+            firstSendStarted.countDown();
+            if (firstSendBlocked != null) {
+                try {
+                    firstSendBlocked.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        }
+
+        Object next() throws InterruptedException {
+            final Object event = events.poll(5, TimeUnit.SECONDS);
+            if (event == null) {
+                throw new AssertionError("No event sent");
+            }
+            return event;
+        }
+    }
+}
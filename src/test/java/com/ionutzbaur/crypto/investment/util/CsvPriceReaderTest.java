@@ -0,0 +1,135 @@
+package com.ionutzbaur.crypto.investment.util;
+
+import com.ionutzbaur.crypto.investment.domain.CryptoType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvPriceReaderTest {
+
+    @BeforeAll
+    static void registerSymbols() {
+        Stream.of("BTC", "DOGE", "ETH", "LTC", "XRP").forEach(CryptoType::register);
+    }
+
+    @Test
+    void read() throws IOException {
+        final String csv = """
+                timestamp,symbol,price
+                1641009600000,BTC,46813.21
+                1641020400000, ETH ,3715.32
+                1641031200000,DOGE,0.1702
+                """;
+
+        final List<String> rows = new ArrayList<>();
+        final CsvPriceReader.Result result = read(new CsvPriceReader(), csv, rows);
+
+        assertEquals(List.of("BTC 1641009600000 46813.21", "ETH 1641020400000 3715.32", "DOGE 1641031200000 0.1702"), rows);
+        assertEquals(new CsvPriceReader.Result(3, 0, csv.length()), result);
+    }
+
+    @Test
+    void read_headerColumnOrder() throws IOException {
+        final String csv = "price,symbol,timestamp\r\n46813.21,BTC,1641009600000\r\n3715.32,ETH,1641020400000";
+
+        final List<String> rows = new ArrayList<>();
+        read(new CsvPriceReader(), csv, rows);
+
+        assertEquals(List.of("BTC 1641009600000 46813.21", "ETH 1641020400000 3715.32"), rows);
+    }
+
+    @Test
+    void read_withoutHeader() throws IOException {
+        final List<String> rows = new ArrayList<>();
+        read(new CsvPriceReader(), "1641009600000,LTC,148.1\n", rows);
+
+        assertEquals(List.of("LTC 1641009600000 148.1"), rows);
+    }
+
+    @Test
+    void read_skipsMalformedLines() throws IOException {
+        final String csv = """
+                timestamp,symbol,price
+                1641009600000,BTC,46813.21
+                not-a-timestamp,BTC,46813.21
+                1641009600000,UNKNOWN,46813.21
+                1641009600000,BTC,.
+                1641009600000,BTC
+
+                1641020400000,ETH,3715.32
+                """;
+
+        final List<String> rows = new ArrayList<>();
+        final CsvPriceReader.Result result = read(new CsvPriceReader(), csv, rows);
+
+        assertEquals(List.of("BTC 1641009600000 46813.21", "ETH 1641020400000 3715.32"), rows);
+        assertEquals(2, result.rows());
+        assertEquals(4, result.malformedRows());
+    }
+
+    @Test
+    void read_malformedFirstLine() throws IOException {
+        // not a header, as it does not name the columns: skipped like any other malformed line
+        final String csv = """
+                BTC,1641009600000
+                1641009600000,BTC,46813.21
+                1641020400000,ETH,3715.32
+                """;
+
+        final List<String> rows = new ArrayList<>();
+        final CsvPriceReader.Result result = read(new CsvPriceReader(), csv, rows);
+
+        assertEquals(List.of("BTC 1641009600000 46813.21", "ETH 1641020400000 3715.32"), rows);
+        assertEquals(1, result.malformedRows());
+    }
+
+    @Test
+    void read_linesSpanningBuffers() throws IOException {
+        final StringBuilder csv = new StringBuilder("timestamp,symbol,price\n");
+        final List<String> expectedRows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final String price = BigDecimal.valueOf(800 + i, 3).toPlainString();
+            csv.append(1641009600000L + i).append(",XRP,").append(price).append('\n');
+            expectedRows.add("XRP " + (1641009600000L + i) + " " + new BigDecimal(price).stripTrailingZeros().toPlainString());
+        }
+
+        final List<String> rows = new ArrayList<>();
+        read(new CsvPriceReader(8), csv.toString(), rows);
+
+        assertEquals(expectedRows, rows);
+    }
+
+    @Test
+    void read_prices() throws IOException {
+        final String[][] prices = {
+                {"0.1702", "0.1702"},
+                {"3715.3200", "3715.32"},
+                {"1234567890.12345", "1234567890.12345"},
+                {"0.1234567890125", "0.123456789013"}, // rounded to the max decimals
+                {"0.000000000000000000000001", "0"},
+                {"1.5E3", "1500"},
+                {"12345678901234567890.5", null} // out of range
+        };
+        for (String[] price : prices) {
+            final List<String> rows = new ArrayList<>();
+            read(new CsvPriceReader(), "1641009600000,BTC," + price[0], rows);
+
+            assertEquals(price[1] == null ? List.of() : List.of("BTC 1641009600000 " + price[1]), rows);
+        }
+    }
+
+    private static CsvPriceReader.Result read(CsvPriceReader reader, String csv, List<String> rows) throws IOException {
+        return reader.read(new ByteArrayInputStream(csv.getBytes(StandardCharsets.US_ASCII)),
+                (CryptoType symbol, long timestamp, long price, int decimals) -> rows.add(symbol + " " + timestamp + " "
+                        + FixedPoint.toBigDecimal(price, decimals).toPlainString()));
+    }
+}